@@ -8,17 +8,33 @@ import java.net.http.HttpRequest.BodyPublisher;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandlers;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonParser;
 
+import model.JsonCodec;
 import model.exceptions.HTTPException;
 import model.requests.Request;
 import model.results.Result;
 
 public class ClientCommunicator {
+    private static final int MAX_CACHED_RESPONSES = 32;
+
+    // The last response to each GET that came with an ETag
+    private record CachedResponse(String etag, HttpResponse<String> response) {
+    }
+
     private final HttpClient client = HttpClient.newHttpClient();
     private final String serverUrl;
+    private final Map<String, CachedResponse> cachedResponses = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                    return size() > MAX_CACHED_RESPONSES;
+                }
+            });
 
     public ClientCommunicator(String url) {
         serverUrl = url;
@@ -34,9 +50,29 @@ public class ClientCommunicator {
         return handleResponse(response, responseType);
     }
 
+    /**
+     * Sends a GET, asking the server to answer 304 if nothing has changed
+     * since the last response it sent for this endpoint with an
+     * {@code ETag}. That response is then used again.
+     */
     protected <T extends Result> T get(Request requestModel, String endpoint, String authToken, Class<T> responseType) throws HTTPException {
-        var request = buildRequest("GET", endpoint, authToken, requestModel);
-        var response = sendRequest(request);
+        var builder = requestBuilder("GET", endpoint, authToken, requestModel);
+        CachedResponse cached = cachedResponses.get(endpoint);
+        if (cached != null) {
+            builder.setHeader("If-None-Match", cached.etag());
+        }
+        var response = sendRequest(builder.build());
+        if (response.statusCode() == 304 && cached != null) {
+            return handleResponse(cached.response(), responseType);
+        }
+        if (isSuccessful(response.statusCode())) {
+            String etag = response.headers().firstValue("ETag").orElse(null);
+            if (etag != null) {
+                cachedResponses.put(endpoint, new CachedResponse(etag, response));
+            } else {
+                cachedResponses.remove(endpoint);
+            }
+        }
         return handleResponse(response, responseType);
     }
 
@@ -53,6 +89,10 @@ public class ClientCommunicator {
 
 
     private HttpRequest buildRequest(String method, String endpoint, String authToken, Object body) {
+        return requestBuilder(method, endpoint, authToken, body).build();
+    }
+
+    private HttpRequest.Builder requestBuilder(String method, String endpoint, String authToken, Object body) {
         var request = HttpRequest.newBuilder()
                 .uri(URI.create(serverUrl + endpoint))
                 .method(method, makeRequestBody(body));
@@ -62,12 +102,12 @@ public class ClientCommunicator {
         if (authToken != null) {
             request.setHeader("authorization", authToken);
         }
-        return request.build();
+        return request;
     }
 
     private BodyPublisher makeRequestBody(Object request) {
         if (request != null) {
-            return BodyPublishers.ofString(new Gson().toJson(request));
+            return BodyPublishers.ofString(JsonCodec.GSON.toJson(request));
         } else {
             return BodyPublishers.noBody();
         }
@@ -95,7 +135,7 @@ public class ClientCommunicator {
         }
 
         if (responseClass != null) {
-            return new Gson().fromJson(response.body(), responseClass);
+            return JsonCodec.GSON.fromJson(response.body(), responseClass);
         }
 
         return null;
@@ -0,0 +1,82 @@
+package client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import model.GameSummary;
+import websocket.messages.LobbyMessage;
+import websocket.messages.LobbyUpdateMessage;
+import websocket.messages.ServerMessage;
+
+/**
+ * A local copy of the server's lobby, kept current by the lobby messages the
+ * server pushes over a websocket. It starts from the whole lobby and then
+ * applies each change; if a change is missed the view is no longer current
+ * until the whole lobby has been sent again.
+ */
+public class LobbyView {
+
+    private final TreeMap<Integer, GameSummary> games = new TreeMap<>();
+    private int lastSequence;
+    private boolean current = false;
+
+    /**
+     * @return whether the view matches the server's lobby as of the last
+     *         message received
+     */
+    public synchronized boolean isCurrent() {
+        return current;
+    }
+
+    /**
+     * @return every game, in order of ID
+     */
+    public synchronized List<GameSummary> getGames() {
+        return new ArrayList<>(games.values());
+    }
+
+    /**
+     * Applies a lobby message
+     *
+     * @return false if a change was missed, so the whole lobby must be sent
+     *         again
+     */
+    synchronized boolean apply(ServerMessage message) {
+        switch (message) {
+            case LobbyMessage lobby -> {
+                games.clear();
+                for (GameSummary game : lobby.getGames()) {
+                    games.put(game.gameID(), game);
+                }
+                lastSequence = lobby.getSequence();
+                current = true;
+            }
+            case LobbyUpdateMessage update -> {
+                if (!current) {
+                    // Sent before the whole lobby it will be part of
+                    return true;
+                }
+                if (update.getSequence() <= lastSequence) {
+                    return true;
+                }
+                if (update.getSequence() != lastSequence + 1) {
+                    current = false;
+                    return false;
+                }
+                games.put(update.getGame().gameID(), update.getGame());
+                lastSequence = update.getSequence();
+            }
+            default -> {
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Marks the view out of date, e.g. after losing the connection
+     */
+    synchronized void invalidate() {
+        current = false;
+    }
+}
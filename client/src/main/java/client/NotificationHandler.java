@@ -3,8 +3,6 @@ package client;
 import java.util.ArrayList;
 import java.util.List;
 
-import com.google.gson.Gson;
-
 import ui.ChessClient;
 import static ui.EscapeSequences.ERASE_SCREEN;
 import static ui.EscapeSequences.RESET_TEXT_COLOR;
@@ -12,6 +10,7 @@ import static ui.EscapeSequences.SET_TEXT_COLOR_RED;
 import static ui.EscapeSequences.SET_TEXT_COLOR_YELLOW;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
 import websocket.messages.NotificationMessage;
 import websocket.messages.ServerMessage;
 
@@ -25,13 +24,22 @@ public class NotificationHandler {
         this.client = client;
     }
 
-    void notify(String message) {
-        ServerMessage serverMessage = new Gson().fromJson(message, ServerMessage.class);
-        switch (serverMessage.getServerMessageType()) {
-            case NOTIFICATION -> notification(new Gson().fromJson(message, NotificationMessage.class));
-            case ERROR -> error(new Gson().fromJson(message, ErrorMessage.class));
-            case LOAD_GAME -> loadGame(new Gson().fromJson(message, LoadGameMessage.class));
+    /**
+     * @return false if the message shows the board is out of date, so the
+     *         whole game must be loaded again
+     */
+    boolean notify(ServerMessage serverMessage) {
+        switch (serverMessage) {
+            case NotificationMessage notification -> notification(notification);
+            case ErrorMessage error -> error(error);
+            case LoadGameMessage loadGame -> loadGame(loadGame);
+            case MoveMessage move -> {
+                return move(move);
+            }
+            default -> {
+            }
         }
+        return true;
     }
 
     void notification(NotificationMessage notification) {
@@ -50,6 +58,14 @@ public class NotificationHandler {
         client.printMenu();
     }
 
+    boolean move(MoveMessage message) {
+        if (!client.getBoard().applyMove(message.getMove(), message.getPly(), message.isGameOver())) {
+            return false;
+        }
+        System.out.print(ERASE_SCREEN);
+        client.printMenu();
+        return true;
+    }
 
     private void addMessage(String message) {
         if (messages.size() >= 7) {
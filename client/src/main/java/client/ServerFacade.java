@@ -1,11 +1,16 @@
 package client;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import chess.ChessMove;
 import chess.ChessPiece;
 import chess.ChessPosition;
-import model.GameData;
+import model.GameQuery;
+import model.GameSummary;
 import model.exceptions.HTTPException;
 import model.requests.CreateGameRequest;
 import model.requests.JoinGameRequest;
@@ -17,9 +22,13 @@ import model.results.RegisterResult;
 import model.results.SessionCreationResult;
 
 public class ServerFacade {
+    public static final int PAGE_SIZE = 50;
+
     private String authToken;
     private final ClientCommunicator communicator;
     private WebSocketFacade webSocketFacade;
+    private WebSocketFacade lobbySocket;
+    private final LobbyView lobby = new LobbyView();
 
     public String getToken() {
         return this.authToken;
@@ -44,19 +53,88 @@ public class ServerFacade {
     }
 
     public void logout() throws HTTPException {
+        stopWatchingLobby();
         communicator.delete(null, "/session", authToken);
         this.authToken = null;
     }
 
+    /**
+     * Starts keeping the lobby view current with changes pushed by the server,
+     * on a websocket of its own
+     *
+     * @return the view, which is current once the server has sent the whole
+     *         lobby
+     */
+    public LobbyView watchLobby() throws HTTPException {
+        if (lobbySocket == null) {
+            lobbySocket = new WebSocketFacade(communicator.getServerUrl(), this::getToken, null);
+        }
+        lobbySocket.watchLobby(lobby);
+        return lobby;
+    }
+
+    public void stopWatchingLobby() throws HTTPException {
+        if (lobbySocket != null) {
+            WebSocketFacade socket = lobbySocket;
+            lobbySocket = null;
+            try {
+                socket.stopWatchingLobby();
+            } finally {
+                socket.close();
+            }
+        }
+    }
+
+    public LobbyView getLobby() {
+        return lobby;
+    }
+
     public int createGame(String gameName) throws HTTPException {
         CreateGameRequest request = new CreateGameRequest(authToken, gameName);
         GameCreationResult response = communicator.post(request, "/game", authToken, GameCreationResult.class);
         return response.gameID();
     }
 
-    public List<GameData> listGames() throws HTTPException {
-        ListGamesResult response = communicator.get(null, "/game", authToken, ListGamesResult.class);
-        return response.games();
+    /**
+     * Lists every game, fetching them a page at a time
+     */
+    public List<GameSummary> listGames() throws HTTPException {
+        List<GameSummary> games = new ArrayList<>();
+        listGames(GameQuery.ALL, games::addAll);
+        return games;
+    }
+
+    /**
+     * Lists the games matching a query, handing each page over as it arrives.
+     * The query's own page is ignored; every page is fetched.
+     */
+    public void listGames(GameQuery query, Consumer<List<GameSummary>> pageHandler) throws HTTPException {
+        Integer after = 0;
+        while (after != null) {
+            ListGamesResult page = listGames(query.page(after, PAGE_SIZE));
+            pageHandler.accept(page.games());
+            after = page.nextPage();
+        }
+    }
+
+    /**
+     * Lists a single page of the games matching a query
+     */
+    public ListGamesResult listGames(GameQuery query) throws HTTPException {
+        StringBuilder endpoint = new StringBuilder("/game?after=").append(query.after());
+        if (query.limit() > 0) {
+            endpoint.append("&limit=").append(query.limit());
+        }
+        if (query.status() != null) {
+            endpoint.append("&status=").append(query.status().name());
+        }
+        if (query.openSeats()) {
+            endpoint.append("&openSeats=true");
+        }
+        if (query.namePrefix() != null) {
+            endpoint.append("&name=").append(URLEncoder.encode(query.namePrefix(), StandardCharsets.UTF_8));
+        }
+        return communicator.get(null, endpoint.toString(), authToken, ListGamesResult.class);
     }
 
     public void joinGame(int gameID, String team, NotificationHandler notificationHandler) throws HTTPException {
@@ -3,11 +3,11 @@ package client;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
 import java.util.function.Supplier;
 
-import com.google.gson.Gson;
-
 import chess.ChessMove;
+import jakarta.websocket.CloseReason;
 import jakarta.websocket.ContainerProvider;
 import jakarta.websocket.DeploymentException;
 import jakarta.websocket.Endpoint;
@@ -15,9 +15,15 @@ import jakarta.websocket.EndpointConfig;
 import jakarta.websocket.MessageHandler;
 import jakarta.websocket.Session;
 import jakarta.websocket.WebSocketContainer;
+import model.JsonCodec;
 import model.exceptions.HTTPException;
+import websocket.BinaryProtocol;
+import websocket.commands.ConnectCommand;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
+import websocket.messages.LobbyMessage;
+import websocket.messages.LobbyUpdateMessage;
+import websocket.messages.ServerMessage;
 
 // Need to extend Endpoint for websocket to work properly
 public class WebSocketFacade extends Endpoint {
@@ -26,29 +32,28 @@ public class WebSocketFacade extends Endpoint {
     NotificationHandler notificationHandler;
     int gameID;
 
+    private final URI socketURI;
     private final Supplier<String> authToken;
 
+    // Sequence of the last game change received, to catch up from after a reconnect
+    private volatile Integer lastSequence;
+
+    // Set once the server answers in binary frames, so it understands them too
+    private volatile boolean binary;
+
+    // The lobby kept current from this connection, if any
+    private volatile LobbyView lobby;
+
     public WebSocketFacade(String url, Supplier<String> tokenSupplier, NotificationHandler notificationHandler) throws HTTPException {
         this.authToken = tokenSupplier;
+        this.notificationHandler = notificationHandler;
         try {
             url = url.replace("http", "ws");
-            URI socketURI = new URI(url + "/ws");
-            this.notificationHandler = notificationHandler;
-
-            WebSocketContainer container = ContainerProvider.getWebSocketContainer();
-            this.session = container.connectToServer(this, socketURI);
-
-            // Set message handler
-            this.session.addMessageHandler(new MessageHandler.Whole<String>() {
-                @Override
-                public void onMessage(String message) {
-                    // System.out.println("Received: " + message);
-                    notificationHandler.notify(message);
-                }
-            });
-        } catch (DeploymentException | IOException | URISyntaxException ex) {
+            socketURI = new URI(url + "/ws");
+        } catch (URISyntaxException ex) {
             throw new HTTPException(500, ex.getMessage());
         }
+        open();
     }
 
     // Endpoint requires this method, but you don't have to do anything
@@ -57,41 +62,160 @@ public class WebSocketFacade extends Endpoint {
     }
 
     public void connect(int gameID) throws HTTPException {
-        try {
-            UserGameCommand action = new UserGameCommand(UserGameCommand.CommandType.CONNECT, authToken.get(), gameID);
-            this.session.getBasicRemote().sendText(new Gson().toJson(action));
-        } catch (IOException ex) {
-            throw new HTTPException(500, ex.getMessage());
-        }
         this.gameID = gameID;
+        this.lastSequence = null;
+        // Moves arrive one at a time and are applied to the local board
+        send(new ConnectCommand(authToken.get(), gameID, true, null, true));
     }
 
-    public void leave() throws HTTPException {
+    @Override
+    public void onClose(Session session, CloseReason closeReason) {
+        LobbyView view = lobby;
+        if (view != null) {
+            view.invalidate();
+        }
+    }
+
+    /**
+     * Opens a new connection after the old one was lost, catches up on the
+     * game from the last change received and watches the lobby again
+     */
+    public void reconnect() throws HTTPException {
+        open();
+        if (gameID != 0) {
+            send(new ConnectCommand(authToken.get(), gameID, true, lastSequence, true));
+        }
+        if (lobby != null) {
+            send(new UserGameCommand(UserGameCommand.CommandType.SUBSCRIBE_LOBBY, authToken.get(), null));
+        }
+    }
+
+    /**
+     * Asks the server for the whole lobby and then each change to it, and
+     * keeps a view of it current
+     */
+    public void watchLobby(LobbyView view) throws HTTPException {
+        this.lobby = view;
+        send(new UserGameCommand(UserGameCommand.CommandType.SUBSCRIBE_LOBBY, authToken.get(), null));
+    }
+
+    public void stopWatchingLobby() throws HTTPException {
+        LobbyView view = lobby;
+        this.lobby = null;
+        if (view != null) {
+            view.invalidate();
+            if (session.isOpen()) {
+                send(new UserGameCommand(UserGameCommand.CommandType.UNSUBSCRIBE_LOBBY, authToken.get(), null));
+            }
+        }
+    }
+
+    public void close() {
         try {
-            UserGameCommand action = new UserGameCommand(UserGameCommand.CommandType.LEAVE, authToken.get(), gameID);
-            this.session.getBasicRemote().sendText(new Gson().toJson(action));
+            session.close();
         } catch (IOException ex) {
-            throw new HTTPException(500, ex.getMessage());
+            // Closing anyway
         }
+    }
+
+    public void leave() throws HTTPException {
+        send(new UserGameCommand(UserGameCommand.CommandType.LEAVE, authToken.get(), gameID));
         this.gameID = 0;
     }
 
     public void resign() throws HTTPException {
+        send(new UserGameCommand(UserGameCommand.CommandType.RESIGN, authToken.get(), gameID));
+    }
+
+    public void makeMove(ChessMove move) throws HTTPException {
+        send(new MakeMoveCommand(move, authToken.get(), gameID));
+    }
+
+    private void open() throws HTTPException {
         try {
-            UserGameCommand action = new UserGameCommand(UserGameCommand.CommandType.RESIGN, authToken.get(), gameID);
-            this.session.getBasicRemote().sendText(new Gson().toJson(action));
-        } catch (IOException ex) {
+            WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+            this.session = container.connectToServer(this, socketURI);
+            // A new connection starts out in JSON until the server answers in binary
+            this.binary = false;
+
+            // Set message handlers
+            this.session.addMessageHandler(new MessageHandler.Whole<String>() {
+                @Override
+                public void onMessage(String message) {
+                    // System.out.println("Received: " + message);
+                    receive(JsonCodec.GSON.fromJson(message, ServerMessage.class));
+                }
+            });
+            this.session.addMessageHandler(new MessageHandler.Whole<ByteBuffer>() {
+                @Override
+                public void onMessage(ByteBuffer message) {
+                    binary = true;
+                    receive(BinaryProtocol.decodeMessage(message));
+                }
+            });
+        } catch (DeploymentException | IOException ex) {
             throw new HTTPException(500, ex.getMessage());
         }
     }
 
-    public void makeMove(ChessMove move) throws HTTPException {
+    private void receive(ServerMessage message) {
+        if (message instanceof LobbyMessage || message instanceof LobbyUpdateMessage) {
+            LobbyView view = lobby;
+            if (view != null && !view.apply(message)) {
+                resubscribeLobby();
+            }
+            return;
+        }
+        if (notificationHandler == null) {
+            return;
+        }
+        if (!notificationHandler.notify(message)) {
+            resync();
+            return;
+        }
+        if (message.getSequence() != null) {
+            lastSequence = message.getSequence();
+        }
+    }
+
+    /**
+     * Reloads the whole board after a move update didn't fit the local one
+     */
+    private void resync() {
         try {
-            MakeMoveCommand action = new MakeMoveCommand(move, authToken.get(), gameID);
-            this.session.getBasicRemote().sendText(new Gson().toJson(action));
+            send(new ConnectCommand(authToken.get(), gameID, true, ConnectCommand.RELOAD, true));
+        } catch (HTTPException ex) {
+            System.err.println("Unable to reload game: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Asks for the whole lobby again after a change to it was missed
+     */
+    private void resubscribeLobby() {
+        try {
+            send(new UserGameCommand(UserGameCommand.CommandType.SUBSCRIBE_LOBBY, authToken.get(), null));
+        } catch (HTTPException ex) {
+            System.err.println("Unable to reload lobby: " + ex.getMessage());
+        }
+    }
+
+    private void send(UserGameCommand command) throws HTTPException {
+        // A lost connection is picked up again, along with the game and lobby it was following
+        if (!this.session.isOpen() && command.getCommandType() != UserGameCommand.CommandType.CONNECT
+                && command.getCommandType() != UserGameCommand.CommandType.SUBSCRIBE_LOBBY) {
+            reconnect();
+        } else if (!this.session.isOpen()) {
+            open();
+        }
+        try {
+            if (binary && BinaryProtocol.canEncode(command)) {
+                this.session.getBasicRemote().sendBinary(ByteBuffer.wrap(BinaryProtocol.encodeCommand(command)));
+            } else {
+                this.session.getBasicRemote().sendText(JsonCodec.GSON.toJson(command));
+            }
         } catch (IOException ex) {
             throw new HTTPException(500, ex.getMessage());
         }
     }
-
 }
@@ -8,8 +8,10 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import chess.ChessGame;
+import chess.ChessMove;
 import chess.ChessPiece;
 import chess.ChessPosition;
+import chess.InvalidMoveException;
 import static ui.EscapeSequences.BLACK_BISHOP;
 import static ui.EscapeSequences.BLACK_KING;
 import static ui.EscapeSequences.BLACK_KNIGHT;
@@ -48,6 +50,29 @@ public final class ChessBoard {
         this.game = update;
     }
 
+    /**
+     * Applies a move reported by the server to the local game
+     *
+     * @param ply      the game's ply count after the move
+     * @param gameOver whether the game ended with the move
+     * @return false if the move doesn't follow from the local game, which then
+     *         needs to be reloaded
+     */
+    public boolean applyMove(ChessMove move, int ply, boolean gameOver) {
+        if (game == null || game.getPlyCount() + 1 != ply) {
+            return false;
+        }
+        try {
+            game.makeMove(move);
+        } catch (InvalidMoveException e) {
+            return false;
+        }
+        if (gameOver) {
+            game.endGame();
+        }
+        return true;
+    }
+
     public chess.ChessGame getGame() {
         return game;
     }
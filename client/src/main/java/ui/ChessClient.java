@@ -12,10 +12,13 @@ import chess.ChessGame;
 import chess.ChessPiece;
 import chess.ChessPiece.PieceType;
 import chess.ChessPosition;
+import client.LobbyView;
 import client.NotificationHandler;
 import client.ServerCommunicationFailure;
 import client.ServerFacade;
-import model.GameData;
+import model.GameQuery;
+import model.GameStatus;
+import model.GameSummary;
 import model.exceptions.HTTPException;
 import static ui.EscapeSequences.ERASE_SCREEN;
 
@@ -244,6 +247,7 @@ public class ChessClient {
         try {
             this.username = server.register(username, email, password);
             uiState = UIState.POSTLOGIN;
+            watchLobby();
         } catch (HTTPException e) {
             System.out.println(e.getMessage());
         }
@@ -253,6 +257,7 @@ public class ChessClient {
         try {
             this.username = server.login(username, password);
             uiState = UIState.POSTLOGIN;
+            watchLobby();
         } catch (HTTPException e) {
             System.out.println(e.getMessage());
         }
@@ -278,16 +283,26 @@ public class ChessClient {
         }
     }
 
+    /**
+     * Keeps a local copy of the lobby current so listing games needs no
+     * request. If the server can't push it, games are fetched when listed.
+     */
+    private void watchLobby() {
+        try {
+            server.watchLobby();
+        } catch (HTTPException e) {
+            // Listing falls back to fetching the games
+        }
+    }
+
     private void listGames() {
         try {
-            List<GameData> games = server.listGames();
             gameIDs.clear();
-            int counter = 0;
-            for (final GameData game : games) {
-                gameIDs.add(game.gameID());
-                System.out.println(String.format("Game %d: %s - White Player: %s - Black Player %s", ++counter, game.gameName(),
-                        game.whiteUsername() == null ? "--NONE--" : game.whiteUsername(),
-                        game.blackUsername() == null ? "--NONE--" : game.blackUsername()));
+            LobbyView lobby = server.getLobby();
+            if (lobby.isCurrent()) {
+                printGames(lobby.getGames());
+            } else {
+                server.listGames(GameQuery.ALL, this::printGames);
             }
             System.out.println();
         } catch (HTTPException e) {
@@ -295,6 +310,16 @@ public class ChessClient {
         }
     }
 
+    private void printGames(List<GameSummary> games) {
+        for (final GameSummary game : games) {
+            gameIDs.add(game.gameID());
+            System.out.println(String.format("Game %d: %s - White Player: %s - Black Player %s%s", gameIDs.size(), game.gameName(),
+                    game.whiteUsername() == null ? "--NONE--" : game.whiteUsername(),
+                    game.blackUsername() == null ? "--NONE--" : game.blackUsername(),
+                    game.status() == GameStatus.FINISHED ? " (finished)" : ""));
+        }
+    }
+
     private void joinGame(int gameNumber, String team) {
         gameNumber -= 1;
         if (0 <= gameNumber && gameNumber < gameIDs.size()) {
@@ -5,13 +5,15 @@ import java.util.List;
 
 import org.junit.jupiter.api.AfterAll;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import model.GameData;
+import model.GameSummary;
 import model.exceptions.HTTPException;
 import server.Server;
 
@@ -69,8 +71,8 @@ public class ServerFacadeTest {
             for (String game : gameNames) {
                 facade.createGame(game);
             }
-            List<GameData> games = facade.listGames();
-            for (GameData game : games) {
+            List<GameSummary> games = facade.listGames();
+            for (GameSummary game : games) {
                 assertTrue(gameNames.contains(game.gameName()));
             }
         } catch (HTTPException e) {
@@ -78,11 +80,45 @@ public class ServerFacadeTest {
         }
     }
 
+    @Test
+    void testListGamesUnchanged() {
+        try {
+            facade.register("username", "email", "password");
+            facade.createGame("Game1");
+            List<GameSummary> games = facade.listGames();
+            // Answered with 304, so the last response is used again
+            assertEquals(games, facade.listGames());
+
+            facade.createGame("Game2");
+            assertEquals(2, facade.listGames().size());
+        } catch (HTTPException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    @Test
+    void testLobbyPushed() throws Exception {
+        facade.register("username", "email", "password");
+        LobbyView lobby = facade.watchLobby();
+        try {
+            int gameID = facade.createGame("Game1");
+            long deadline = System.currentTimeMillis() + 5000;
+            while (lobby.getGames().stream().noneMatch(game -> game.gameID() == gameID) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(lobby.isCurrent());
+            assertEquals(List.of(gameID), lobby.getGames().stream().map(GameSummary::gameID).toList());
+        } finally {
+            facade.stopWatchingLobby();
+        }
+        assertFalse(lobby.isCurrent());
+    }
+
     @Test
     void testListGamesNoneFound() {
         try {
             facade.register("username", "email", "password");
-            List<GameData> games = facade.listGames();
+            List<GameSummary> games = facade.listGames();
             assertTrue(games.isEmpty());
         } catch (HTTPException e) {
             throw new RuntimeException(e.getMessage());
@@ -12,4 +12,10 @@ public interface AuthDAO {
     public void terminateSession(String authToken) throws DataAccessException;
 
     public void clear() throws DataAccessException;
+
+    /**
+     * Writes any buffered changes and releases resources held by this DAO.
+     */
+    public default void close() throws DataAccessException {
+    }
 }
@@ -1,25 +1,45 @@
 package dataaccess.auth;
 
-import java.util.HashMap;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import dataaccess.DataAccessException;
+import dataaccess.SnapshotFile;
 import model.AuthData;
 
 public class MemoryAuthDAO implements AuthDAO {
 
     Map<String, AuthData> sessions;
 
+    private final SnapshotFile<AuthData> snapshotFile;
+    private final AtomicLong changes = new AtomicLong();
+    private long savedChanges = 0;
+
     public MemoryAuthDAO() {
-        sessions = new HashMap<>();
+        sessions = new ConcurrentHashMap<>();
+        snapshotFile = null;
+    }
+
+    /**
+     * Creates a DAO that loads its sessions from a snapshot file, if it exists,
+     * and saves them there on {@link #snapshot()} and {@link #close()}
+     */
+    public MemoryAuthDAO(Path snapshotPath) throws DataAccessException {
+        sessions = new ConcurrentHashMap<>();
+        snapshotFile = new SnapshotFile<>(snapshotPath, AuthData.class);
+        for (AuthData session : snapshotFile.load()) {
+            sessions.put(session.authToken(), session);
+        }
     }
 
     @Override
     public void createSession(AuthData authData) throws DataAccessException {
-        if (sessions.get(authData.authToken()) != null) {
+        if (sessions.putIfAbsent(authData.authToken(), authData) != null) {
             throw new DataAccessException("Error: Duplicate entry attempt");
         }
-        sessions.put(authData.authToken(), authData);
+        changes.incrementAndGet();
     }
 
     @Override
@@ -30,10 +50,30 @@ public class MemoryAuthDAO implements AuthDAO {
     @Override
     public void terminateSession(String authToken) {
         sessions.remove(authToken);
+        changes.incrementAndGet();
     }
 
     @Override
     public void clear() {
         sessions.clear();
+        changes.incrementAndGet();
+    }
+
+    /**
+     * Saves every session to the snapshot file if anything changed since the
+     * last save. Does nothing if this DAO has no snapshot file.
+     */
+    public synchronized void snapshot() throws DataAccessException {
+        long current = changes.get();
+        if (snapshotFile == null || current == savedChanges) {
+            return;
+        }
+        snapshotFile.save(sessions.values());
+        savedChanges = current;
+    }
+
+    @Override
+    public void close() throws DataAccessException {
+        snapshot();
     }
 }
@@ -1,7 +1,5 @@
 package dataaccess.auth;
 
-import com.google.gson.Gson;
-
 import dataaccess.DataAccessException;
 import dataaccess.MySQLDAO;
 import model.AuthData;
@@ -12,28 +10,33 @@ public class MySQLAuthDAO extends MySQLDAO implements AuthDAO {
             """
                         CREATE TABLE IF NOT EXISTS auth (
                             `authToken` varchar(256) NOT NULL,
-                            `authData` TEXT DEFAULT NULL,
+                            `username` varchar(256) NOT NULL,
                             PRIMARY KEY (`authToken`),
-                            INDEX(authToken)
+                            INDEX(username)
                         )
                     """
     };
 
     public MySQLAuthDAO() throws DataAccessException {
+        migrateLegacyTable("auth", "authData", createStatements,
+                """
+                        INSERT INTO auth (authToken, username)
+                        SELECT authToken, JSON_UNQUOTE(JSON_EXTRACT(authData, '$.username'))
+                        FROM auth_legacy;
+                        """);
         configureDatabase(createStatements);
     }
 
     @Override
     public void createSession(AuthData authData) throws DataAccessException {
-        executeUpdate("INSERT INTO auth (authToken, authData) VALUES (?, ?);", authData.authToken(), authData);
+        executeUpdate("INSERT INTO auth (authToken, username) VALUES (?, ?);", authData.authToken(), authData.username());
     }
 
     @Override
     public AuthData getSession(String authToken) throws DataAccessException {
-        String output = executeQuery(rs -> {
-            return rs.getString("authData");
-        }, "SELECT authData FROM auth WHERE authToken = ?;", authToken);
-        return new Gson().fromJson(output, AuthData.class);
+        return executeQuery(rs -> {
+            return new AuthData(rs.getString("authToken"), rs.getString("username"));
+        }, "SELECT authToken, username FROM auth WHERE authToken = ?;", authToken);
     }
 
     @Override
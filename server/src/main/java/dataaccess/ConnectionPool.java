@@ -0,0 +1,463 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of database connections. Borrowed connections are handed out
+ * as wrappers whose {@code close()} returns the physical connection to the pool,
+ * so callers keep using try-with-resources exactly as before.
+ * <p>
+ * Each pooled connection also keeps a small cache of prepared statements, so
+ * running the same SQL again on that connection skips the prepare round trip.
+ * Closing a cached statement just hands it back to the cache.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    /**
+     * Pool configuration. Every value can be set in db.properties with the
+     * {@code db.pool.} prefix, e.g. {@code db.pool.maxSize=20}.
+     *
+     * @param leakTraces whether to record where each connection was borrowed,
+     *                   so leaks can be reported with a stack trace; this
+     *                   costs a stack walk per borrow, so it is off by default
+     */
+    public record Settings(int minSize, int maxSize, long borrowTimeoutMillis, long validationIntervalMillis, int validationTimeoutSeconds,
+            long idleTimeoutMillis, long leakThresholdMillis, int statementCacheSize, boolean leakTraces) {
+
+        public static Settings defaults() {
+            return new Settings(1, 10, 5000, 500, 2, 300_000, 30_000, 64, false);
+        }
+
+        public static Settings fromProperties(Properties props) {
+            Settings defaults = defaults();
+            return new Settings(
+                    intProperty(props, "db.pool.minSize", defaults.minSize()),
+                    intProperty(props, "db.pool.maxSize", defaults.maxSize()),
+                    longProperty(props, "db.pool.borrowTimeoutMs", defaults.borrowTimeoutMillis()),
+                    longProperty(props, "db.pool.validationIntervalMs", defaults.validationIntervalMillis()),
+                    intProperty(props, "db.pool.validationTimeoutSec", defaults.validationTimeoutSeconds()),
+                    longProperty(props, "db.pool.idleTimeoutMs", defaults.idleTimeoutMillis()),
+                    longProperty(props, "db.pool.leakThresholdMs", defaults.leakThresholdMillis()),
+                    intProperty(props, "db.pool.statementCacheSize", defaults.statementCacheSize()),
+                    booleanProperty(props, "db.pool.leakTraces", defaults.leakTraces()));
+        }
+
+        private static int intProperty(Properties props, String key, int defaultValue) {
+            String value = props.getProperty(key);
+            return value == null ? defaultValue : Integer.parseInt(value.trim());
+        }
+
+        private static long longProperty(Properties props, String key, long defaultValue) {
+            String value = props.getProperty(key);
+            return value == null ? defaultValue : Long.parseLong(value.trim());
+        }
+
+        private static boolean booleanProperty(Properties props, String key, boolean defaultValue) {
+            String value = props.getProperty(key);
+            return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+        }
+    }
+
+    public record Stats(int total, int idle, int active, int waiting, long borrows, long created, long evicted, long validationFailures,
+            long timeouts, long leaks, long totalWaitNanos) {
+    }
+
+    private final ConnectionFactory factory;
+    private final Settings settings;
+
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final AtomicInteger total = new AtomicInteger();
+    private final ScheduledExecutorService maintenance;
+    private volatile boolean closed = false;
+
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    public ConnectionPool(ConnectionFactory factory, Settings settings) {
+        this.factory = factory;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.maxSize(), true);
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, Math.min(settings.idleTimeoutMillis(), settings.leakThresholdMillis()) / 2);
+        maintenance.scheduleWithFixedDelay(this::maintain, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the configured borrow timeout if the
+     * pool is exhausted. Close the returned connection to give it back.
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(settings.borrowTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLException(String.format("Timed out after %dms waiting for a database connection", settings.borrowTimeoutMillis()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        totalWaitNanos.addAndGet(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = takeIdleConnection();
+            if (pooled == null) {
+                pooled = openConnection();
+            }
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowSite = settings.leakTraces() && settings.leakThresholdMillis() > 0 ? new Throwable("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            borrowed.add(pooled);
+            borrows.incrementAndGet();
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public Stats getStats() {
+        int idleCount = idle.size();
+        int totalCount = total.get();
+        return new Stats(totalCount, idleCount, totalCount - idleCount, permits.getQueueLength(), borrows.get(), created.get(), evicted.get(),
+                validationFailures.get(), timeouts.get(), leaks.get(), totalWaitNanos.get());
+    }
+
+    public Settings getSettings() {
+        return settings;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        maintenance.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    private PooledConnection takeIdleConnection() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - pooled.lastUsed < settings.validationIntervalMillis() || isValid(pooled)) {
+                return pooled;
+            }
+            validationFailures.incrementAndGet();
+            discard(pooled);
+        }
+        return null;
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.connection.isValid(settings.validationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        Connection connection = factory.create();
+        total.incrementAndGet();
+        created.incrementAndGet();
+        return new PooledConnection(connection);
+    }
+
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            if (closed || pooled.broken || pooled.connection.isClosed()) {
+                discard(pooled);
+                return;
+            }
+            if (!pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            pooled.lastUsed = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        total.decrementAndGet();
+        try {
+            pooled.connection.close();
+        } catch (SQLException e) {
+            // Already unusable, nothing else to do
+        }
+    }
+
+    private void maintain() {
+        evictIdleConnections();
+        detectLeaks();
+        fillToMinimum();
+    }
+
+    void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+        while (oldestFirst.hasNext() && total.get() > settings.minSize()) {
+            PooledConnection pooled = oldestFirst.next();
+            if (now - pooled.lastUsed >= settings.idleTimeoutMillis() && idle.remove(pooled)) {
+                evicted.incrementAndGet();
+                discard(pooled);
+            }
+        }
+    }
+
+    void detectLeaks() {
+        if (settings.leakThresholdMillis() <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (PooledConnection pooled : borrowed) {
+            if (!pooled.leakReported && now - pooled.borrowedAt > settings.leakThresholdMillis()) {
+                pooled.leakReported = true;
+                leaks.incrementAndGet();
+                System.err.printf("Possible connection leak: connection borrowed at %s and held for %dms%n", Instant.ofEpochMilli(pooled.borrowedAt),
+                        now - pooled.borrowedAt);
+                if (pooled.borrowSite != null) {
+                    pooled.borrowSite.printStackTrace();
+                } else {
+                    System.err.println("Set db.pool.leakTraces=true to record where connections are borrowed");
+                }
+            }
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed && total.get() < settings.minSize() && permits.tryAcquire()) {
+            try {
+                PooledConnection pooled = openConnection();
+                pooled.lastUsed = System.currentTimeMillis();
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private record StatementKey(String sql, int autoGeneratedKeys) {
+    }
+
+    private class PooledConnection {
+        final Connection connection;
+        volatile long lastUsed = System.currentTimeMillis();
+        volatile long borrowedAt;
+        volatile Throwable borrowSite;
+        volatile boolean leakReported;
+        volatile boolean broken;
+
+        // Only touched by the borrower currently holding this connection
+        final Map<StatementKey, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<StatementKey, PreparedStatement> eldest) {
+                if (size() <= settings.statementCacheSize()) {
+                    return false;
+                }
+                try {
+                    eldest.getValue().close();
+                } catch (SQLException e) {
+                    // Evicted either way
+                }
+                return true;
+            }
+        };
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+                    new Handle(this));
+        }
+
+        PreparedStatement prepare(Connection handle, String sql, int autoGeneratedKeys) throws SQLException {
+            if (settings.statementCacheSize() <= 0) {
+                return connection.prepareStatement(sql, autoGeneratedKeys);
+            }
+
+            StatementKey key = new StatementKey(sql, autoGeneratedKeys);
+            PreparedStatement statement = statements.get(key);
+            if (statement == null || statement.isClosed()) {
+                statement = connection.prepareStatement(sql, autoGeneratedKeys);
+                statements.put(key, statement);
+            } else {
+                statement.clearParameters();
+            }
+
+            PreparedStatement cached = statement;
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, new CachedStatement(cached, handle, this));
+        }
+
+        /**
+         * Marks the connection broken if a call on it or one of its
+         * statements failed at the connection level (SQLState class 08), so it
+         * isn't handed out again
+         */
+        void checkFailure(Throwable failure) {
+            if (failure instanceof SQLException sqlException && sqlException.getSQLState() != null
+                    && sqlException.getSQLState().startsWith("08")) {
+                broken = true;
+            }
+        }
+    }
+
+    /*
+     * A cached statement as seen by callers. Closing it leaves the underlying
+     * statement prepared for the next borrower of this connection.
+     */
+    private static class CachedStatement implements InvocationHandler {
+        private final PreparedStatement statement;
+        private final Connection handle;
+        private final PooledConnection pooled;
+        private boolean closed = false;
+
+        CachedStatement(PreparedStatement statement, Connection handle, PooledConnection pooled) {
+            this.statement = statement;
+            this.handle = handle;
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    closed = true;
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed || statement.isClosed();
+                }
+                case "getConnection" -> {
+                    return handle;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                }
+            }
+
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                pooled.checkFailure(e.getCause());
+                throw e.getCause();
+            }
+        }
+    }
+
+    /*
+     * The connection callers actually see. Closing it returns the physical
+     * connection to the pool; anything else is forwarded until then.
+     */
+    private class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean released = false;
+
+        Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!released) {
+                        released = true;
+                        release(pooled);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return released || pooled.connection.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled" + pooled.connection;
+                }
+                default -> {
+                }
+            }
+
+            if (released) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if ("prepareStatement".equals(method.getName()) && args.length <= 2
+                    && (args.length == 1 || method.getParameterTypes()[1] == int.class)) {
+                int autoGeneratedKeys = args.length == 1 ? Statement.NO_GENERATED_KEYS : (int) args[1];
+                return pooled.prepare((Connection) proxy, (String) args[0], autoGeneratedKeys);
+            }
+            try {
+                return method.invoke(pooled.connection, args);
+            } catch (InvocationTargetException e) {
+                pooled.checkFailure(e.getCause());
+                throw e.getCause();
+            }
+        }
+    }
+}
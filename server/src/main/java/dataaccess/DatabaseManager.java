@@ -10,6 +10,8 @@ public class DatabaseManager {
     private static String dbUsername;
     private static String dbPassword;
     private static String connectionUrl;
+    private static ConnectionPool.Settings poolSettings;
+    private static volatile ConnectionPool pool;
 
     /*
      * Load the database information for the db.properties file.
@@ -32,10 +34,12 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
+     * Borrows a connection to the database from the connection pool. The catalog
+     * is set once when the pool opens the physical connection, based upon the
      * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * be short-lived, and you must close the connection when you are done with it
+     * so that it is returned to the pool. The easiest way to do that is with a
+     * try-with-resource block.
      * <br/>
      * <code>
      * try (var conn = DatabaseManager.getConnection()) {
@@ -46,14 +50,49 @@ public class DatabaseManager {
     public static Connection getConnection() throws DatabaseConnectionFailure {
         try {
             //do not wrap the following line with a try-with-resources
-            var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
-            conn.setCatalog(databaseName);
-            return conn;
+            return getPool().borrow();
         } catch (SQLException ex) {
             throw new DatabaseConnectionFailure(ex);
         }
     }
 
+    public static ConnectionPool.Stats getPoolStats() {
+        ConnectionPool current = pool;
+        return current == null ? null : current.getStats();
+    }
+
+    /**
+     * Closes every idle pooled connection. A new pool is created the next time
+     * a connection is requested.
+     */
+    public static synchronized void closePool() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    private static ConnectionPool getPool() {
+        // Every query passes through here, so skip the lock once the pool exists
+        ConnectionPool current = pool;
+        return current != null ? current : createPool();
+    }
+
+    private static synchronized ConnectionPool createPool() {
+        if (pool == null) {
+            String url = connectionUrl;
+            String username = dbUsername;
+            String password = dbPassword;
+            String catalog = databaseName;
+            pool = new ConnectionPool(() -> {
+                var conn = DriverManager.getConnection(url, username, password);
+                conn.setCatalog(catalog);
+                return conn;
+            }, poolSettings);
+        }
+        return pool;
+    }
+
     private static void loadPropertiesFromResources() {
         try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("db.properties")) {
             if (propStream == null) {
@@ -68,12 +107,16 @@ public class DatabaseManager {
     }
 
     private static void loadProperties(Properties props) {
+        closePool();
+
         databaseName = props.getProperty("db.name");
         dbUsername = props.getProperty("db.user");
         dbPassword = props.getProperty("db.password");
 
         var host = props.getProperty("db.host");
         var port = Integer.parseInt(props.getProperty("db.port"));
-        connectionUrl = String.format("jdbc:mysql://%s:%d", host, port);
+        // Server-side prepares pay off because pooled connections keep their statements prepared
+        connectionUrl = String.format("jdbc:mysql://%s:%d?useServerPrepStmts=true", host, port);
+        poolSettings = ConnectionPool.Settings.fromProperties(props);
     }
 }
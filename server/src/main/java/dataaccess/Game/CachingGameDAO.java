@@ -0,0 +1,567 @@
+package dataaccess.game;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+import chess.ChessMove;
+import dataaccess.DataAccessException;
+import model.GameData;
+import model.GameQuery;
+import model.GameSummary;
+
+/**
+ * Keeps recently used games in memory in front of another {@link GameDAO}.
+ * Reads of cached games never reach the underlying DAO, and changes to cached
+ * games are coalesced and written back on a background thread, so at most the
+ * last {@code flushIntervalMillis} of changes are lost if the server dies
+ * without calling {@link #close()}. New games and games that are not cached
+ * are written through immediately.
+ * <p>
+ * Cached games are shared between callers, so a {@link GameData} or its
+ * {@code ChessGame} must be copied rather than changed in place before it is
+ * passed back to {@link #setGame(GameData)}.
+ * <p>
+ * A cached game's version is only ever changed here, so compare-and-set
+ * updates are checked against the cache alone; a game that is not cached is
+ * loaded first.
+ * <p>
+ * Writes of a game to the underlying DAO, and loads of it, hold that game's
+ * write lock, so they happen one at a time and each write takes the latest
+ * changes. Evicted games stay readable until their changes are written, so a
+ * load never sees a row that is about to be replaced. If the underlying DAO
+ * refuses a write because the game changed outside the cache, the cache takes
+ * the stored game, see {@link #conflicts()}.
+ * <p>
+ * While the only changes to a game since it was stored are moves, they are
+ * written back with {@link GameDAO#addMovesIfNewer}, so a DAO that keeps a
+ * move log still gets every move.
+ */
+public class CachingGameDAO implements GameDAO {
+
+    public static final int DEFAULT_MAX_SIZE = 1024;
+    public static final long DEFAULT_TTL_MILLIS = 30 * 60 * 1000;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+    // Games share write locks, since a lock per game would have to be cleaned up
+    private static final int WRITE_LOCKS = 64;
+
+    private static final class Entry {
+        GameData game;
+        long lastAccess;
+        boolean dirty = false;
+        // Made since the stored copy, or null if it changed in other ways
+        List<ChessMove> moves = new ArrayList<>();
+
+        Entry(GameData game, long now) {
+            this.game = game;
+            this.lastAccess = now;
+        }
+    }
+
+    private final GameDAO delegate;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final ScheduledExecutorService flusher;
+
+    // Access ordered, so iteration starts at the least recently used game
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Evicted with changes that haven't been written yet
+    private final Map<Integer, Entry> evicting = new HashMap<>();
+
+    // Not monitors, so virtual threads waiting on the underlying DAO don't pin their carriers
+    private final ReentrantLock[] writeLocks = new ReentrantLock[WRITE_LOCKS];
+
+    private long hits = 0;
+    private long misses = 0;
+    private long conflicts = 0;
+
+    public CachingGameDAO(GameDAO delegate) {
+        this(delegate, DEFAULT_MAX_SIZE, DEFAULT_TTL_MILLIS, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    public CachingGameDAO(GameDAO delegate, int maxSize, long ttlMillis, long flushIntervalMillis) {
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        for (int i = 0; i < writeLocks.length; i++) {
+            writeLocks[i] = new ReentrantLock();
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-cache-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::maintain, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public List<GameData> getAllGames() throws DataAccessException {
+        List<GameData> games = delegate.getAllGames();
+        synchronized (this) {
+            List<GameData> output = new ArrayList<>(games.size());
+            for (GameData game : games) {
+                // Cached games may have changes that have not been flushed yet
+                Entry entry = find(game.gameID());
+                if (entry == null || !entry.dirty) {
+                    output.add(game);
+                } else {
+                    GameData cached = entry.game;
+                    output.add(new GameData(cached.gameID(), cached.whiteUsername(), cached.blackUsername(), cached.gameName(),
+                            game.game() == null ? null : cached.game(), cached.version()));
+                }
+            }
+            return output;
+        }
+    }
+
+    /**
+     * Writes pending changes first, since they may move games in or out of
+     * the query, then lets the underlying DAO answer it
+     */
+    @Override
+    public List<GameSummary> listGames(GameQuery query) throws DataAccessException {
+        flush();
+        return delegate.listGames(query);
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        GameData cached = lookup(gameID);
+        if (cached != null) {
+            return cached;
+        }
+
+        GameData loaded;
+        List<Entry> evicted;
+        ReentrantLock lock = writeLock(gameID);
+        lock.lock();
+        try {
+            synchronized (this) {
+                // Another thread may have loaded or changed it in the meantime
+                Entry entry = find(gameID);
+                if (entry != null) {
+                    return entry.game;
+                }
+            }
+            // Nothing else can load or write this game until it is cached
+            loaded = delegate.getGame(gameID);
+            if (loaded == null) {
+                return null;
+            }
+            synchronized (this) {
+                evicted = insert(gameID, new Entry(loaded, System.currentTimeMillis()));
+            }
+        } finally {
+            lock.unlock();
+        }
+        writeEvicted(evicted);
+        return loaded;
+    }
+
+    @Override
+    public GameData getGameInfo(int gameID) throws DataAccessException {
+        GameData cached = lookup(gameID);
+        return cached != null ? cached : delegate.getGameInfo(gameID);
+    }
+
+    @Override
+    public void setGame(GameData newGame) throws DataAccessException {
+        if (!update(newGame, null)) {
+            writeThrough(newGame, () -> delegate.setGame(newGame));
+        }
+    }
+
+    /**
+     * Writes the games straight to the underlying DAO without caching them, so
+     * a bulk import doesn't evict the games being played. The write locks of
+     * every game in the batch are held, in order, while it is written.
+     */
+    @Override
+    public List<GameData> importGames(List<GameData> games) throws DataAccessException {
+        boolean[] locked = new boolean[WRITE_LOCKS];
+        for (GameData game : games) {
+            locked[Math.floorMod(game.gameID(), WRITE_LOCKS)] = true;
+        }
+        for (int i = 0; i < WRITE_LOCKS; i++) {
+            if (locked[i]) {
+                writeLocks[i].lock();
+            }
+        }
+        try {
+            List<GameData> taken = new ArrayList<>();
+            List<GameData> free = new ArrayList<>(games.size());
+            synchronized (this) {
+                for (GameData game : games) {
+                    (find(game.gameID()) != null ? taken : free).add(game);
+                }
+            }
+            taken.addAll(delegate.importGames(free));
+            return taken;
+        } finally {
+            for (int i = WRITE_LOCKS - 1; i >= 0; i--) {
+                if (locked[i]) {
+                    writeLocks[i].unlock();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void setGameInfo(GameData game) throws DataAccessException {
+        if (updateInfo(game)) {
+            return;
+        }
+        ReentrantLock lock = writeLock(game.gameID());
+        lock.lock();
+        try {
+            // Loaded while waiting for the lock
+            if (!updateInfo(game)) {
+                delegate.setGameInfo(game);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean compareAndSetGame(GameData expected, GameData updated) throws DataAccessException {
+        return compareAndSet(expected, cached -> updated, null);
+    }
+
+    @Override
+    public boolean compareAndSetGameInfo(GameData expected, GameData updated) throws DataAccessException {
+        return compareAndSet(expected, cached -> new GameData(updated.gameID(), updated.whiteUsername(), updated.blackUsername(),
+                updated.gameName(), cached.game()), null);
+    }
+
+    @Override
+    public boolean compareAndSetMove(GameData expected, GameData updated, ChessMove move) throws DataAccessException {
+        return compareAndSet(expected, cached -> updated, move);
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        delegate.clear();
+        synchronized (this) {
+            entries.clear();
+            evicting.clear();
+        }
+    }
+
+    /**
+     * Writes every pending change to the underlying DAO
+     */
+    public void flush() throws DataAccessException {
+        List<Entry> pending = new ArrayList<>();
+        synchronized (this) {
+            for (Entry entry : entries.values()) {
+                if (entry.dirty) {
+                    pending.add(entry);
+                }
+            }
+            pending.addAll(evicting.values());
+        }
+        DataAccessException failure = null;
+        for (Entry entry : pending) {
+            try {
+                write(entry);
+            } catch (DataAccessException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Stops the background writer and flushes any pending changes
+     */
+    @Override
+    public void close() throws DataAccessException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        delegate.close();
+    }
+
+    /**
+     * @return how many games are currently cached
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return how many reads were answered from the cache
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * @return how many reads had to go to the underlying DAO
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * @return how many writes back were refused because the game had been
+     *         changed outside this cache
+     */
+    public synchronized long conflicts() {
+        return conflicts;
+    }
+
+    // The cached entry for a game, including one evicted but not yet written
+    private Entry find(int gameID) {
+        Entry entry = entries.get(gameID);
+        return entry != null ? entry : evicting.get(gameID);
+    }
+
+    private synchronized GameData lookup(int gameID) {
+        Entry entry = find(gameID);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        entry.lastAccess = System.currentTimeMillis();
+        hits++;
+        return entry.game;
+    }
+
+    /**
+     * @param move the move that was made to reach the game, if that was the
+     *             only change
+     */
+    private synchronized boolean update(GameData game, ChessMove move) {
+        Entry entry = find(game.gameID());
+        if (entry == null) {
+            return false;
+        }
+        if (entry.moves != null) {
+            if (move != null && game.version() == entry.game.version() + 1) {
+                entry.moves.add(move);
+            } else {
+                entry.moves = null;
+            }
+        }
+        entry.game = game;
+        entry.lastAccess = System.currentTimeMillis();
+        entry.dirty = true;
+        return true;
+    }
+
+    private synchronized boolean updateInfo(GameData game) {
+        Entry entry = find(game.gameID());
+        if (entry == null) {
+            return false;
+        }
+        GameData cached = entry.game;
+        // Written back in full so the stored version matches the cached one
+        return update(new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), cached.game(),
+                cached.version() + 1), null);
+    }
+
+    private boolean compareAndSet(GameData expected, UnaryOperator<GameData> change, ChessMove move) throws DataAccessException {
+        while (true) {
+            synchronized (this) {
+                Entry entry = find(expected.gameID());
+                if (entry != null) {
+                    if (entry.game.version() != expected.version()) {
+                        return false;
+                    }
+                    update(change.apply(entry.game).withVersion(expected.version() + 1), move);
+                    return true;
+                }
+            }
+            // Load it so the cache holds the latest version, then check again
+            if (getGame(expected.gameID()) == null) {
+                return false;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface DelegateWrite {
+        void run() throws DataAccessException;
+    }
+
+    /**
+     * Writes a game that isn't cached straight to the underlying DAO, then
+     * caches it
+     */
+    private void writeThrough(GameData game, DelegateWrite write) throws DataAccessException {
+        List<Entry> evicted;
+        ReentrantLock lock = writeLock(game.gameID());
+        lock.lock();
+        try {
+            // Loaded while waiting for the lock, so change the cached copy instead
+            if (update(game, null)) {
+                return;
+            }
+            write.run();
+            synchronized (this) {
+                evicted = insert(game.gameID(), new Entry(game, System.currentTimeMillis()));
+            }
+        } finally {
+            lock.unlock();
+        }
+        writeEvicted(evicted);
+    }
+
+    private void writeEvicted(List<Entry> evicted) throws DataAccessException {
+        for (Entry entry : evicted) {
+            write(entry);
+        }
+    }
+
+    /**
+     * Adds an entry, evicting the least recently used games past the size
+     * limit. Evicted games with unflushed changes are returned so the caller
+     * can write them after releasing the lock; until then they are kept in
+     * {@link #evicting}.
+     */
+    private List<Entry> insert(int gameID, Entry entry) {
+        entries.put(gameID, entry);
+        List<Entry> evicted = new ArrayList<>();
+        Iterator<Map.Entry<Integer, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            Map.Entry<Integer, Entry> eldest = iterator.next();
+            if (eldest.getValue() == entry) {
+                continue;
+            }
+            if (eldest.getValue().dirty) {
+                evicting.put(eldest.getKey(), eldest.getValue());
+                evicted.add(eldest.getValue());
+            }
+            iterator.remove();
+        }
+        return evicted;
+    }
+
+    /**
+     * Writes an entry's latest changes, if it has any. Once an evicted entry
+     * has been written it is dropped.
+     */
+    private void write(Entry entry) throws DataAccessException {
+        int gameID;
+        synchronized (this) {
+            gameID = entry.game.gameID();
+        }
+        ReentrantLock lock = writeLock(gameID);
+        lock.lock();
+        try {
+            GameData game;
+            List<ChessMove> moves;
+            synchronized (this) {
+                if (!entry.dirty) {
+                    // Written by another thread while this one waited
+                    evicting.remove(gameID, entry);
+                    return;
+                }
+                game = entry.game;
+                moves = entry.moves;
+                entry.dirty = false;
+                entry.moves = new ArrayList<>();
+            }
+
+            boolean stored;
+            try {
+                stored = moves == null || moves.isEmpty() ? delegate.setGameIfNewer(game) : delegate.addMovesIfNewer(game, moves);
+            } catch (DataAccessException e) {
+                synchronized (this) {
+                    entry.dirty = true;
+                    if (moves != null && entry.moves != null) {
+                        moves.addAll(entry.moves);
+                        entry.moves = moves;
+                    } else {
+                        entry.moves = null;
+                    }
+                    if (entries.get(gameID) != entry) {
+                        // Dropped from the cache while being written, so keep it until it can be
+                        evicting.put(gameID, entry);
+                    }
+                }
+                throw e;
+            }
+
+            if (!stored) {
+                resolveConflict(gameID, entry, game);
+                return;
+            }
+            synchronized (this) {
+                if (!entry.dirty) {
+                    evicting.remove(gameID, entry);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Handles a write refused because the underlying DAO has a newer version
+     * of the game, written outside this cache. Changes made since the refused
+     * copy are kept and written next. Otherwise the stored game replaces the
+     * cached one, so compare-and-sets against the cached version fail and
+     * their callers read the game again. Called holding the game's write lock.
+     */
+    private void resolveConflict(int gameID, Entry entry, GameData refused) throws DataAccessException {
+        System.err.printf("Game %d was changed outside the cache; cached version %d was not written%n", gameID, refused.version());
+        synchronized (this) {
+            conflicts++;
+            if (entry.dirty) {
+                // Written in full next, since the moves after the refused copy don't start from what is stored
+                entry.moves = null;
+                return;
+            }
+        }
+        GameData stored = delegate.getGame(gameID);
+        synchronized (this) {
+            if (entry.dirty) {
+                // Changed while the stored game was read
+                entry.moves = null;
+            } else if (stored == null || entries.get(gameID) != entry) {
+                entries.remove(gameID, entry);
+                evicting.remove(gameID, entry);
+            } else {
+                entry.game = stored;
+                entry.moves = new ArrayList<>();
+            }
+        }
+    }
+
+    private ReentrantLock writeLock(int gameID) {
+        return writeLocks[Math.floorMod(gameID, WRITE_LOCKS)];
+    }
+
+    private void maintain() {
+        try {
+            flush();
+        } catch (DataAccessException e) {
+            System.err.println("Unable to flush cached games: " + e.getMessage());
+        }
+
+        long cutoff = System.currentTimeMillis() - ttlMillis;
+        synchronized (this) {
+            entries.values().removeIf(entry -> !entry.dirty && entry.lastAccess < cutoff);
+        }
+    }
+}
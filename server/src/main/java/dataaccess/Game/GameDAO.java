@@ -1,17 +1,153 @@
 package dataaccess.game;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Stream;
 
+import chess.ChessMove;
 import dataaccess.DataAccessException;
 import model.GameData;
+import model.GameQuery;
+import model.GameSummary;
 
 public interface GameDAO {
 
     public List<GameData> getAllGames() throws DataAccessException;
 
+    /**
+     * Lists the games a query asks for, in order of ID, without their boards
+     */
+    public default List<GameSummary> listGames(GameQuery query) throws DataAccessException {
+        Stream<GameSummary> games = getAllGames().stream()
+                .filter(game -> game.gameID() > query.after())
+                .map(GameSummary::of)
+                .filter(query::matches)
+                .sorted(Comparator.comparingInt(GameSummary::gameID));
+        return (query.limit() > 0 ? games.limit(query.limit()) : games).toList();
+    }
+
     public void setGame(GameData newGame) throws DataAccessException;
 
     public GameData getGame(int gameID) throws DataAccessException;
 
+    /**
+     * Stores new games that aren't about to be played, e.g. ones imported from
+     * an archive, so implementations that cache games need not keep them. A
+     * game is only stored if no game has its ID yet, and implementations
+     * should store the rest in as few round trips as they can.
+     *
+     * @return the games that were not stored because their ID was taken
+     */
+    public default List<GameData> importGames(List<GameData> games) throws DataAccessException {
+        synchronized (this) {
+            List<GameData> taken = new ArrayList<>();
+            for (GameData game : games) {
+                if (getGameInfo(game.gameID()) != null) {
+                    taken.add(game);
+                } else {
+                    setGame(game);
+                }
+            }
+            return taken;
+        }
+    }
+
     public void clear() throws DataAccessException;
+
+    /**
+     * Gets a game's ID, name and players. Implementations may leave
+     * {@link GameData#game()} null so the board does not have to be loaded.
+     */
+    public default GameData getGameInfo(int gameID) throws DataAccessException {
+        return getGame(gameID);
+    }
+
+    /**
+     * Updates a game's name and players without touching its board.
+     */
+    public default void setGameInfo(GameData game) throws DataAccessException {
+        GameData current = getGame(game.gameID());
+        if (current != null) {
+            setGame(new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), current.game(), current.version() + 1));
+        }
+    }
+
+    /**
+     * Replaces a game only if nobody has changed it since {@code expected} was
+     * read, i.e. its version is still {@code expected.version()}. The stored
+     * game gets the next version.
+     *
+     * @return whether the game was replaced; if not, re-read it and try again
+     */
+    public default boolean compareAndSetGame(GameData expected, GameData updated) throws DataAccessException {
+        synchronized (this) {
+            GameData current = getGame(expected.gameID());
+            if (current == null || current.version() != expected.version()) {
+                return false;
+            }
+            setGame(updated.withVersion(expected.version() + 1));
+            return true;
+        }
+    }
+
+    /**
+     * Like {@link #compareAndSetGame(GameData, GameData)}, but only changes the
+     * name and players
+     */
+    public default boolean compareAndSetGameInfo(GameData expected, GameData updated) throws DataAccessException {
+        synchronized (this) {
+            GameData current = getGame(expected.gameID());
+            if (current == null || current.version() != expected.version()) {
+                return false;
+            }
+            setGame(new GameData(updated.gameID(), updated.whiteUsername(), updated.blackUsername(), updated.gameName(), current.game(),
+                    expected.version() + 1));
+            return true;
+        }
+    }
+
+    /**
+     * Stores a game unless a newer version of it is already stored, so writes
+     * of the same game that arrive out of order never replace a newer copy
+     * with an older one
+     *
+     * @return false if a newer version was stored
+     */
+    public default boolean setGameIfNewer(GameData game) throws DataAccessException {
+        synchronized (this) {
+            GameData current = getGameInfo(game.gameID());
+            if (current != null && current.version() > game.version()) {
+                return false;
+            }
+            setGame(game);
+            return true;
+        }
+    }
+
+    /**
+     * Like {@link #setGameIfNewer(GameData)} for a game reached by making
+     * {@code moves}, in order, on the copy stored at version
+     * {@code game.version() - moves.size()}, so implementations that keep a
+     * move log can record just the moves
+     *
+     * @return false if a newer version was stored
+     */
+    public default boolean addMovesIfNewer(GameData game, List<ChessMove> moves) throws DataAccessException {
+        return setGameIfNewer(game);
+    }
+
+    /**
+     * Like {@link #compareAndSetGame(GameData, GameData)} for the result of a
+     * single move, so implementations that keep a move log can record it
+     */
+    public default boolean compareAndSetMove(GameData expected, GameData updated, ChessMove move) throws DataAccessException {
+        return compareAndSetGame(expected, updated);
+    }
+
+    /**
+     * Writes any buffered changes and releases resources held by this DAO.
+     */
+    public default void close() throws DataAccessException {
+    }
 }
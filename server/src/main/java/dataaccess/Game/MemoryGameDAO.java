@@ -1,18 +1,39 @@
 package dataaccess.game;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import dataaccess.DataAccessException;
+import dataaccess.SnapshotFile;
 import model.GameData;
 
 public class MemoryGameDAO implements GameDAO {
 
     Map<Integer, GameData> games;
 
+    private final SnapshotFile<GameData> snapshotFile;
+    private final AtomicLong changes = new AtomicLong();
+    private long savedChanges = 0;
+
     public MemoryGameDAO() {
-        games = new HashMap<>();
+        games = new ConcurrentHashMap<>();
+        snapshotFile = null;
+    }
+
+    /**
+     * Creates a DAO that loads its games from a snapshot file, if it exists,
+     * and saves them there on {@link #snapshot()} and {@link #close()}
+     */
+    public MemoryGameDAO(Path snapshotPath) throws DataAccessException {
+        games = new ConcurrentHashMap<>();
+        snapshotFile = new SnapshotFile<>(snapshotPath, GameData.class);
+        for (GameData game : snapshotFile.load()) {
+            games.put(game.gameID(), game);
+        }
     }
 
     @Override
@@ -23,6 +44,7 @@ public class MemoryGameDAO implements GameDAO {
     @Override
     public void setGame(GameData newGame) {
         games.put(newGame.gameID(), newGame);
+        changes.incrementAndGet();
     }
 
     @Override
@@ -30,9 +52,94 @@ public class MemoryGameDAO implements GameDAO {
         return games.get(gameID);
     }
 
+    @Override
+    public List<GameData> importGames(List<GameData> newGames) {
+        List<GameData> taken = new ArrayList<>();
+        for (GameData game : newGames) {
+            if (games.putIfAbsent(game.gameID(), game) != null) {
+                taken.add(game);
+            }
+        }
+        changes.incrementAndGet();
+        return taken;
+    }
+
+    @Override
+    public void setGameInfo(GameData game) {
+        GameData updated = games.computeIfPresent(game.gameID(), (gameID, current) -> new GameData(gameID, game.whiteUsername(),
+                game.blackUsername(), game.gameName(), current.game(), current.version() + 1));
+        if (updated != null) {
+            changes.incrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean compareAndSetGame(GameData expected, GameData updated) {
+        return replaceIfVersion(expected, updated.withVersion(expected.version() + 1));
+    }
+
+    @Override
+    public boolean compareAndSetGameInfo(GameData expected, GameData updated) {
+        GameData current = games.get(expected.gameID());
+        if (current == null) {
+            return false;
+        }
+        return replaceIfVersion(expected, new GameData(updated.gameID(), updated.whiteUsername(), updated.blackUsername(), updated.gameName(),
+                current.game(), expected.version() + 1));
+    }
+
+    @Override
+    public boolean setGameIfNewer(GameData game) {
+        boolean[] stored = { false };
+        games.compute(game.gameID(), (gameID, current) -> {
+            if (current != null && current.version() > game.version()) {
+                return current;
+            }
+            stored[0] = true;
+            return game;
+        });
+        if (stored[0]) {
+            changes.incrementAndGet();
+        }
+        return stored[0];
+    }
+
+    private boolean replaceIfVersion(GameData expected, GameData replacement) {
+        boolean[] replaced = { false };
+        games.computeIfPresent(expected.gameID(), (gameID, current) -> {
+            if (current.version() != expected.version()) {
+                return current;
+            }
+            replaced[0] = true;
+            return replacement;
+        });
+        if (replaced[0]) {
+            changes.incrementAndGet();
+        }
+        return replaced[0];
+    }
+
     @Override
     public void clear() {
         games.clear();
+        changes.incrementAndGet();
+    }
+
+    /**
+     * Saves every game to the snapshot file if anything changed since the last
+     * save. Does nothing if this DAO has no snapshot file.
+     */
+    public synchronized void snapshot() throws DataAccessException {
+        long current = changes.get();
+        if (snapshotFile == null || current == savedChanges) {
+            return;
+        }
+        snapshotFile.save(games.values());
+        savedChanges = current;
     }
 
+    @Override
+    public void close() throws DataAccessException {
+        snapshot();
+    }
 }
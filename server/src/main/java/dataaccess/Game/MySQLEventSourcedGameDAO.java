@@ -0,0 +1,193 @@
+package dataaccess.game;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import chess.ChessGame;
+import chess.ChessGameCodec;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import dataaccess.DataAccessException;
+import model.GameData;
+
+/**
+ * Stores games as a snapshot plus a log of the moves made since that snapshot.
+ * A move only appends a couple of bytes to {@code game_moves}; the board in the
+ * {@code games} table is rewritten every {@code snapshotInterval} plies (or
+ * when the game ends), and reads replay any moves logged after it. Moves up to
+ * a snapshot are deleted when it is written, so the log stays short. The
+ * {@code ply}, {@code turn} and {@code board} columns of {@code games} therefore
+ * describe the latest snapshot rather than the current position.
+ */
+public class MySQLEventSourcedGameDAO extends MySQLGameDAO {
+
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 20;
+
+    private final String[] createStatements = {
+            """
+                        CREATE TABLE IF NOT EXISTS game_moves (
+                            `gameID` INT NOT NULL,
+                            `ply` INT NOT NULL,
+                            `move` SMALLINT NOT NULL,
+                            PRIMARY KEY (`gameID`, `ply`)
+                        )
+                    """
+    };
+
+    private final int snapshotInterval;
+
+    public MySQLEventSourcedGameDAO() throws DataAccessException {
+        this(DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    public MySQLEventSourcedGameDAO(int snapshotInterval) throws DataAccessException {
+        super();
+        this.snapshotInterval = snapshotInterval;
+        configureDatabase(createStatements);
+        migrateSnapshotTable();
+    }
+
+    /**
+     * Moves the snapshot plies that earlier versions kept in a separate
+     * {@code game_snapshots} table into {@code games.ply}, drops the moves
+     * those snapshots already include, then drops the table
+     */
+    private void migrateSnapshotTable() throws DataAccessException {
+        Integer tables = executeQuery(rs -> rs.getInt(1),
+                "SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = 'game_snapshots';");
+        if (tables == null || tables == 0) {
+            return;
+        }
+
+        executeUpdate("UPDATE games g JOIN game_snapshots s ON s.gameID = g.gameID SET g.ply = s.ply;");
+        executeUpdate("DELETE m FROM game_moves m JOIN games g ON m.gameID = g.gameID AND m.ply <= g.ply;");
+        executeUpdate("DROP TABLE game_snapshots;");
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        // One statement, so the moves are filtered against the ply of the
+        // snapshot that was read rather than one written in the meantime
+        List<ChessMove> pendingMoves = new ArrayList<>();
+        GameData snapshot = executeQuery(rs -> {
+            GameData stored = readGameInfo(rs, decodeBoard(rs.getBytes("board")));
+            do {
+                short move = rs.getShort("move");
+                if (!rs.wasNull()) {
+                    pendingMoves.add(ChessGameCodec.decodeMove(move));
+                }
+            } while (rs.next());
+            return stored;
+        }, """
+                SELECT g.gameID, g.gameName, g.whiteUsername, g.blackUsername, g.board, g.version, m.move
+                FROM games g LEFT JOIN game_moves m ON m.gameID = g.gameID AND m.ply > g.ply
+                WHERE g.gameID = ? ORDER BY m.ply;
+                """, gameID);
+        if (snapshot == null) {
+            return null;
+        }
+
+        replay(snapshot, pendingMoves);
+        return snapshot;
+    }
+
+    /**
+     * Replaces the snapshot and drops the game's move log, which only
+     * describes how the replaced position was reached
+     */
+    @Override
+    public void setGame(GameData newGame) throws DataAccessException {
+        executeTransaction(transaction -> {
+            transaction.executeUpdate(SET_GAME, columns(newGame));
+            transaction.executeUpdate("DELETE FROM game_moves WHERE gameID = ?;", newGame.gameID());
+            return null;
+        });
+    }
+
+    @Override
+    public boolean setGameIfNewer(GameData newGame) throws DataAccessException {
+        return executeTransaction(transaction -> {
+            if (!setGameIfNewer(transaction, newGame)) {
+                return false;
+            }
+            transaction.executeUpdate("DELETE FROM game_moves WHERE gameID = ?;", newGame.gameID());
+            return true;
+        });
+    }
+
+    @Override
+    public boolean compareAndSetMove(GameData expected, GameData updated, ChessMove move) throws DataAccessException {
+        ChessGame game = updated.game();
+        int ply = game.getPlyCount();
+        boolean snapshot = ply % snapshotInterval == 0 || game.getTeamTurn() == ChessGame.TeamColor.GAMEOVER;
+
+        return executeTransaction(transaction -> {
+            if (transaction.executeUpdate("UPDATE games SET version = version + 1 WHERE gameID = ? AND version = ?;",
+                    expected.gameID(), expected.version()) != 1) {
+                return false;
+            }
+            transaction.executeUpdate("INSERT INTO game_moves (gameID, ply, move) VALUES (?, ?, ?);", updated.gameID(), ply,
+                    (int) ChessGameCodec.encodeMove(move));
+            if (snapshot) {
+                writeSnapshot(transaction, updated);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Appends the moves to the log if the stored game is the one they were
+     * made on, and otherwise stores the whole game unless it is older
+     */
+    @Override
+    public boolean addMovesIfNewer(GameData updated, List<ChessMove> moves) throws DataAccessException {
+        ChessGame game = updated.game();
+        int ply = game.getPlyCount();
+        int firstPly = ply - moves.size() + 1;
+        boolean snapshot = ply / snapshotInterval > (firstPly - 1) / snapshotInterval || game.getTeamTurn() == ChessGame.TeamColor.GAMEOVER;
+
+        boolean appended = executeTransaction(transaction -> {
+            if (transaction.executeUpdate("UPDATE games SET version = ? WHERE gameID = ? AND version = ?;",
+                    updated.version(), updated.gameID(), updated.version() - moves.size()) != 1) {
+                return false;
+            }
+            for (int i = 0; i < moves.size(); i++) {
+                transaction.executeUpdate("INSERT INTO game_moves (gameID, ply, move) VALUES (?, ?, ?);", updated.gameID(), firstPly + i,
+                        (int) ChessGameCodec.encodeMove(moves.get(i)));
+            }
+            if (snapshot) {
+                writeSnapshot(transaction, updated);
+            }
+            return true;
+        });
+        return appended || setGameIfNewer(updated);
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        super.clear();
+        executeUpdate("TRUNCATE TABLE game_moves;");
+    }
+
+    private static void writeSnapshot(Transaction transaction, GameData updated) throws SQLException {
+        ChessGame game = updated.game();
+        transaction.executeUpdate("UPDATE games SET status = ?, turn = ?, ply = ?, board = ? WHERE gameID = ?;",
+                status(updated), game.getTeamTurn().name(), game.getPlyCount(), encodeBoard(game), updated.gameID());
+        // Moves up to the snapshot are never replayed again
+        transaction.executeUpdate("DELETE FROM game_moves WHERE gameID = ? AND ply <= ?;", updated.gameID(), game.getPlyCount());
+    }
+
+    private void replay(GameData snapshot, List<ChessMove> moves) throws DataAccessException {
+        if (moves == null || snapshot.game() == null) {
+            return;
+        }
+        try {
+            for (ChessMove move : moves) {
+                snapshot.game().makeMove(move);
+            }
+        } catch (InvalidMoveException e) {
+            throw new DataAccessException(String.format("Error: move log for game %d is corrupt: %s", snapshot.gameID(), e.getMessage()), e);
+        }
+    }
+}
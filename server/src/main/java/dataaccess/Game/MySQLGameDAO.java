@@ -1,14 +1,21 @@
 package dataaccess.game;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-import com.google.gson.Gson;
-
+import chess.ChessGame;
+import chess.ChessGameCodec;
 import dataaccess.DataAccessException;
 import dataaccess.MySQLDAO;
 import model.GameData;
+import model.GameQuery;
+import model.GameStatus;
+import model.GameSummary;
+import model.JsonCodec;
 
 public class MySQLGameDAO extends MySQLDAO implements GameDAO {
 
@@ -16,15 +23,41 @@ public class MySQLGameDAO extends MySQLDAO implements GameDAO {
             """
                         CREATE TABLE IF NOT EXISTS games (
                             `gameID` INT NOT NULL,
-                            `gameData` TEXT DEFAULT NULL,
+                            `gameName` varchar(256) NOT NULL,
+                            `whiteUsername` varchar(256) DEFAULT NULL,
+                            `blackUsername` varchar(256) DEFAULT NULL,
+                            `status` ENUM('WAITING', 'ACTIVE', 'FINISHED') NOT NULL DEFAULT 'WAITING',
+                            `turn` ENUM('WHITE', 'BLACK', 'GAMEOVER') DEFAULT NULL,
+                            `ply` INT NOT NULL DEFAULT 0,
+                            `board` BLOB DEFAULT NULL,
+                            `version` INT NOT NULL DEFAULT 0,
                             PRIMARY KEY (`gameID`),
-                            INDEX(gameID)
+                            INDEX(status),
+                            INDEX(gameName)
                         )
                     """
     };
 
     public MySQLGameDAO() throws DataAccessException {
+        migrateLegacyTable("games", "gameData", createStatements,
+                """
+                        INSERT INTO games (gameID, gameName, whiteUsername, blackUsername, status, turn, ply, board)
+                        SELECT gameID,
+                            JSON_UNQUOTE(JSON_EXTRACT(gameData, '$.gameName')),
+                            JSON_UNQUOTE(JSON_EXTRACT(gameData, '$.whiteUsername')),
+                            JSON_UNQUOTE(JSON_EXTRACT(gameData, '$.blackUsername')),
+                            CASE
+                                WHEN JSON_UNQUOTE(JSON_EXTRACT(gameData, '$.game.teamTurn')) = 'GAMEOVER' THEN 'FINISHED'
+                                WHEN JSON_EXTRACT(gameData, '$.whiteUsername') IS NULL OR JSON_EXTRACT(gameData, '$.blackUsername') IS NULL THEN 'WAITING'
+                                ELSE 'ACTIVE'
+                            END,
+                            JSON_UNQUOTE(JSON_EXTRACT(gameData, '$.game.teamTurn')),
+                            COALESCE(JSON_EXTRACT(gameData, '$.game.plyCount'), 0),
+                            CAST(JSON_EXTRACT(gameData, '$.game') AS BINARY)
+                        FROM games_legacy;
+                        """);
         configureDatabase(createStatements);
+        addColumnIfMissing("games", "version", "INT NOT NULL DEFAULT 0");
     }
 
     @Override
@@ -32,29 +65,200 @@ public class MySQLGameDAO extends MySQLDAO implements GameDAO {
         List<GameData> output = executeQuery(rs -> {
             List<GameData> results = new ArrayList<>();
             do {
-                results.add(new Gson().fromJson(rs.getString("gameData"), GameData.class));
+                results.add(readGameInfo(rs, null));
             } while (rs.next());
             return results;
         },
-                "SELECT gameData FROM games;");
+                "SELECT gameID, gameName, whiteUsername, blackUsername, version FROM games;");
         return output != null ? output : Collections.emptyList();
     }
 
+    protected static final String SET_GAME = """
+            INSERT INTO games (gameID, gameName, whiteUsername, blackUsername, status, turn, ply, board, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE gameName = VALUES(gameName), whiteUsername = VALUES(whiteUsername), blackUsername = VALUES(blackUsername),
+                status = VALUES(status), turn = VALUES(turn), ply = VALUES(ply), board = VALUES(board), version = VALUES(version);
+            """;
+
+    // Stores a game only if its ID is free
+    private static final String INSERT_GAME = """
+            INSERT IGNORE INTO games (gameID, gameName, whiteUsername, blackUsername, status, turn, ply, board, version)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?);
+            """;
+
     @Override
     public void setGame(GameData newGame) throws DataAccessException {
-        executeUpdate("INSERT INTO games (gameID, gameData) VALUES (?, ?) ON DUPLICATE KEY UPDATE gameData = ?;", newGame.gameID(), newGame, newGame);
+        executeUpdate(SET_GAME, columns(newGame));
+    }
+
+    @Override
+    public boolean setGameIfNewer(GameData newGame) throws DataAccessException {
+        return executeTransaction(transaction -> setGameIfNewer(transaction, newGame));
+    }
+
+    /**
+     * Stores a game in a transaction unless a newer version of it is already
+     * stored
+     *
+     * @return false if a newer version was stored
+     */
+    protected static boolean setGameIfNewer(Transaction transaction, GameData newGame) throws SQLException {
+        ChessGame game = newGame.game();
+        if (transaction.executeUpdate("""
+                UPDATE games SET gameName = ?, whiteUsername = ?, blackUsername = ?, status = ?, turn = ?, ply = ?, board = ?, version = ?
+                WHERE gameID = ? AND version <= ?;
+                """,
+                newGame.gameName(), newGame.whiteUsername(), newGame.blackUsername(), status(newGame),
+                game == null ? null : game.getTeamTurn().name(), game == null ? 0 : game.getPlyCount(), encodeBoard(game), newGame.version(),
+                newGame.gameID(), newGame.version()) == 1) {
+            return true;
+        }
+        // Either it isn't stored yet or a newer version is
+        return transaction.executeUpdate(INSERT_GAME, columns(newGame)) == 1;
+    }
+
+    @Override
+    public List<GameData> importGames(List<GameData> games) throws DataAccessException {
+        List<Object[]> rows = new ArrayList<>(games.size());
+        for (GameData game : games) {
+            rows.add(columns(game));
+        }
+        int[] inserted = executeTransaction(transaction -> transaction.executeBatch(INSERT_GAME, rows));
+        List<GameData> taken = new ArrayList<>();
+        for (int i = 0; i < inserted.length; i++) {
+            if (inserted[i] == 0) {
+                taken.add(games.get(i));
+            }
+        }
+        return taken;
+    }
+
+    @Override
+    public boolean compareAndSetGame(GameData expected, GameData updated) throws DataAccessException {
+        ChessGame game = updated.game();
+        return executeUpdate("""
+                UPDATE games SET gameName = ?, whiteUsername = ?, blackUsername = ?, status = ?, turn = ?, ply = ?, board = ?, version = version + 1
+                WHERE gameID = ? AND version = ?;
+                """,
+                updated.gameName(), updated.whiteUsername(), updated.blackUsername(), status(updated),
+                game == null ? null : game.getTeamTurn().name(), game == null ? 0 : game.getPlyCount(), encodeBoard(game),
+                expected.gameID(), expected.version()) == 1;
     }
 
     @Override
     public GameData getGame(int gameID) throws DataAccessException {
-        String output = executeQuery(rs -> {
-            return rs.getString("gameData");
-        }, "SELECT gameData FROM games WHERE gameID = ?;", gameID);
-        return new Gson().fromJson(output, GameData.class);
+        return executeQuery(rs -> {
+            return readGameInfo(rs, decodeBoard(rs.getBytes("board")));
+        }, "SELECT gameID, gameName, whiteUsername, blackUsername, board, version FROM games WHERE gameID = ?;", gameID);
+    }
+
+    @Override
+    public GameData getGameInfo(int gameID) throws DataAccessException {
+        return executeQuery(rs -> {
+            return readGameInfo(rs, null);
+        }, "SELECT gameID, gameName, whiteUsername, blackUsername, version FROM games WHERE gameID = ?;", gameID);
+    }
+
+    @Override
+    public void setGameInfo(GameData game) throws DataAccessException {
+        // Assignments run left to right, so status sees the new usernames
+        executeUpdate("""
+                UPDATE games SET gameName = ?, whiteUsername = ?, blackUsername = ?,
+                    status = IF(status = 'FINISHED', 'FINISHED', IF(whiteUsername IS NULL OR blackUsername IS NULL, 'WAITING', 'ACTIVE')),
+                    version = version + 1
+                WHERE gameID = ?;
+                """, game.gameName(), game.whiteUsername(), game.blackUsername(), game.gameID());
+    }
+
+    @Override
+    public boolean compareAndSetGameInfo(GameData expected, GameData updated) throws DataAccessException {
+        return executeUpdate("""
+                UPDATE games SET gameName = ?, whiteUsername = ?, blackUsername = ?,
+                    status = IF(status = 'FINISHED', 'FINISHED', IF(whiteUsername IS NULL OR blackUsername IS NULL, 'WAITING', 'ACTIVE')),
+                    version = version + 1
+                WHERE gameID = ? AND version = ?;
+                """, updated.gameName(), updated.whiteUsername(), updated.blackUsername(), expected.gameID(), expected.version()) == 1;
     }
 
     @Override
     public void clear() throws DataAccessException {
         executeUpdate("TRUNCATE TABLE games;");
     }
-}
\ No newline at end of file
+
+    /**
+     * Lists games a page at a time, walking the primary key from
+     * {@code query.after()} so no page needs to skip over earlier rows. The
+     * status and name filters use their indexes; only the summary columns are
+     * read.
+     */
+    @Override
+    public List<GameSummary> listGames(GameQuery query) throws DataAccessException {
+        StringBuilder statement = new StringBuilder("SELECT gameID, gameName, whiteUsername, blackUsername, status FROM games WHERE gameID > ?");
+        List<Object> params = new ArrayList<>();
+        params.add(query.after());
+        if (query.status() != null) {
+            statement.append(" AND status = ?");
+            params.add(query.status().name());
+        }
+        if (query.openSeats()) {
+            statement.append(" AND (whiteUsername IS NULL OR blackUsername IS NULL)");
+        }
+        if (query.namePrefix() != null) {
+            statement.append(" AND gameName LIKE ?");
+            params.add(query.namePrefix().replaceAll("[\\\\%_]", "\\\\$0") + "%");
+        }
+        statement.append(" ORDER BY gameID");
+        if (query.limit() > 0) {
+            statement.append(" LIMIT ?");
+            params.add(query.limit());
+        }
+        statement.append(';');
+
+        List<GameSummary> output = executeQuery(rs -> {
+            List<GameSummary> results = new ArrayList<>();
+            do {
+                results.add(new GameSummary(rs.getInt("gameID"), rs.getString("whiteUsername"), rs.getString("blackUsername"),
+                        rs.getString("gameName"), GameStatus.valueOf(rs.getString("status"))));
+            } while (rs.next());
+            return results;
+        }, statement.toString(), params.toArray());
+        return output != null ? output : Collections.emptyList();
+    }
+
+    /**
+     * @return the values of every column of a game's row, in table order
+     */
+    protected static Object[] columns(GameData newGame) {
+        ChessGame game = newGame.game();
+        return new Object[] { newGame.gameID(), newGame.gameName(), newGame.whiteUsername(), newGame.blackUsername(), status(newGame),
+                game == null ? null : game.getTeamTurn().name(), game == null ? 0 : game.getPlyCount(), encodeBoard(game), newGame.version() };
+    }
+
+    protected static String status(GameData game) {
+        return GameStatus.of(game).name();
+    }
+
+    protected static GameData readGameInfo(ResultSet rs, ChessGame game) throws SQLException {
+        return new GameData(rs.getInt("gameID"), rs.getString("whiteUsername"), rs.getString("blackUsername"), rs.getString("gameName"), game,
+                rs.getInt("version"));
+    }
+
+    protected static byte[] encodeBoard(ChessGame game) {
+        return game == null ? null : ChessGameCodec.encode(game);
+    }
+
+    protected static ChessGame decodeBoard(byte[] board) throws SQLException {
+        if (board == null) {
+            return null;
+        }
+        // Boards written before the binary codec, or migrated from the old
+        // gameData column, are still JSON
+        if (board.length > 0 && board[0] == '{') {
+            return JsonCodec.GSON.fromJson(new String(board, StandardCharsets.UTF_8), ChessGame.class);
+        }
+        try {
+            return ChessGameCodec.decode(board);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException("Error: stored board is corrupt: " + e.getMessage(), e);
+        }
+    }
+}
@@ -5,8 +5,11 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import static java.sql.Statement.RETURN_GENERATED_KEYS;
+import java.sql.Types;
+import java.util.List;
 
-import com.google.gson.Gson;
+import metrics.QueryLatency;
+import model.JsonCodec;
 
 public abstract class MySQLDAO {
 
@@ -14,28 +17,114 @@ public abstract class MySQLDAO {
         for (int i = 0; i < params.length; i++) {
             Object param = params[i];
             switch (param) {
+                case null -> ps.setNull(i + 1, Types.NULL);
                 case String p -> ps.setString(i + 1, p);
                 case Integer p -> ps.setInt(i + 1, p);
-                default -> ps.setString(i + 1, new Gson().toJson(param));
+                case byte[] p -> ps.setBytes(i + 1, p);
+                default -> ps.setString(i + 1, JsonCodec.GSON.toJson(param));
             }
         }
     }
 
     protected int executeUpdate(String statement, Object... params) throws DataAccessException {
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(statement)) {
+                formatSQLStatement(ps, params);
+                return ps.executeUpdate();
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException(String.format("Unable to update database: %s, %s", statement, e.getMessage()));
+        } finally {
+            QueryLatency.record(statement, start);
+        }
+    }
+
+    protected int executeInsert(String statement, Object... params) throws DataAccessException {
+        long start = System.nanoTime();
         try (Connection conn = DatabaseManager.getConnection()) {
             try (PreparedStatement ps = conn.prepareStatement(statement, RETURN_GENERATED_KEYS)) {
                 formatSQLStatement(ps, params);
                 ps.executeUpdate();
 
-                ResultSet rs = ps.getGeneratedKeys();
-                if (rs.next()) {
-                    return rs.getInt(1);
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        return rs.getInt(1);
+                    }
                 }
 
                 return 0;
             }
         } catch (SQLException e) {
             throw new DataAccessException(String.format("Unable to update database: %s, %s", statement, e.getMessage()));
+        } finally {
+            QueryLatency.record(statement, start);
+        }
+    }
+
+    /**
+     * Statements that must all succeed or all fail, run on one connection
+     */
+    protected final class Transaction {
+        private final Connection conn;
+
+        private Transaction(Connection conn) {
+            this.conn = conn;
+        }
+
+        public int executeUpdate(String statement, Object... params) throws SQLException {
+            long start = System.nanoTime();
+            try (PreparedStatement ps = conn.prepareStatement(statement)) {
+                formatSQLStatement(ps, params);
+                return ps.executeUpdate();
+            } finally {
+                QueryLatency.record(statement, start);
+            }
+        }
+
+        /**
+         * Runs a statement once for each row of parameters, as one batch
+         *
+         * @return how many rows each run changed
+         */
+        public int[] executeBatch(String statement, List<Object[]> rows) throws SQLException {
+            long start = System.nanoTime();
+            try (PreparedStatement ps = conn.prepareStatement(statement)) {
+                for (Object[] row : rows) {
+                    formatSQLStatement(ps, row);
+                    ps.addBatch();
+                }
+                return ps.executeBatch();
+            } finally {
+                QueryLatency.record(statement, start);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface SQLTransaction<T> {
+        T apply(Transaction transaction) throws SQLException;
+    }
+
+    /**
+     * Runs the body in a transaction, committing if it returns normally and
+     * rolling back if it throws
+     */
+    protected <T> T executeTransaction(SQLTransaction<T> body) throws DataAccessException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                T result = body.apply(new Transaction(conn));
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException(String.format("Unable to update database: %s", e.getMessage()));
         }
     }
 
@@ -45,6 +134,7 @@ public abstract class MySQLDAO {
     }
 
     public <T> T executeQuery(SQLFunction<T> mapper, String statement, Object... params) throws DataAccessException {
+        long start = System.nanoTime();
         try (Connection conn = DatabaseManager.getConnection()) {
             try (PreparedStatement ps = conn.prepareStatement(statement)) {
                 formatSQLStatement(ps, params);
@@ -56,6 +146,8 @@ public abstract class MySQLDAO {
             }
         } catch (SQLException e) {
             throw new DataAccessException(String.format("Unable to read data: %s", e.getMessage()));
+        } finally {
+            QueryLatency.record(statement, start);
         }
         return null;
     }
@@ -72,4 +164,40 @@ public abstract class MySQLDAO {
             throw new DataAccessException(String.format("Unable to configure database: %s", ex.getMessage()));
         }
     }
+
+    /**
+     * Moves data out of a table created with the old single JSON column layout.
+     * If {@code table} still has {@code legacyColumn}, it is renamed, recreated
+     * with {@code createStatements}, filled using {@code copyStatement} (which
+     * reads from {@code <table>_legacy}), and the old table is dropped.
+     */
+    protected void migrateLegacyTable(String table, String legacyColumn, String[] createStatements, String copyStatement)
+            throws DataAccessException {
+        DatabaseManager.createDatabase();
+        Integer legacyColumns = executeQuery(rs -> rs.getInt(1),
+                "SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?;",
+                table, legacyColumn);
+        if (legacyColumns == null || legacyColumns == 0) {
+            return;
+        }
+
+        executeUpdate(String.format("RENAME TABLE %s TO %s_legacy;", table, table));
+        configureDatabase(createStatements);
+        executeUpdate(copyStatement);
+        executeUpdate(String.format("DROP TABLE %s_legacy;", table));
+    }
+
+    /**
+     * Adds a column to a table created before the column existed
+     *
+     * @param definition the column definition, e.g. {@code INT NOT NULL DEFAULT 0}
+     */
+    protected void addColumnIfMissing(String table, String column, String definition) throws DataAccessException {
+        Integer columns = executeQuery(rs -> rs.getInt(1),
+                "SELECT COUNT(*) FROM information_schema.columns WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?;",
+                table, column);
+        if (columns != null && columns == 0) {
+            executeUpdate(String.format("ALTER TABLE %s ADD COLUMN `%s` %s;", table, column, definition));
+        }
+    }
 }
@@ -0,0 +1,72 @@
+package dataaccess;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import model.JsonCodec;
+
+/**
+ * Saves the contents of an in-memory DAO to a JSON file and reads it back.
+ * A snapshot is written to a temporary file and then moved over the old one,
+ * so a crash mid-write leaves the previous snapshot intact.
+ */
+public class SnapshotFile<T> {
+
+    private final Path path;
+    private final Type listType;
+
+    public SnapshotFile(Path path, Class<T> type) {
+        this.path = path;
+        this.listType = TypeToken.getParameterized(List.class, type).getType();
+    }
+
+    /**
+     * @return the saved values, or an empty list if nothing has been saved yet
+     */
+    public List<T> load() throws DataAccessException {
+        if (!Files.exists(path)) {
+            return new ArrayList<>();
+        }
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            List<T> values = JsonCodec.GSON.fromJson(reader, listType);
+            return values != null ? values : new ArrayList<>();
+        } catch (IOException | JsonParseException e) {
+            throw new DataAccessException(String.format("Error: unable to read snapshot %s: %s", path, e.getMessage()), e);
+        }
+    }
+
+    public void save(Collection<T> values) throws DataAccessException {
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+            try {
+                try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                    JsonCodec.GSON.toJson(values, listType, writer);
+                }
+                try {
+                    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new DataAccessException(String.format("Error: unable to write snapshot %s: %s", path, e.getMessage()), e);
+        }
+    }
+}
@@ -1,17 +1,37 @@
 package dataaccess.user;
 
-import java.util.HashMap;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import dataaccess.DataAccessException;
+import dataaccess.SnapshotFile;
 import model.UserData;
 
 public class MemoryUserDAO implements UserDAO {
 
     Map<String, UserData> users;
 
+    private final SnapshotFile<UserData> snapshotFile;
+    private final AtomicLong changes = new AtomicLong();
+    private long savedChanges = 0;
+
     public MemoryUserDAO() {
-        users = new HashMap<>();
+        users = new ConcurrentHashMap<>();
+        snapshotFile = null;
+    }
+
+    /**
+     * Creates a DAO that loads its users from a snapshot file, if it exists,
+     * and saves them there on {@link #snapshot()} and {@link #close()}
+     */
+    public MemoryUserDAO(Path snapshotPath) throws DataAccessException {
+        users = new ConcurrentHashMap<>();
+        snapshotFile = new SnapshotFile<>(snapshotPath, UserData.class);
+        for (UserData user : snapshotFile.load()) {
+            users.put(user.username(), user);
+        }
     }
 
     @Override
@@ -22,14 +42,33 @@ public class MemoryUserDAO implements UserDAO {
 
     @Override
     public void createUser(UserData userData) throws DataAccessException {
-        if (users.get(userData.username()) != null) {
+        if (users.putIfAbsent(userData.username(), userData) != null) {
             throw new DataAccessException("Error: Duplicate entry attempt");
         }
-        users.put(userData.username(), userData);
+        changes.incrementAndGet();
     }
 
     @Override
     public void clear() {
         users.clear();
+        changes.incrementAndGet();
+    }
+
+    /**
+     * Saves every user to the snapshot file if anything changed since the last
+     * save. Does nothing if this DAO has no snapshot file.
+     */
+    public synchronized void snapshot() throws DataAccessException {
+        long current = changes.get();
+        if (snapshotFile == null || current == savedChanges) {
+            return;
+        }
+        snapshotFile.save(users.values());
+        savedChanges = current;
+    }
+
+    @Override
+    public void close() throws DataAccessException {
+        snapshot();
     }
 }
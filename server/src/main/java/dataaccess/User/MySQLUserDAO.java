@@ -1,7 +1,5 @@
 package dataaccess.user;
 
-import com.google.gson.Gson;
-
 import dataaccess.DataAccessException;
 import dataaccess.MySQLDAO;
 import model.UserData;
@@ -12,28 +10,33 @@ public class MySQLUserDAO extends MySQLDAO implements UserDAO {
             """
                         CREATE TABLE IF NOT EXISTS users (
                             `username` varchar(256) NOT NULL,
-                            `userData` TEXT DEFAULT NULL,
-                            PRIMARY KEY (`username`),
-                            INDEX(username)
+                            `password` varchar(256) NOT NULL,
+                            `email` varchar(256) NOT NULL,
+                            PRIMARY KEY (`username`)
                         )
                     """
     };
 
     public MySQLUserDAO() throws DataAccessException {
+        migrateLegacyTable("users", "userData", createStatements,
+                """
+                        INSERT INTO users (username, password, email)
+                        SELECT username, JSON_UNQUOTE(JSON_EXTRACT(userData, '$.password')), JSON_UNQUOTE(JSON_EXTRACT(userData, '$.email'))
+                        FROM users_legacy;
+                        """);
         configureDatabase(createStatements);
     }
 
     @Override
     public UserData getUser(String username) throws DataAccessException {
-        String output = executeQuery(rs -> {
-            return rs.getString("userData");
-        }, "SELECT userData FROM users WHERE username = ?;", username);
-        return new Gson().fromJson(output, UserData.class);
+        return executeQuery(rs -> {
+            return new UserData(rs.getString("username"), rs.getString("password"), rs.getString("email"));
+        }, "SELECT username, password, email FROM users WHERE username = ?;", username);
     }
 
     @Override
     public void createUser(UserData userData) throws DataAccessException {
-        executeUpdate("INSERT INTO users (username, userData) VALUES (?, ?);", userData.username(), userData);
+        executeUpdate("INSERT INTO users (username, password, email) VALUES (?, ?, ?);", userData.username(), userData.password(), userData.email());
     }
 
     @Override
@@ -10,4 +10,10 @@ public interface UserDAO {
     public void createUser(UserData userData) throws DataAccessException;
 
     public void clear() throws DataAccessException;
+
+    /**
+     * Writes any buffered changes and releases resources held by this DAO.
+     */
+    public default void close() throws DataAccessException {
+    }
 }
@@ -0,0 +1,59 @@
+package metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves checked by the chess engine, and the JVM's allocation, heap and
+ * garbage collection figures they drive. Allocation is read JVM-wide, since a
+ * virtual thread's own allocations can't be read; what virtual threads
+ * allocate is counted against the carrier threads running them.
+ */
+public final class Allocation {
+
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private static final LongAdder ENGINE_MOVES = new LongAdder();
+
+    private Allocation() {
+    }
+
+    /**
+     * Counts a move checked by the engine
+     */
+    public static void recordMove() {
+        ENGINE_MOVES.increment();
+    }
+
+    public static void write(MetricsWriter out) {
+        out.family("chess_engine_moves_total", "counter", "Moves checked by the chess engine");
+        out.sample("chess_engine_moves_total", ENGINE_MOVES.sum());
+        if (THREADS != null) {
+            out.family("jvm_allocated_bytes_total", "counter", "Bytes allocated by all threads since the JVM started");
+            out.sample("jvm_allocated_bytes_total", Math.max(0, THREADS.getTotalThreadAllocatedBytes()));
+        }
+
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        out.family("jvm_heap_used_bytes", "gauge", "Heap memory in use");
+        out.sample("jvm_heap_used_bytes", heap.getUsed());
+
+        out.family("jvm_gc_collections_total", "counter", "Garbage collections run by each collector");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            out.sample("jvm_gc_collections_total", Math.max(0, gc.getCollectionCount()), "gc", gc.getName());
+        }
+        out.family("jvm_gc_collection_seconds_total", "counter", "Time spent in garbage collection by each collector");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            out.sample("jvm_gc_collection_seconds_total", Math.max(0, gc.getCollectionTime()) / 1e3, "gc", gc.getName());
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads;
+        }
+        return null;
+    }
+}
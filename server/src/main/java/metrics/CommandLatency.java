@@ -0,0 +1,113 @@
+package metrics;
+
+import java.util.Locale;
+
+import websocket.commands.UserGameCommand.CommandType;
+
+/**
+ * Times each stage of handling websocket commands, with a histogram per
+ * command type and stage. A command is traced from the thread that handles
+ * it; code along the way reports how long its stage took with
+ * {@link #record(Stage, long)}, which does nothing when no command is being
+ * traced. A stage that runs more than once for a command, e.g. a read that is
+ * retried, is recorded as its total.
+ */
+public class CommandLatency {
+
+    public enum Stage {
+        AUTH,
+        DAO_READ,
+        LEGALITY,
+        DAO_WRITE,
+        SERIALIZATION,
+        FAN_OUT,
+        TOTAL
+    }
+
+    private static final CommandType[] COMMANDS = CommandType.values();
+    private static final Stage[] STAGES = Stage.values();
+
+    private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+
+    private final LatencyHistogram[][] histograms = new LatencyHistogram[COMMANDS.length][STAGES.length];
+
+    public CommandLatency() {
+        for (LatencyHistogram[] command : histograms) {
+            for (int stage = 0; stage < command.length; stage++) {
+                command[stage] = new LatencyHistogram();
+            }
+        }
+    }
+
+    /**
+     * Starts tracing a command on this thread. Closing the trace records it.
+     */
+    public Trace trace(CommandType command) {
+        Trace trace = new Trace(command);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /**
+     * Adds the time since {@code startNanos} to a stage of the command being
+     * traced on this thread, if any
+     *
+     * @param startNanos when the stage started, from {@link System#nanoTime()}
+     */
+    public static void record(Stage stage, long startNanos) {
+        Trace trace = CURRENT.get();
+        if (trace != null) {
+            trace.stageNanos[stage.ordinal()] += System.nanoTime() - startNanos;
+            trace.seen[stage.ordinal()] = true;
+        }
+    }
+
+    public LatencyHistogram histogram(CommandType command, Stage stage) {
+        return histograms[command.ordinal()][stage.ordinal()];
+    }
+
+    /**
+     * Writes the stages that have been recorded as Prometheus summaries, in
+     * seconds
+     */
+    public void write(MetricsWriter out) {
+        out.family("chess_command_stage_seconds", "summary", "Time spent in each stage of handling a websocket command");
+        for (CommandType command : COMMANDS) {
+            for (Stage stage : STAGES) {
+                LatencyHistogram histogram = histogram(command, stage);
+                if (histogram.count() > 0) {
+                    histogram.write(out, "chess_command_stage_seconds", "command", command.name().toLowerCase(Locale.ROOT), "stage",
+                            stage.name().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+    }
+
+    /**
+     * The stages timed so far for one command
+     */
+    public class Trace implements AutoCloseable {
+        private final CommandType command;
+        private final long start = System.nanoTime();
+        private final long[] stageNanos = new long[STAGES.length];
+        private final boolean[] seen = new boolean[STAGES.length];
+
+        private Trace(CommandType command) {
+            this.command = command;
+        }
+
+        @Override
+        public void close() {
+            CURRENT.remove();
+            if (command == null) {
+                return;
+            }
+            for (Stage stage : STAGES) {
+                if (seen[stage.ordinal()]) {
+                    histogram(command, stage).record(stageNanos[stage.ordinal()]);
+                }
+            }
+            histogram(command, Stage.TOTAL).record(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size histogram of durations in nanoseconds that can be recorded
+ * into from any number of threads without locking. Like an HDR histogram,
+ * each power of two is split into 64 equal buckets, so every value is kept to
+ * within about 1.6%. Durations past {@link #MAX_TRACKED_NANOS} (about a
+ * minute) all fall into the last bucket, though the true maximum is kept.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 36;
+
+    public static final long MAX_TRACKED_NANOS = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private static final double[] QUANTILES = { 0.5, 0.99, 0.999 };
+
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucket(Math.min(value, MAX_TRACKED_NANOS)));
+        sum.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long sumNanos() {
+        return sum.sum();
+    }
+
+    public long maxNanos() {
+        return max.get();
+    }
+
+    /**
+     * @param quantile between 0 and 1, e.g. 0.99 for the 99th percentile
+     * @return the largest value that falls in the same bucket as the value at
+     *         the quantile, or 0 if nothing was recorded
+     */
+    public long valueAtQuantile(double quantile) {
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return Math.min(highestInBucket(i), maxNanos());
+            }
+        }
+        return maxNanos();
+    }
+
+    /**
+     * Writes the histogram as a Prometheus summary in seconds, with p50, p99
+     * and p999
+     *
+     * @param labels label names and values, alternating
+     */
+    public void write(MetricsWriter out, String name, String... labels) {
+        String[] quantileLabels = Arrays.copyOf(labels, labels.length + 2);
+        quantileLabels[labels.length] = "quantile";
+        for (double quantile : QUANTILES) {
+            quantileLabels[labels.length + 1] = Double.toString(quantile);
+            out.sample(name, valueAtQuantile(quantile) / 1e9, quantileLabels);
+        }
+        out.sample(name + "_sum", sumNanos() / 1e9, labels);
+        out.sample(name + "_count", count(), labels);
+    }
+
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >> shift) & (SUB_BUCKETS - 1));
+    }
+
+    private static long highestInBucket(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
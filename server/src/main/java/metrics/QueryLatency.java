@@ -0,0 +1,82 @@
+package metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * How long SQL statements take, across every DAO. Statements are grouped by
+ * their command and the first table they name, e.g. {@code select games}, so
+ * statements built at run time, such as filtered listings and migrations,
+ * share a histogram and the number of series stays small.
+ */
+public final class QueryLatency {
+
+    // Words after which the next word names a table
+    private static final Set<String> BEFORE_TABLE = Set.of("FROM", "INTO", "TABLE", "UPDATE");
+    // Words that can come between those and the table
+    private static final Set<String> SKIPPED = Set.of("IF", "NOT", "EXISTS");
+
+    private static final Map<String, LatencyHistogram> QUERIES = new ConcurrentHashMap<>();
+
+    private QueryLatency() {
+    }
+
+    /**
+     * @param startNanos when the statement started, from
+     *                   {@link System#nanoTime()}
+     */
+    public static void record(String statement, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        String label = label(statement);
+        LatencyHistogram histogram = QUERIES.get(label);
+        if (histogram == null) {
+            histogram = QUERIES.computeIfAbsent(label, s -> new LatencyHistogram());
+        }
+        histogram.record(elapsed);
+    }
+
+    public static void write(MetricsWriter out) {
+        out.family("chess_query_seconds", "summary", "Time taken by SQL statements by command and table, including waiting for a connection");
+        QUERIES.forEach((label, histogram) -> histogram.write(out, "chess_query_seconds", "statement", label));
+    }
+
+    /**
+     * @return the statement's command and the first table it names, in lower
+     *         case, e.g. {@code insert game_moves}
+     */
+    static String label(String statement) {
+        String command = null;
+        boolean tableNext = false;
+        int i = 0;
+        while (true) {
+            while (i < statement.length() && isSeparator(statement.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < statement.length() && !isSeparator(statement.charAt(i))) {
+                i++;
+            }
+            if (start == i) {
+                return command == null ? "unknown" : command;
+            }
+
+            String word = statement.substring(start, i).toUpperCase(Locale.ROOT);
+            if (command == null) {
+                command = word.toLowerCase(Locale.ROOT);
+                tableNext = word.equals("UPDATE");
+            } else if (tableNext) {
+                if (!SKIPPED.contains(word)) {
+                    return command + " " + word.toLowerCase(Locale.ROOT);
+                }
+            } else {
+                tableNext = BEFORE_TABLE.contains(word);
+            }
+        }
+    }
+
+    private static boolean isSeparator(char c) {
+        return Character.isWhitespace(c) || c == '(' || c == ')' || c == ',' || c == ';' || c == '`';
+    }
+}
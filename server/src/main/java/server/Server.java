@@ -1,17 +1,32 @@
 package server;
 
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import dataaccess.ConnectionPool;
 import dataaccess.DataAccessException;
+import dataaccess.DatabaseManager;
 import dataaccess.auth.AuthDAO;
+import dataaccess.auth.MemoryAuthDAO;
 import dataaccess.auth.MySQLAuthDAO;
+import dataaccess.game.CachingGameDAO;
 import dataaccess.game.GameDAO;
-import dataaccess.game.MySQLGameDAO;
+import dataaccess.game.MemoryGameDAO;
+import dataaccess.game.MySQLEventSourcedGameDAO;
+import dataaccess.user.MemoryUserDAO;
 import dataaccess.user.MySQLUserDAO;
 import dataaccess.user.UserDAO;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
+import metrics.Allocation;
+import metrics.MetricsWriter;
+import metrics.QueryLatency;
 import serverhandler.ApplicationServerHandler;
 import serverhandler.GameServerHandler;
 import serverhandler.UserServerHandler;
+import service.AuthCache;
 import service.GameService;
 import service.UserService;
 import websocket.WebSocketHandler;
@@ -23,21 +38,63 @@ public class Server {
     private final UserDAO userDAO;
     private final AuthDAO authDAO;
     private final GameDAO gameDAO;
+    private final AuthCache authCache;
 
     private final UserService userService;
     private final GameService gameService;
 
+    private final ServerConfig serverConfig;
+    private final ScheduledExecutorService snapshotter;
+
     public Server() {
-        try {
-            authDAO = new MySQLAuthDAO();
-            userDAO = new MySQLUserDAO();
-            gameDAO = new MySQLGameDAO();
+        this(ServerConfig.load());
+    }
 
-            userService = new UserService(userDAO, authDAO);
-            gameService = new GameService(gameDAO, authDAO);
+    public Server(ServerConfig serverConfig) {
+        this.serverConfig = serverConfig;
+        try {
+            if (serverConfig.storage() == ServerConfig.Storage.MEMORY) {
+                Path snapshotDir = serverConfig.snapshotDir();
+                MemoryAuthDAO memoryAuthDAO = snapshotDir == null ? new MemoryAuthDAO() : new MemoryAuthDAO(snapshotDir.resolve("auth.json"));
+                MemoryUserDAO memoryUserDAO = snapshotDir == null ? new MemoryUserDAO() : new MemoryUserDAO(snapshotDir.resolve("users.json"));
+                MemoryGameDAO memoryGameDAO = snapshotDir == null ? new MemoryGameDAO() : new MemoryGameDAO(snapshotDir.resolve("games.json"));
+                authDAO = memoryAuthDAO;
+                userDAO = memoryUserDAO;
+                gameDAO = memoryGameDAO;
+
+                snapshotter = snapshotDir == null ? null : Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "memory-snapshotter");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                if (snapshotter != null) {
+                    snapshotter.scheduleWithFixedDelay(() -> {
+                        try {
+                            memoryAuthDAO.snapshot();
+                            memoryUserDAO.snapshot();
+                            memoryGameDAO.snapshot();
+                        } catch (DataAccessException e) {
+                            System.err.println("Unable to save snapshot: " + e.getMessage());
+                        }
+                    }, serverConfig.snapshotIntervalMillis(), serverConfig.snapshotIntervalMillis(), TimeUnit.MILLISECONDS);
+                }
+            } else {
+                authDAO = new MySQLAuthDAO();
+                userDAO = new MySQLUserDAO();
+                GameDAO mySQLGameDAO = new MySQLEventSourcedGameDAO();
+                gameDAO = serverConfig.cacheGames() ? new CachingGameDAO(mySQLGameDAO) : mySQLGameDAO;
+                snapshotter = null;
+            }
+
+            authCache = new AuthCache(authDAO);
+            userService = new UserService(userDAO, authDAO, authCache);
+            gameService = new GameService(gameDAO, authDAO, authCache);
             webSocketHandler = new WebSocketHandler(userService, gameService);
 
-            javalin = Javalin.create(config -> config.staticFiles.add("web"))
+            javalin = Javalin.create(config -> {
+                config.staticFiles.add("web");
+                config.useVirtualThreads = serverConfig.virtualThreads();
+            })
                     .post("/user", this::registerUser)
                     .post("/session", this::loginUser)
                     .delete("/session", this::logoutUser)
@@ -45,9 +102,11 @@ public class Server {
                     .post("/game", this::createGame)
                     .put("/game", this::joinGame)
                     .delete("/db", this::clearApplication)
+                    .get("/metrics", this::metrics)
                     .ws("/ws", ws -> {
                         ws.onConnect(webSocketHandler);
                         ws.onMessage(webSocketHandler);
+                        ws.onBinaryMessage(webSocketHandler);
                         ws.onClose(webSocketHandler);
                     });
         } catch (DataAccessException e) {
@@ -63,6 +122,25 @@ public class Server {
 
     public void stop() {
         javalin.stop();
+        webSocketHandler.close();
+        if (snapshotter != null) {
+            snapshotter.shutdown();
+        }
+        for (Closer closer : new Closer[] { gameDAO::close, authDAO::close, userDAO::close }) {
+            try {
+                closer.close();
+            } catch (DataAccessException e) {
+                System.err.println("Unable to save data: " + e.getMessage());
+            }
+        }
+        if (serverConfig.storage() == ServerConfig.Storage.MYSQL) {
+            DatabaseManager.closePool();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Closer {
+        void close() throws DataAccessException;
     }
 
     private void registerUser(Context ctx) {
@@ -107,4 +185,51 @@ public class Server {
         handler.clearApplication(ctx);
     }
 
+    /**
+     * Reports server metrics in the Prometheus text format
+     */
+    private void metrics(Context ctx) {
+        MetricsWriter out = new MetricsWriter();
+        webSocketHandler.latency().write(out);
+        webSocketHandler.connections().writeMetrics(out);
+        QueryLatency.write(out);
+
+        out.family("chess_cache_hits_total", "counter", "Lookups answered from a cache");
+        out.sample("chess_cache_hits_total", authCache.hits(), "cache", "auth");
+        if (gameDAO instanceof CachingGameDAO cachingGameDAO) {
+            out.sample("chess_cache_hits_total", cachingGameDAO.hits(), "cache", "game");
+        }
+        out.family("chess_cache_misses_total", "counter", "Lookups that had to go to the database");
+        out.sample("chess_cache_misses_total", authCache.misses(), "cache", "auth");
+        if (gameDAO instanceof CachingGameDAO cachingGameDAO) {
+            out.sample("chess_cache_misses_total", cachingGameDAO.misses(), "cache", "game");
+        }
+        if (gameDAO instanceof CachingGameDAO cachingGameDAO) {
+            out.family("chess_cache_write_conflicts_total", "counter", "Cached games whose write back was refused because they changed outside the cache");
+            out.sample("chess_cache_write_conflicts_total", cachingGameDAO.conflicts());
+        }
+
+        ConnectionPool.Stats pool = DatabaseManager.getPoolStats();
+        if (pool != null) {
+            out.family("chess_db_pool_connections", "gauge", "Pooled database connections by state");
+            out.sample("chess_db_pool_connections", pool.idle(), "state", "idle");
+            out.sample("chess_db_pool_connections", pool.active(), "state", "active");
+            out.family("chess_db_pool_waiting", "gauge", "Threads waiting for a database connection");
+            out.sample("chess_db_pool_waiting", pool.waiting());
+            out.family("chess_db_pool_borrows_total", "counter", "Connections handed out by the pool");
+            out.sample("chess_db_pool_borrows_total", pool.borrows());
+            out.family("chess_db_pool_wait_seconds_total", "counter", "Time spent waiting for a database connection");
+            out.sample("chess_db_pool_wait_seconds_total", pool.totalWaitNanos() / 1e9);
+            out.family("chess_db_pool_timeouts_total", "counter", "Waits for a database connection that timed out");
+            out.sample("chess_db_pool_timeouts_total", pool.timeouts());
+            out.family("chess_db_pool_leaks_total", "counter", "Connections held past the leak threshold");
+            out.sample("chess_db_pool_leaks_total", pool.leaks());
+        }
+
+        Allocation.write(out);
+
+        ctx.contentType("text/plain; version=0.0.4; charset=utf-8");
+        ctx.result(out.toString());
+    }
+
 }
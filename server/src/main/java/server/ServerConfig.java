@@ -0,0 +1,80 @@
+package server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Chooses how the server stores its data. Settings are read from
+ * {@code server.properties} on the classpath, if present, and any of them can
+ * be overridden with a system property of the same name prefixed with
+ * {@code chess.}, e.g. {@code -Dchess.storage=memory}.
+ * <ul>
+ * <li>{@code storage}: {@code mysql} (default) or {@code memory}</li>
+ * <li>{@code storage.snapshotDir}: with memory storage, a directory to save
+ * data to so it survives restarts; unset keeps data in memory only</li>
+ * <li>{@code storage.snapshotIntervalMs}: how often memory storage is saved,
+ * default 10000</li>
+ * <li>{@code cache.games}: whether MySQL games are cached in memory, default
+ * true</li>
+ * <li>{@code threads.virtual}: whether requests and websocket messages are
+ * handled on virtual threads, default true. Blocked database calls then
+ * wait in the connection pool's queue without holding a platform thread.</li>
+ * </ul>
+ */
+public record ServerConfig(Storage storage, Path snapshotDir, long snapshotIntervalMillis, boolean cacheGames, boolean virtualThreads) {
+
+    public enum Storage {
+        MYSQL, MEMORY
+    }
+
+    private static final String SYSTEM_PROPERTY_PREFIX = "chess.";
+
+    public static ServerConfig defaults() {
+        return new ServerConfig(Storage.MYSQL, null, 10_000, true, true);
+    }
+
+    /**
+     * Reads {@code server.properties} and applies system property overrides
+     */
+    public static ServerConfig load() {
+        Properties props = new Properties();
+        try (InputStream propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("server.properties")) {
+            if (propStream != null) {
+                props.load(propStream);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("unable to process server.properties", ex);
+        }
+
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(SYSTEM_PROPERTY_PREFIX)) {
+                props.setProperty(name.substring(SYSTEM_PROPERTY_PREFIX.length()), System.getProperty(name));
+            }
+        }
+        return fromProperties(props);
+    }
+
+    public static ServerConfig fromProperties(Properties props) {
+        ServerConfig defaults = defaults();
+
+        String storage = props.getProperty("storage");
+        String snapshotDir = props.getProperty("storage.snapshotDir");
+        String snapshotInterval = props.getProperty("storage.snapshotIntervalMs");
+        String cacheGames = props.getProperty("cache.games");
+        String virtualThreads = props.getProperty("threads.virtual");
+
+        try {
+            return new ServerConfig(
+                    storage == null ? defaults.storage() : Storage.valueOf(storage.trim().toUpperCase(Locale.ROOT)),
+                    snapshotDir == null || snapshotDir.isBlank() ? defaults.snapshotDir() : Path.of(snapshotDir.trim()),
+                    snapshotInterval == null ? defaults.snapshotIntervalMillis() : Long.parseLong(snapshotInterval.trim()),
+                    cacheGames == null ? defaults.cacheGames() : Boolean.parseBoolean(cacheGames.trim()),
+                    virtualThreads == null ? defaults.virtualThreads() : Boolean.parseBoolean(virtualThreads.trim()));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid server configuration: " + ex.getMessage(), ex);
+        }
+    }
+}
@@ -2,10 +2,9 @@ package serverhandler;
 
 import java.util.Map;
 
-import com.google.gson.Gson;
-
 import dataaccess.DataAccessException;
 import io.javalin.http.Context;
+import model.JsonCodec;
 import service.GameService;
 import service.UserService;
 
@@ -28,7 +27,7 @@ public class ApplicationServerHandler {
             ctx.status(200);
         } catch (DataAccessException e) {
             ctx.status(e.getStatusCode());
-            ctx.result(new Gson().toJson(Map.of("message", e.getMessage())));
+            ctx.result(JsonCodec.GSON.toJson(Map.of("message", e.getMessage())));
         }
     }
 }
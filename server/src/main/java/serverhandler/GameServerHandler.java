@@ -1,12 +1,19 @@
 package serverhandler;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
 import java.util.Map;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 
 import dataaccess.DataAccessException;
 import io.javalin.http.Context;
+import model.GameQuery;
+import model.GameStatus;
+import model.JsonCodec;
 import model.exceptions.AlreadyTakenException;
 import model.exceptions.BadRequestException;
 import model.exceptions.UnauthorizedException;
@@ -15,6 +22,7 @@ import model.requests.JoinGameRequest;
 import model.results.GameCreationResult;
 import model.results.ListGamesResult;
 import service.GameService;
+import service.Lobby;
 
 public class GameServerHandler {
 
@@ -24,24 +32,57 @@ public class GameServerHandler {
         this.gameService = gameService;
     }
 
+    /**
+     * Lists games, filtered and paged by the query parameters {@code status},
+     * {@code openSeats}, {@code name} (a prefix), {@code after} and
+     * {@code limit}; see {@link GameQuery}. The lobby's version is sent as the
+     * {@code ETag}, so a client that sends it back in {@code If-None-Match}
+     * is answered with 304 until a game changes. The result is written
+     * straight to the response rather than built up as a string first.
+     */
     public void listGames(Context ctx) {
         String authToken = ctx.header("authorization");
         ctx.contentType("application/json");
 
         try {
-            ListGamesResult result = gameService.listGames(authToken);
+            GameQuery query = parseQuery(ctx);
+            Lobby.Snapshot lobby = gameService.getLobby(authToken);
+
+            ctx.header("ETag", lobby.etag());
+            ctx.header("Cache-Control", "no-cache");
+            if (lobby.etag().equals(ctx.header("If-None-Match"))) {
+                ctx.status(304);
+                return;
+            }
 
             ctx.status(200);
-            ctx.result(new Gson().toJson(result));
-        } catch (UnauthorizedException | DataAccessException e) {
+            Writer writer = new OutputStreamWriter(ctx.outputStream(), StandardCharsets.UTF_8);
+            JsonCodec.GSON.toJson(lobby.list(query), ListGamesResult.class, JsonCodec.GSON.newJsonWriter(writer));
+            writer.flush();
+        } catch (BadRequestException | UnauthorizedException | DataAccessException e) {
             ctx.status(e.getStatusCode());
-            ctx.result(new Gson().toJson(Map.of("message", e.getMessage())));
+            ctx.result(JsonCodec.GSON.toJson(Map.of("message", e.getMessage())));
+        } catch (IOException e) {
+            // The client went away while the list was being written
+        }
+    }
+
+    private static GameQuery parseQuery(Context ctx) throws BadRequestException {
+        try {
+            String status = ctx.queryParam("status");
+            String after = ctx.queryParam("after");
+            String limit = ctx.queryParam("limit");
+            return new GameQuery(status == null ? null : GameStatus.valueOf(status.toUpperCase(Locale.ROOT)),
+                    Boolean.parseBoolean(ctx.queryParam("openSeats")), ctx.queryParam("name"), after == null ? 0 : Integer.parseInt(after),
+                    limit == null ? 0 : Integer.parseInt(limit));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException();
         }
     }
 
     public void createGame(Context ctx) {
         String authToken = ctx.header("authorization");
-        JsonObject body = new Gson().fromJson(ctx.body(), JsonObject.class);
+        JsonObject body = JsonCodec.GSON.fromJson(ctx.body(), JsonObject.class);
         String gameName = body.isEmpty() ? null : body.get("gameName").getAsString();
 
         ctx.contentType("application/json");
@@ -50,18 +91,18 @@ public class GameServerHandler {
             GameCreationResult result = gameService.createGame(new CreateGameRequest(authToken, gameName));
 
             ctx.status(200);
-            ctx.result(new Gson().toJson(result));
+            ctx.result(JsonCodec.GSON.toJson(result));
         } catch (BadRequestException | UnauthorizedException | DataAccessException e) {
             ctx.status(e.getStatusCode());
-            ctx.result(new Gson().toJson(Map.of("message", e.getMessage())));
+            ctx.result(JsonCodec.GSON.toJson(Map.of("message", e.getMessage())));
         }
     }
 
     public void joinGame(Context ctx) {
         String authToken = ctx.header("authorization");
-        JsonObject body = new Gson().fromJson(ctx.body(), JsonObject.class);
+        JsonObject body = JsonCodec.GSON.fromJson(ctx.body(), JsonObject.class);
         body.addProperty("authToken", authToken);
-        JoinGameRequest request = new Gson().fromJson(body, JoinGameRequest.class);
+        JoinGameRequest request = JsonCodec.GSON.fromJson(body, JoinGameRequest.class);
 
         ctx.contentType("application/json");
 
@@ -70,7 +111,7 @@ public class GameServerHandler {
             ctx.status(200);
         } catch (BadRequestException | UnauthorizedException | AlreadyTakenException | DataAccessException e) {
             ctx.status(e.getStatusCode());
-            ctx.result(new Gson().toJson(Map.of("message", e.getMessage())));
+            ctx.result(JsonCodec.GSON.toJson(Map.of("message", e.getMessage())));
         }
     }
 }
@@ -2,10 +2,9 @@ package serverhandler;
 
 import java.util.Map;
 
-import com.google.gson.Gson;
-
 import dataaccess.DataAccessException;
 import io.javalin.http.Context;
+import model.JsonCodec;
 import model.exceptions.AlreadyTakenException;
 import model.exceptions.BadRequestException;
 import model.exceptions.UnauthorizedException;
@@ -24,33 +23,33 @@ public class UserServerHandler {
     }
 
     public void registerUser(Context ctx) {
-        RegisterRequest request = new Gson().fromJson(ctx.body(), RegisterRequest.class);
+        RegisterRequest request = JsonCodec.GSON.fromJson(ctx.body(), RegisterRequest.class);
         ctx.contentType("application/json");
 
         try {
             RegisterResult result = userService.register(request);
 
             ctx.status(200);
-            ctx.result(new Gson().toJson(result));
+            ctx.result(JsonCodec.GSON.toJson(result));
         } catch (BadRequestException | AlreadyTakenException | DataAccessException e) {
             ctx.status(e.getStatusCode());
-            ctx.result(new Gson().toJson(Map.of("message", e.getMessage())));
+            ctx.result(JsonCodec.GSON.toJson(Map.of("message", e.getMessage())));
         }
 
     }
 
     public void loginUser(Context ctx) {
-        SessionCreationRequest request = new Gson().fromJson(ctx.body(), SessionCreationRequest.class);
+        SessionCreationRequest request = JsonCodec.GSON.fromJson(ctx.body(), SessionCreationRequest.class);
         ctx.contentType("application/json");
 
         try {
             SessionCreationResult result = userService.login(request);
 
             ctx.status(200);
-            ctx.result(new Gson().toJson(result));
+            ctx.result(JsonCodec.GSON.toJson(result));
         } catch (BadRequestException | UnauthorizedException | DataAccessException e) {
             ctx.status(e.getStatusCode());
-            ctx.result(new Gson().toJson(Map.of("message", e.getMessage())));
+            ctx.result(JsonCodec.GSON.toJson(Map.of("message", e.getMessage())));
         }
 
     }
@@ -65,7 +64,7 @@ public class UserServerHandler {
             ctx.status(200);
         } catch (BadRequestException | UnauthorizedException | DataAccessException e) {
             ctx.status(e.getStatusCode());
-            ctx.result(new Gson().toJson(Map.of("message", e.getMessage())));
+            ctx.result(JsonCodec.GSON.toJson(Map.of("message", e.getMessage())));
         }
     }
 
@@ -0,0 +1,150 @@
+package service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import dataaccess.DataAccessException;
+import dataaccess.auth.AuthDAO;
+import model.AuthData;
+
+/**
+ * Remembers recent session lookups so authenticating a request doesn't need a
+ * database round trip. Valid tokens are remembered for {@code ttlMillis} and
+ * unknown tokens for {@code negativeTtlMillis}. Sessions created, ended or
+ * cleared through this cache take effect immediately; changes made directly
+ * to the {@link AuthDAO} are only seen once the cached entry expires.
+ */
+public class AuthCache {
+
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+    public static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000;
+    public static final long DEFAULT_NEGATIVE_TTL_MILLIS = 30 * 1000;
+
+    // A null session marks a token known not to exist
+    private record Entry(AuthData session, long expiresAt) {
+    }
+
+    private final AuthDAO authDAO;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+
+    // Access ordered, so iteration starts at the least recently used token
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Bumped by every invalidation, so a lookup that raced with one is not cached
+    private long generation = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    public AuthCache(AuthDAO authDAO) {
+        this(authDAO, DEFAULT_MAX_SIZE, DEFAULT_TTL_MILLIS, DEFAULT_NEGATIVE_TTL_MILLIS);
+    }
+
+    public AuthCache(AuthDAO authDAO, int maxSize, long ttlMillis, long negativeTtlMillis) {
+        this.authDAO = authDAO;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+    }
+
+    /**
+     * Looks up a session, going to the {@link AuthDAO} only if the token is not
+     * cached or its entry has expired
+     *
+     * @return the session, or null if the token is not valid
+     */
+    public AuthData getSession(String authToken) throws DataAccessException {
+        long startGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(authToken);
+            if (entry != null) {
+                if (entry.expiresAt() > System.currentTimeMillis()) {
+                    hits++;
+                    return entry.session();
+                }
+                entries.remove(authToken);
+            }
+            misses++;
+            startGeneration = generation;
+        }
+
+        AuthData session = authDAO.getSession(authToken);
+
+        synchronized (this) {
+            if (generation == startGeneration) {
+                put(authToken, session);
+            }
+        }
+        return session;
+    }
+
+    public void createSession(AuthData authData) throws DataAccessException {
+        authDAO.createSession(authData);
+        synchronized (this) {
+            put(authData.authToken(), authData);
+        }
+    }
+
+    public void terminateSession(String authToken) throws DataAccessException {
+        invalidate(authToken);
+        try {
+            authDAO.terminateSession(authToken);
+        } finally {
+            // Again, in case a lookup cached the session while it was being deleted
+            invalidate(authToken);
+        }
+    }
+
+    public void clear() throws DataAccessException {
+        invalidateAll();
+        try {
+            authDAO.clear();
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * @return how many tokens are currently cached, valid or not
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return how many lookups were answered from the cache
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * @return how many lookups had to go to the {@link AuthDAO}
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    private synchronized void invalidate(String authToken) {
+        generation++;
+        entries.remove(authToken);
+    }
+
+    private synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    private void put(String authToken, AuthData session) {
+        long ttl = session == null ? negativeTtlMillis : ttlMillis;
+        entries.put(authToken, new Entry(session, System.currentTimeMillis() + ttl));
+
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+}
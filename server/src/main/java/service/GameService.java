@@ -1,35 +1,96 @@
 package service;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import chess.ChessGame;
 import chess.ChessMove;
 import chess.InvalidMoveException;
+import chess.notation.NotationException;
+import chess.notation.PgnGame;
+import chess.notation.PgnReader;
 import dataaccess.DataAccessException;
 import dataaccess.auth.AuthDAO;
 import dataaccess.game.GameDAO;
+import metrics.Allocation;
+import metrics.CommandLatency;
+import metrics.CommandLatency.Stage;
+import model.AuthData;
 import model.GameData;
+import model.GameQuery;
 import model.exceptions.AlreadyTakenException;
 import model.exceptions.BadRequestException;
 import model.exceptions.UnauthorizedException;
 import model.requests.CreateGameRequest;
 import model.requests.JoinGameRequest;
 import model.results.GameCreationResult;
+import model.results.ImportGamesResult;
 import model.results.ListGamesResult;
 
 public class GameService extends Service {
 
+    // Compare-and-set attempts before giving up on a heavily contended game
+    private static final int MAX_UPDATE_ATTEMPTS = 10;
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    // Imported games stored per call to the DAO
+    private static final int IMPORT_BATCH_SIZE = 500;
+
     GameDAO gameDAO;
+    private final Lobby lobby;
 
     public GameService(GameDAO gameDAO, AuthDAO authDAO) throws DataAccessException {
         super(authDAO);
         this.gameDAO = gameDAO;
+        this.lobby = new Lobby(gameDAO);
+    }
+
+    public GameService(GameDAO gameDAO, AuthDAO authDAO, AuthCache authCache) throws DataAccessException {
+        super(authDAO, authCache);
+        this.gameDAO = gameDAO;
+        this.lobby = new Lobby(gameDAO);
     }
 
     public ListGamesResult listGames(String authToken) throws UnauthorizedException, DataAccessException {
+        return listGames(authToken, GameQuery.ALL);
+    }
+
+    /**
+     * Lists the games matching a query. A query without a limit lists every
+     * match at once; otherwise pages hold at most {@link #MAX_PAGE_SIZE} games
+     * and the result says where the next page starts.
+     */
+    public ListGamesResult listGames(String authToken, GameQuery query) throws UnauthorizedException, DataAccessException {
+        return getLobby(authToken).list(query);
+    }
+
+    /**
+     * Gets the lobby as it is now, to list games from and to tell clients
+     * whether it has changed since they last listed them
+     */
+    public Lobby.Snapshot getLobby(String authToken) throws UnauthorizedException, DataAccessException {
         isAuthorized(authToken);
 
-        return new ListGamesResult(gameDAO.getAllGames());
+        return lobby.snapshot();
+    }
+
+    /**
+     * Runs an action on the lobby as it is now, before any later change is
+     * passed to the lobby's listeners, see {@link Lobby#watch}
+     */
+    public void watchLobby(Consumer<Lobby.Snapshot> action) throws DataAccessException {
+        lobby.watch(action);
+    }
+
+    public void addLobbyListener(LobbyListener listener) {
+        lobby.addListener(listener);
     }
 
     public GameCreationResult createGame(CreateGameRequest request) throws BadRequestException, UnauthorizedException, DataAccessException {
@@ -41,7 +102,9 @@ public class GameService extends Service {
 
         int gameID = (new Random()).nextInt(Integer.MAX_VALUE - 1) + 1;
 
-        gameDAO.setGame(new GameData(gameID, null, null, request.gameName(), new ChessGame()));
+        GameData game = new GameData(gameID, null, null, request.gameName(), new ChessGame());
+        gameDAO.setGame(game);
+        lobby.update(game);
 
         return new GameCreationResult(gameID);
     }
@@ -50,42 +113,70 @@ public class GameService extends Service {
         if ((!"WHITE".equals(request.playerColor()) && !"BLACK".equals(request.playerColor())) || request.gameID() == 0) {
             throw new BadRequestException();
         }
-        isAuthorized(request.authToken());
+        AuthData session = authenticate(request.authToken());
+
+        String username = session.username();
 
-        GameData game = gameDAO.getGame(request.gameID());
-        String username = authDAO.getSession(request.authToken()).username();
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            // Joining only changes the players, so the board is never loaded
+            GameData game = gameDAO.getGameInfo(request.gameID());
+            if (game == null) {
+                throw new BadRequestException();
+            }
 
-        GameData updatedGame;
+            GameData updatedGame;
 
-        if ("WHITE".equals(request.playerColor())) {
-            if (game.whiteUsername() != null) {
-                throw new AlreadyTakenException();
+            if ("WHITE".equals(request.playerColor())) {
+                if (game.whiteUsername() != null) {
+                    throw new AlreadyTakenException();
+                }
+                updatedGame = new GameData(game.gameID(), username, game.blackUsername(), game.gameName(), game.game());
+            } else {
+                if (game.blackUsername() != null) {
+                    throw new AlreadyTakenException();
+                }
+                updatedGame = new GameData(game.gameID(), game.whiteUsername(), username, game.gameName(), game.game());
             }
-            updatedGame = new GameData(game.gameID(), username, game.blackUsername(), game.gameName(), game.game());
-        } else {
-            if (game.blackUsername() != null) {
-                throw new AlreadyTakenException();
+
+            // Fails if someone else joined or left since the game was read
+            if (gameDAO.compareAndSetGameInfo(game, updatedGame)) {
+                lobby.update(updatedGame.withVersion(game.version() + 1));
+                return true;
             }
-            updatedGame = new GameData(game.gameID(), game.whiteUsername(), username, game.gameName(), game.game());
         }
-
-        gameDAO.setGame(updatedGame);
-        return true;
+        throw contended(request.gameID());
     }
 
     public void leaveGame(int gameID, String username) throws DataAccessException  {
-        GameData game = gameDAO.getGame(gameID);
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            long start = System.nanoTime();
+            GameData game = gameDAO.getGameInfo(gameID);
+            CommandLatency.record(Stage.DAO_READ, start);
+            if (game == null) {
+                return;
+            }
 
-        GameData updatedGame = game;
+            GameData updatedGame = game;
 
-        if (game.whiteUsername() == null ? username == null : game.whiteUsername().equals(username)) {
-            updatedGame = new GameData(updatedGame.gameID(), null, updatedGame.blackUsername(), updatedGame.gameName(), updatedGame.game());
-        }
-        if (game.blackUsername() == null ? username == null : game.blackUsername().equals(username)) {
-            updatedGame = new GameData(updatedGame.gameID(), updatedGame.whiteUsername(), null, updatedGame.gameName(), updatedGame.game());
-        }
+            if (game.whiteUsername() == null ? username == null : game.whiteUsername().equals(username)) {
+                updatedGame = new GameData(updatedGame.gameID(), null, updatedGame.blackUsername(), updatedGame.gameName(), updatedGame.game());
+            }
+            if (game.blackUsername() == null ? username == null : game.blackUsername().equals(username)) {
+                updatedGame = new GameData(updatedGame.gameID(), updatedGame.whiteUsername(), null, updatedGame.gameName(), updatedGame.game());
+            }
 
-        gameDAO.setGame(updatedGame);
+            if (updatedGame == game) {
+                return;
+            }
+            start = System.nanoTime();
+            boolean stored = gameDAO.compareAndSetGameInfo(game, updatedGame);
+            CommandLatency.record(Stage.DAO_WRITE, start);
+            if (stored) {
+                lobby.update(updatedGame.withVersion(game.version() + 1));
+                return;
+            }
+        }
+        throw contended(gameID);
     }
 
     public GameData getGame(int gameID) throws BadRequestException, DataAccessException {
@@ -96,24 +187,160 @@ public class GameService extends Service {
         return game;
     }
 
-    public void makeMove(int gameID, ChessMove move) throws InvalidMoveException, DataAccessException {
-        GameData game = gameDAO.getGame(gameID);
+    /**
+     * Makes a move on the latest version of a game. If another move is stored
+     * first, the move is checked again against the new position, so two
+     * simultaneous moves cannot both be applied to the same position.
+     *
+     * @return the game after the move
+     */
+    public GameData makeMove(int gameID, ChessMove move) throws InvalidMoveException, DataAccessException {
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            long start = System.nanoTime();
+            GameData game = gameDAO.getGame(gameID);
+            CommandLatency.record(Stage.DAO_READ, start);
 
-        ChessGame chessGame = game.game();
+            // Games may be shared with a cache, so move on a copy
+            start = System.nanoTime();
+            ChessGame chessGame = game.game().copy();
+            try {
+                chessGame.makeMove(move);
+            } finally {
+                CommandLatency.record(Stage.LEGALITY, start);
+                Allocation.recordMove();
+            }
 
-        chessGame.makeMove(move);
-    
-        gameDAO.setGame(new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), chessGame));
+            GameData updatedGame = new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), chessGame);
+            start = System.nanoTime();
+            boolean stored = gameDAO.compareAndSetMove(game, updatedGame, move);
+            CommandLatency.record(Stage.DAO_WRITE, start);
+            if (stored) {
+                GameData movedGame = updatedGame.withVersion(game.version() + 1);
+                if (chessGame.getTeamTurn() == ChessGame.TeamColor.GAMEOVER) {
+                    // Checkmate or stalemate; other moves don't change what the lobby shows
+                    lobby.update(movedGame);
+                }
+                return movedGame;
+            }
+        }
+        throw contended(gameID);
     }
 
-    public void updateGame(int gameID, ChessGame update) throws DataAccessException {
-        GameData game = gameDAO.getGame(gameID);
-    
-        gameDAO.setGame(new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), update));
+    /**
+     * Ends a game where it stands, e.g. when a player resigns
+     *
+     * @return the ended game, or null if the game was already over
+     */
+    public GameData endGame(int gameID) throws DataAccessException {
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            long start = System.nanoTime();
+            GameData game = gameDAO.getGame(gameID);
+            CommandLatency.record(Stage.DAO_READ, start);
+            if (game.game().getTeamTurn() == ChessGame.TeamColor.GAMEOVER) {
+                return null;
+            }
+
+            ChessGame endedGame = game.game().copy();
+            endedGame.endGame();
+
+            GameData updatedGame = new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), endedGame);
+            start = System.nanoTime();
+            boolean stored = gameDAO.compareAndSetGame(game, updatedGame);
+            CommandLatency.record(Stage.DAO_WRITE, start);
+            if (stored) {
+                GameData endedGameData = updatedGame.withVersion(game.version() + 1);
+                lobby.update(endedGameData);
+                return endedGameData;
+            }
+        }
+        throw contended(gameID);
+    }
+
+    /**
+     * Creates a game for each game in a PGN archive, at the position its moves
+     * reach. Players in the archive are not users here, so the seats are left
+     * open and their names go into the game name. Games with illegal or
+     * malformed moves are skipped. Games are stored in batches, and any whose
+     * ID turns out to be taken get a new one.
+     *
+     * @param pgn the archive to read, which is not closed
+     * @return the IDs of the games that were created, and why the others were
+     *         skipped
+     */
+    public ImportGamesResult importGames(Reader pgn) throws IOException, DataAccessException {
+        PgnReader reader = new PgnReader(pgn);
+        List<Integer> gameIDs = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        List<GameData> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        Random random = new Random();
+
+        for (int index = 1;; index++) {
+            PgnGame imported;
+            try {
+                imported = reader.next();
+            } catch (NotationException e) {
+                skipped.add(String.format("Game %d: %s", index, e.getMessage()));
+                continue;
+            }
+            if (imported == null) {
+                break;
+            }
+
+            String gameName = String.format("%s vs %s", imported.tags().getOrDefault("White", "?"), imported.tags().getOrDefault("Black", "?"));
+            batch.add(new GameData(0, null, null, gameName, imported.game()));
+            if (batch.size() == IMPORT_BATCH_SIZE) {
+                importBatch(batch, random, gameIDs);
+                batch.clear();
+            }
+        }
+        importBatch(batch, random, gameIDs);
+        return new ImportGamesResult(gameIDs, skipped);
+    }
+
+    /**
+     * Stores imported games under fresh IDs, drawing new ones for any that
+     * clash with stored games
+     */
+    private void importBatch(List<GameData> batch, Random random, List<Integer> gameIDs) throws DataAccessException {
+        List<GameData> pending = batch;
+        for (int attempt = 0; !pending.isEmpty(); attempt++) {
+            if (attempt == MAX_UPDATE_ATTEMPTS) {
+                throw new DataAccessException("Error: could not find free IDs for imported games, try again");
+            }
+            // Distinct within the batch, so only stored games can clash
+            Set<Integer> used = new HashSet<>();
+            List<GameData> numbered = new ArrayList<>(pending.size());
+            for (GameData game : pending) {
+                int gameID;
+                do {
+                    gameID = random.nextInt(Integer.MAX_VALUE - 1) + 1;
+                } while (!used.add(gameID));
+                numbered.add(new GameData(gameID, null, null, game.gameName(), game.game()));
+            }
+
+            pending = gameDAO.importGames(numbered);
+            Set<Integer> taken = new HashSet<>();
+            for (GameData game : pending) {
+                taken.add(game.gameID());
+            }
+            List<GameData> stored = new ArrayList<>(numbered.size());
+            for (GameData game : numbered) {
+                if (!taken.contains(game.gameID())) {
+                    stored.add(game);
+                    gameIDs.add(game.gameID());
+                }
+            }
+            lobby.updateAll(stored);
+        }
     }
 
     public void clear() throws DataAccessException {
         gameDAO.clear();
+        lobby.clear();
+    }
+
+    private static DataAccessException contended(int gameID) {
+        return new DataAccessException(String.format("Error: game %d is being changed by too many players at once, try again", gameID));
     }
 
 }
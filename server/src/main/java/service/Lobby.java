@@ -0,0 +1,215 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import dataaccess.DataAccessException;
+import dataaccess.game.GameDAO;
+import model.GameData;
+import model.GameQuery;
+import model.GameStatus;
+import model.GameSummary;
+import model.LobbyEvent;
+import model.results.ListGamesResult;
+
+/**
+ * The list of games shown in the lobby, kept in memory so listing games
+ * doesn't read them all from the {@link GameDAO}. It is loaded from the DAO
+ * the first time it is needed, and after that {@link GameService} tells it
+ * about every game that is created, joined, left or ended. Each change gives
+ * the lobby a new version. Listings are served from an immutable
+ * {@link Snapshot}, which is only rebuilt after a change, so clients that
+ * poll it can be told nothing has changed. {@link LobbyListener}s are told
+ * about each change as it happens, so clients can be sent it rather than
+ * polling.
+ * <p>
+ * Only changes made through this server are seen, so servers sharing a
+ * database would each have their own, possibly stale, lobby.
+ */
+public class Lobby {
+
+    /**
+     * The lobby as it was at one version
+     *
+     * @param etag  the version, tagged so it is never reused by another run of
+     *              the server
+     * @param games every game, in order of ID
+     */
+    public record Snapshot(long version, String etag, List<GameSummary> games) {
+
+        /**
+         * Lists the games matching a query, in pages of at most
+         * {@link GameService#MAX_PAGE_SIZE} if it has a limit
+         */
+        public ListGamesResult list(GameQuery query) {
+            if (query.equals(GameQuery.ALL)) {
+                return new ListGamesResult(games);
+            }
+            int limit = query.limit() == 0 ? Integer.MAX_VALUE : Math.min(query.limit(), GameService.MAX_PAGE_SIZE);
+            List<GameSummary> page = new ArrayList<>();
+            for (int i = firstAfter(query.after()); i < games.size(); i++) {
+                GameSummary game = games.get(i);
+                if (!query.matches(game)) {
+                    continue;
+                }
+                if (page.size() == limit) {
+                    return new ListGamesResult(page, page.get(limit - 1).gameID());
+                }
+                page.add(game);
+            }
+            return new ListGamesResult(page);
+        }
+
+        private int firstAfter(int gameID) {
+            int low = 0;
+            int high = games.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (games.get(middle).gameID() <= gameID) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    // The version of the game it was last updated from, or -1 if loaded from the DAO
+    private record Entry(GameSummary summary, int version) {
+    }
+
+    private final GameDAO gameDAO;
+    private final List<LobbyListener> listeners = new CopyOnWriteArrayList<>();
+
+    // ETags from earlier runs of the server must never match this one's
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    // Null until loaded
+    private TreeMap<Integer, Entry> games;
+    private long version = 0;
+
+    // Null when the lobby has changed since it was last built
+    private volatile Snapshot snapshot;
+
+    public Lobby(GameDAO gameDAO) {
+        this.gameDAO = gameDAO;
+    }
+
+    /**
+     * @return the lobby as it is now, loading it if needed
+     */
+    public Snapshot snapshot() throws DataAccessException {
+        Snapshot current = snapshot;
+        return current != null ? current : rebuild();
+    }
+
+    public void addListener(LobbyListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Runs an action on the lobby as it is now, before any further change is
+     * passed to the listeners, so a listener added by the action misses
+     * nothing after the snapshot it was given
+     */
+    public synchronized void watch(Consumer<Snapshot> action) throws DataAccessException {
+        action.accept(rebuild());
+    }
+
+    /**
+     * Records a game as it was stored. Changes older than one already
+     * recorded are ignored, so updates to the same game may arrive in any
+     * order.
+     *
+     * @param game the game with the version it was stored at; its board may be
+     *             left out
+     */
+    synchronized void update(GameData game) {
+        if (games == null) {
+            // Loading will read it from the DAO
+            return;
+        }
+        Entry previous = games.get(game.gameID());
+        if (previous != null && previous.version() > game.version()) {
+            return;
+        }
+        GameSummary summary = GameSummary.of(game);
+        if (game.game() == null && previous != null && previous.summary().status() == GameStatus.FINISHED) {
+            // Without the board the summary can't tell the game is over
+            summary = new GameSummary(summary.gameID(), summary.whiteUsername(), summary.blackUsername(), summary.gameName(), GameStatus.FINISHED);
+        }
+        games.put(game.gameID(), new Entry(summary, game.version()));
+        if (previous == null || !previous.summary().equals(summary)) {
+            changed();
+            LobbyEvent event = event(previous == null ? null : previous.summary(), summary);
+            for (LobbyListener listener : listeners) {
+                listener.gameChanged(event, summary, version);
+            }
+        }
+    }
+
+    /**
+     * Records several stored games at once, see {@link #update(GameData)}
+     */
+    synchronized void updateAll(List<GameData> games) {
+        for (GameData game : games) {
+            update(game);
+        }
+    }
+
+    synchronized void clear() throws DataAccessException {
+        // Cleared, so there is nothing left to load
+        games = new TreeMap<>();
+        changed();
+        if (!listeners.isEmpty()) {
+            Snapshot cleared = rebuild();
+            for (LobbyListener listener : listeners) {
+                listener.lobbyReset(cleared);
+            }
+        }
+    }
+
+    private synchronized Snapshot rebuild() throws DataAccessException {
+        if (snapshot != null) {
+            return snapshot;
+        }
+        if (games == null) {
+            TreeMap<Integer, Entry> loaded = new TreeMap<>();
+            for (GameSummary game : gameDAO.listGames(GameQuery.ALL)) {
+                loaded.put(game.gameID(), new Entry(game, -1));
+            }
+            games = loaded;
+        }
+        List<GameSummary> summaries = new ArrayList<>(games.size());
+        for (Entry entry : games.values()) {
+            summaries.add(entry.summary());
+        }
+        snapshot = new Snapshot(version, String.format("\"%s-%d\"", epoch, version), Collections.unmodifiableList(summaries));
+        return snapshot;
+    }
+
+    private void changed() {
+        version++;
+        snapshot = null;
+    }
+
+    private static LobbyEvent event(GameSummary previous, GameSummary current) {
+        if (previous == null) {
+            return LobbyEvent.CREATED;
+        }
+        if (current.status() == GameStatus.FINISHED && previous.status() != GameStatus.FINISHED) {
+            return LobbyEvent.GAME_OVER;
+        }
+        return seatsTaken(current) >= seatsTaken(previous) ? LobbyEvent.SEAT_TAKEN : LobbyEvent.SEAT_FREED;
+    }
+
+    private static int seatsTaken(GameSummary game) {
+        return (game.whiteUsername() == null ? 0 : 1) + (game.blackUsername() == null ? 0 : 1);
+    }
+}
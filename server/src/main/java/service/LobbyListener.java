@@ -0,0 +1,23 @@
+package service;
+
+import model.GameSummary;
+import model.LobbyEvent;
+
+/**
+ * Told about each change to the {@link Lobby}. Calls are made with the lobby
+ * locked, so they arrive in version order and must not block.
+ */
+public interface LobbyListener {
+
+    /**
+     * @param game    the game after the change
+     * @param version the lobby's version after the change
+     */
+    void gameChanged(LobbyEvent event, GameSummary game, long version);
+
+    /**
+     * The lobby was emptied, or otherwise changed too much to describe game by
+     * game
+     */
+    void lobbyReset(Lobby.Snapshot snapshot);
+}
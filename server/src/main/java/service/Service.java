@@ -2,19 +2,42 @@ package service;
 
 import dataaccess.DataAccessException;
 import dataaccess.auth.AuthDAO;
+import model.AuthData;
 import model.exceptions.UnauthorizedException;
 
 public abstract class Service {
 
     AuthDAO authDAO;
+    AuthCache authCache;
 
     public Service(AuthDAO authDAO) {
+        this(authDAO, new AuthCache(authDAO));
+    }
+
+    /**
+     * @param authCache a cache over {@code authDAO}, which should be shared by
+     *                  every service so logging out is seen by all of them
+     */
+    public Service(AuthDAO authDAO, AuthCache authCache) {
         this.authDAO = authDAO;
+        this.authCache = authCache;
     }
 
     protected void isAuthorized(String authToken) throws UnauthorizedException, DataAccessException {
-        if (authToken == null || authDAO.getSession(authToken) == null) {
+        authenticate(authToken);
+    }
+
+    /**
+     * Looks up the session for a token
+     *
+     * @return the session
+     * @throws UnauthorizedException if the token is missing or not valid
+     */
+    protected AuthData authenticate(String authToken) throws UnauthorizedException, DataAccessException {
+        AuthData session = authToken == null ? null : authCache.getSession(authToken);
+        if (session == null) {
             throw new UnauthorizedException();
         }
+        return session;
     }
 }
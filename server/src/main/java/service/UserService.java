@@ -26,6 +26,11 @@ public class UserService extends Service {
         this.userDAO = userDAO;
     }
 
+    public UserService(UserDAO userDAO, AuthDAO authDAO, AuthCache authCache) {
+        super(authDAO, authCache);
+        this.userDAO = userDAO;
+    }
+
     public RegisterResult register(RegisterRequest request) throws BadRequestException, AlreadyTakenException, DataAccessException {
 
         if (request == null || request.username() == null || request.password() == null || request.email() == null) {
@@ -67,26 +72,22 @@ public class UserService extends Service {
 
         isAuthorized(authToken);
 
-        authDAO.terminateSession(authToken);
+        authCache.terminateSession(authToken);
     }
 
     public void clear() throws DataAccessException {
         userDAO.clear();
-        authDAO.clear();
+        authCache.clear();
     }
 
     public String getUserFromAuth(String authToken) throws UnauthorizedException, DataAccessException {
-        AuthData authData = authDAO.getSession(authToken);
-        if (authData == null) {
-            throw new UnauthorizedException();
-        }
-        return authData.username();
+        return authenticate(authToken).username();
     }
 
     private String createSession(String username) throws DataAccessException {
         String authToken = UUID.randomUUID().toString();
 
-        authDAO.createSession(new AuthData(authToken, username));
+        authCache.createSession(new AuthData(authToken, username));
 
         return authToken;
     }
@@ -1,41 +1,454 @@
 package websocket;
 
-import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import org.eclipse.jetty.websocket.api.Session;
 
-import com.google.gson.Gson;
-
+import metrics.CommandLatency;
+import metrics.CommandLatency.Stage;
+import metrics.MetricsWriter;
+import model.GameData;
+import websocket.messages.MoveMessage;
 import websocket.messages.ServerMessage;
 
+/**
+ * Tracks which game each websocket session is watching. Sessions are indexed
+ * by game, so a broadcast only visits the sessions of that game. Messages are
+ * serialized once per broadcast. Each watched game keeps its latest
+ * {@code LOAD_GAME} and recent changes, see {@link GameStream}, so sessions
+ * that connect later need no re-serializing and sessions that reconnect can
+ * catch up. Sends are asynchronous and queued per session, see
+ * {@link OutboundQueue}, in JSON text frames or, for sessions that asked
+ * for them, binary frames.
+ * <p>
+ * Spectators are kept apart from players. A game's players are sent each
+ * message first, straight from the broadcasting thread; spectators are spread
+ * over {@link SpectatorShard}s that send to them in parallel, so a crowd of
+ * spectators doesn't slow the game down for its players.
+ * <p>
+ * Sessions may also watch the lobby, whichever game they are in, and are sent
+ * each change to it.
+ */
 public class ConnectionManager {
-    public final ConcurrentHashMap<Session, Session> connections = new ConcurrentHashMap<>();
-    public final ConcurrentHashMap<Session, Integer> gameLobbies = new ConcurrentHashMap<>();
+    public static final int DEFAULT_MAX_QUEUED = 64;
+    public static final long DEFAULT_MAX_STALL_MILLIS = 10_000;
+    public static final int DEFAULT_REPLAY_CAPACITY = 64;
+    public static final int DEFAULT_SPECTATOR_SHARDS = Runtime.getRuntime().availableProcessors();
+
+    // The sessions subscribed to one game
+    private static class Subscribers {
+        final Set<Session> players = ConcurrentHashMap.newKeySet();
+        volatile int spectators = 0;
+
+        boolean isEmpty() {
+            return players.isEmpty() && spectators == 0;
+        }
+    }
+
+    private final Map<Integer, Subscribers> gameSessions = new ConcurrentHashMap<>();
+    private final Map<Session, Integer> gameLobbies = new ConcurrentHashMap<>();
+    private final Map<Session, SpectatorShard> spectatorShards = new ConcurrentHashMap<>();
+    private final Set<Session> moveSubscribers = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, GameStream> streams = new ConcurrentHashMap<>();
+    private final Map<Session, OutboundQueue> outboundQueues = new ConcurrentHashMap<>();
+    private final Set<Session> lobbyWatchers = ConcurrentHashMap.newKeySet();
+
+    private final int maxQueued;
+    private final long maxStallMillis;
+    private final int replayCapacity;
+    private final SpectatorShard[] shards;
+
+    public ConnectionManager() {
+        this(DEFAULT_MAX_QUEUED, DEFAULT_MAX_STALL_MILLIS, DEFAULT_REPLAY_CAPACITY);
+    }
+
+    public ConnectionManager(int maxQueued, long maxStallMillis) {
+        this(maxQueued, maxStallMillis, DEFAULT_REPLAY_CAPACITY);
+    }
+
+    /**
+     * @param maxQueued      how many messages a session may have waiting before
+     *                       it is disconnected
+     * @param maxStallMillis how long a single send may take before the session
+     *                       is disconnected
+     * @param replayCapacity how many recent changes each watched game keeps
+     *                       for sessions that reconnect
+     */
+    public ConnectionManager(int maxQueued, long maxStallMillis, int replayCapacity) {
+        this(maxQueued, maxStallMillis, replayCapacity, DEFAULT_SPECTATOR_SHARDS);
+    }
+
+    /**
+     * @param spectatorShards how many writer threads share the sending to
+     *                        spectators
+     */
+    public ConnectionManager(int maxQueued, long maxStallMillis, int replayCapacity, int spectatorShards) {
+        this.maxQueued = maxQueued;
+        this.maxStallMillis = maxStallMillis;
+        this.replayCapacity = replayCapacity;
+        this.shards = new SpectatorShard[Math.max(1, spectatorShards)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new SpectatorShard(i);
+        }
+    }
+
+    /**
+     * Starts serving a newly connected session, giving it a queue for what it
+     * is sent. Sessions without one are closed, and sends to them are dropped.
+     */
+    public void connect(Session session) {
+        if (!session.isOpen()) {
+            return;
+        }
+        outboundQueues.computeIfAbsent(session, s -> new OutboundQueue(s, maxQueued, maxStallMillis));
+        // Closed meanwhile, so close may have run before the queue was made
+        if (!session.isOpen()) {
+            close(session);
+        }
+    }
 
     public void add(Session session, int gameID) {
-        connections.put(session, session);
-        gameLobbies.put(session, gameID);
+        add(session, gameID, false, false);
+    }
+
+    public void add(Session session, int gameID, boolean moveUpdates) {
+        add(session, gameID, moveUpdates, false);
     }
 
+    /**
+     * Subscribes a session to a game, moving it out of any game it was in
+     *
+     * @param moveUpdates whether the session gets each move as a
+     *                    {@code MOVE} message rather than a whole
+     *                    {@code LOAD_GAME}
+     * @param spectator   whether the session is only watching, so is sent to
+     *                    from a spectator shard after the players
+     */
+    public void add(Session session, int gameID, boolean moveUpdates, boolean spectator) {
+        // Commands can still be handled after their session closed
+        if (!session.isOpen()) {
+            return;
+        }
+        connect(session);
+        if (moveUpdates) {
+            moveSubscribers.add(session);
+        } else {
+            moveSubscribers.remove(session);
+        }
+        Integer previous = gameLobbies.put(session, gameID);
+        boolean wasSpectator = spectatorShards.containsKey(session);
+        if (previous != null && (previous != gameID || wasSpectator != spectator)) {
+            unsubscribe(session, previous);
+        } else if (previous != null) {
+            return;
+        }
+
+        if (spectator) {
+            SpectatorShard shard = shards[Math.floorMod(session.hashCode(), shards.length)];
+            spectatorShards.put(session, shard);
+            shard.add(session, gameID);
+        }
+        gameSessions.compute(gameID, (id, subscribers) -> {
+            if (subscribers == null) {
+                subscribers = new Subscribers();
+            }
+            if (spectator) {
+                subscribers.spectators++;
+            } else {
+                subscribers.players.add(session);
+            }
+            return subscribers;
+        });
+        if (!session.isOpen()) {
+            close(session);
+        }
+    }
+
+    /**
+     * Chooses whether a session is sent binary frames, see
+     * {@link BinaryProtocol}, or JSON text frames
+     */
+    public void useBinary(Session session, boolean binary) {
+        OutboundQueue queue = outboundQueues.get(session);
+        if (queue != null) {
+            queue.useBinary(binary);
+        }
+    }
+
+    /**
+     * Unsubscribes a session from its game
+     */
     public void remove(Session session) {
-        connections.remove(session);
-        gameLobbies.remove(session);
+        Integer gameID = gameLobbies.remove(session);
+        if (gameID != null) {
+            unsubscribe(session, gameID);
+        }
+        moveSubscribers.remove(session);
+    }
+
+    public void addLobbyWatcher(Session session) {
+        lobbyWatchers.add(session);
+    }
+
+    public void removeLobbyWatcher(Session session) {
+        lobbyWatchers.remove(session);
+    }
+
+    /**
+     * Queues a message for every open session watching the lobby
+     */
+    public void broadcastLobby(ServerMessage message) {
+        if (lobbyWatchers.isEmpty()) {
+            return;
+        }
+        EncodedMessage encoded = EncodedMessage.of(message);
+        for (Session c : lobbyWatchers) {
+            if (!c.isOpen()) {
+                close(c);
+            } else {
+                dm(c, encoded);
+            }
+        }
+    }
+
+    /**
+     * Forgets a closed session, dropping anything still queued for it
+     */
+    public void close(Session session) {
+        remove(session);
+        lobbyWatchers.remove(session);
+        OutboundQueue queue = outboundQueues.remove(session);
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    /**
+     * @return how many sessions are subscribed to a game
+     */
+    public int subscribers(int gameID) {
+        Subscribers subscribers = gameSessions.get(gameID);
+        return subscribers == null ? 0 : subscribers.players.size() + subscribers.spectators;
+    }
+
+    /**
+     * Gets the {@code LOAD_GAME} message for a game, reusing the serialized
+     * message if the game has not changed since it was last built
+     */
+    public EncodedMessage loadGameMessage(GameData game) {
+        return stream(game).loadGame(game);
+    }
+
+    /**
+     * Sends a session the messages it missed since {@code lastSequence}, as
+     * whole games or move updates depending on how it subscribed
+     *
+     * @return false if they are no longer all kept, so the session needs the
+     *         whole game instead
+     */
+    public boolean resume(Session session, GameData game, int lastSequence) {
+        if (lastSequence > game.version()) {
+            return false;
+        }
+        List<GameStream.Update> missed = stream(game).since(lastSequence);
+        if (missed == null) {
+            return false;
+        }
+        boolean moveUpdates = moveSubscribers.contains(session);
+        for (GameStream.Update update : missed) {
+            dm(session, moveUpdates ? update.update() : update.loadGame());
+        }
+        return true;
+    }
+
+    public void broadcast(Session excludeSession, int gameID, ServerMessage notification) {
+        broadcast(excludeSession, gameID, EncodedMessage.of(notification));
     }
 
-    public void broadcast(Session excludeSession, int gameID, ServerMessage notification) throws IOException {
-        String msg = new Gson().toJson(notification);
-        for (Session c : connections.values()) {
-            if (c.isOpen()) {
-                if (!c.equals(excludeSession) && gameLobbies.get(c) == gameID) {
-                    c.getRemote().sendString(msg);
-                }
+    /**
+     * Queues a message for every open session subscribed to a game. Sessions
+     * found closed are forgotten.
+     */
+    public void broadcast(Session excludeSession, int gameID, EncodedMessage message) {
+        fanOut(gameID, excludeSession, session -> message);
+    }
+
+    /**
+     * Sends a message that changed the game to every session, numbering it with
+     * the game's new version and keeping it for sessions that reconnect
+     *
+     * @param game the game after the change
+     */
+    public void broadcastUpdate(Session excludeSession, GameData game, ServerMessage message) {
+        message.setSequence(game.version());
+        EncodedMessage encoded = EncodedMessage.of(message);
+        stream(game).record(new GameStream.Update(game.version(), encoded, encoded));
+        broadcast(excludeSession, game.gameID(), encoded);
+    }
+
+    /**
+     * Sends a move to every open session subscribed to a game: just the move
+     * to sessions that asked for move updates, the whole game to the rest
+     *
+     * @param game the game after the move
+     */
+    public void broadcastMove(GameData game, MoveMessage move) {
+        move.setSequence(game.version());
+        EncodedMessage loadGame = loadGameMessage(game);
+        EncodedMessage encodedMove = EncodedMessage.of(move);
+        stream(game).record(new GameStream.Update(game.version(), loadGame, encodedMove));
+
+        fanOut(game.gameID(), null, session -> moveSubscribers.contains(session) ? encodedMove : loadGame);
+    }
+
+    public void dm(Session targetSession, ServerMessage notification) {
+        dm(targetSession, EncodedMessage.of(notification));
+    }
+
+    /**
+     * Queues a message for one session, dropping it if the session has closed
+     */
+    public void dm(Session targetSession, EncodedMessage message) {
+        if (!targetSession.isOpen()) {
+            return;
+        }
+        SpectatorShard shard = spectatorShards.get(targetSession);
+        if (shard == null) {
+            sendQueued(targetSession, message);
+        } else {
+            // Behind anything the shard is already sending the spectator
+            shard.execute(() -> sendQueued(targetSession, message));
+        }
+    }
+
+    /**
+     * @return how many messages are waiting to be sent to a session
+     */
+    public int queued(Session session) {
+        OutboundQueue queue = outboundQueues.get(session);
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Writes gauges for the sessions subscribed to each game and the messages
+     * waiting to be sent. Only called when metrics are scraped, so nothing is
+     * counted on the sending path.
+     */
+    public void writeMetrics(MetricsWriter out) {
+        out.family("chess_ws_sessions", "gauge", "Open websocket sessions");
+        out.sample("chess_ws_sessions", outboundQueues.size());
+        out.family("chess_lobby_sessions", "gauge", "Sessions watching the lobby");
+        out.sample("chess_lobby_sessions", lobbyWatchers.size());
+        out.family("chess_game_sessions", "gauge", "Sessions subscribed to each game");
+        gameSessions.forEach((gameID, subscribers) -> {
+            String game = Integer.toString(gameID);
+            out.sample("chess_game_sessions", subscribers.players.size(), "game", game, "role", "player");
+            out.sample("chess_game_sessions", subscribers.spectators, "game", game, "role", "spectator");
+        });
+
+        long queued = 0;
+        int maxQueued = 0;
+        for (OutboundQueue queue : outboundQueues.values()) {
+            int size = queue.size();
+            queued += size;
+            maxQueued = Math.max(maxQueued, size);
+        }
+        out.family("chess_ws_queued_messages", "gauge", "Messages waiting to be sent across all sessions");
+        out.sample("chess_ws_queued_messages", queued);
+        out.family("chess_ws_max_queued_messages", "gauge", "Messages waiting to be sent to the most backed up session");
+        out.sample("chess_ws_max_queued_messages", maxQueued);
+    }
+
+    /**
+     * Stops the spectator shards, waiting for what they have queued
+     */
+    public void shutdown() {
+        for (SpectatorShard shard : shards) {
+            shard.close();
+        }
+    }
+
+    /**
+     * Sends each subscriber of a game its version of a message: the players
+     * from this thread, then the spectators from their shards
+     */
+    private void fanOut(int gameID, Session excludeSession, Function<Session, EncodedMessage> messageFor) {
+        Subscribers subscribers = gameSessions.get(gameID);
+        if (subscribers == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        for (Session c : subscribers.players) {
+            if (!c.isOpen()) {
+                close(c);
+            } else if (!c.equals(excludeSession)) {
+                sendQueued(c, messageFor.apply(c));
             }
         }
+        if (subscribers.spectators > 0) {
+            for (SpectatorShard shard : shards) {
+                shard.forEach(gameID, c -> {
+                    if (!c.isOpen()) {
+                        close(c);
+                    } else if (!c.equals(excludeSession)) {
+                        sendQueued(c, messageFor.apply(c));
+                    }
+                });
+            }
+        }
+        // Only the handing off is timed; the shards send on their own threads
+        CommandLatency.record(Stage.FAN_OUT, start);
+    }
+
+    /**
+     * Sends to a session only if it still has a queue, so sends left over
+     * from before it closed don't bring it back
+     */
+    private void sendQueued(Session session, EncodedMessage message) {
+        OutboundQueue queue = outboundQueues.get(session);
+        if (queue != null) {
+            queue.send(message);
+        }
     }
 
-    public void dm(Session targetSession, ServerMessage notification) throws IOException {
-        String msg = new Gson().toJson(notification);
-        targetSession.getRemote().sendString(msg);
+    /**
+     * Gets a game's stream. Only watched games keep one; for others a
+     * throwaway stream is returned.
+     */
+    private GameStream stream(GameData game) {
+        GameStream stream = streams.get(game.gameID());
+        if (stream != null) {
+            return stream;
+        }
+        GameStream created = new GameStream(game.version(), replayCapacity);
+        if (subscribers(game.gameID()) == 0) {
+            return created;
+        }
+        GameStream existing = streams.putIfAbsent(game.gameID(), created);
+        return existing != null ? existing : created;
+    }
+
+    private void unsubscribe(Session session, int gameID) {
+        SpectatorShard shard = spectatorShards.remove(session);
+        if (shard != null) {
+            shard.remove(session, gameID);
+        }
+        // Dropping the empty entry happens inside compute, so it cannot race with add
+        gameSessions.computeIfPresent(gameID, (id, subscribers) -> {
+            if (shard != null) {
+                subscribers.spectators--;
+            } else {
+                subscribers.players.remove(session);
+            }
+            if (subscribers.isEmpty()) {
+                streams.remove(gameID);
+                return null;
+            }
+            return subscribers;
+        });
     }
 }
@@ -0,0 +1,25 @@
+package websocket;
+
+import metrics.CommandLatency;
+import metrics.CommandLatency.Stage;
+import model.JsonCodec;
+import websocket.messages.ServerMessage;
+import websocket.messages.ServerMessage.ServerMessageType;
+
+/**
+ * A server message serialized once, so the same text can be sent to any
+ * number of sessions. The binary form, see {@link BinaryProtocol}, is a few
+ * dozen bytes and is built alongside for sessions that asked for it; messages
+ * without one have a null {@code binary} and are sent as JSON to every
+ * session.
+ */
+public record EncodedMessage(ServerMessageType type, String json, byte[] binary) {
+
+    public static EncodedMessage of(ServerMessage message) {
+        long start = System.nanoTime();
+        EncodedMessage encoded = new EncodedMessage(message.getServerMessageType(), JsonCodec.GSON.toJson(message),
+                BinaryProtocol.canEncode(message) ? BinaryProtocol.encodeMessage(message) : null);
+        CommandLatency.record(Stage.SERIALIZATION, start);
+        return encoded;
+    }
+}
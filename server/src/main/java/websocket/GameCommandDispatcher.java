@@ -0,0 +1,76 @@
+package websocket;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the commands for each game one at a time, in the order they arrived,
+ * while commands for different games run in parallel. Each game with pending
+ * commands has a mailbox drained by a single virtual thread; the mailbox is
+ * dropped as soon as it is empty, so idle games cost nothing.
+ */
+public class GameCommandDispatcher {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // A game has a mailbox exactly while one of its commands is queued or running
+    private final Map<Integer, ArrayDeque<Runnable>> mailboxes = new ConcurrentHashMap<>();
+
+    /**
+     * Queues a command to run after every command already queued for the game
+     */
+    public void dispatch(int gameID, Runnable command) {
+        boolean[] idle = { false };
+        mailboxes.compute(gameID, (id, mailbox) -> {
+            if (mailbox == null) {
+                mailbox = new ArrayDeque<>();
+                idle[0] = true;
+            }
+            mailbox.add(command);
+            return mailbox;
+        });
+        if (idle[0]) {
+            executor.execute(() -> drain(gameID));
+        }
+    }
+
+    /**
+     * Stops accepting commands and waits for queued ones to finish
+     */
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain(int gameID) {
+        while (true) {
+            // The mailbox is only touched inside compute, which locks it
+            Runnable[] next = { null };
+            mailboxes.computeIfPresent(gameID, (id, mailbox) -> {
+                next[0] = mailbox.peek();
+                return next[0] == null ? null : mailbox;
+            });
+            if (next[0] == null) {
+                return;
+            }
+            try {
+                next[0].run();
+            } catch (RuntimeException e) {
+                System.err.println(String.format("Command for game %d failed: %s", gameID, e.getMessage()));
+            } finally {
+                mailboxes.computeIfPresent(gameID, (id, mailbox) -> {
+                    mailbox.poll();
+                    return mailbox;
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package websocket;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import model.GameData;
+import websocket.messages.LoadGameMessage;
+
+/**
+ * The recent history of one watched game. Each message that changes the game
+ * is numbered with the game version it produced, and the last few are kept
+ * so a session that reconnects can catch up on what it missed instead of
+ * reloading the whole game. The latest {@code LOAD_GAME} is kept serialized
+ * too.
+ */
+class GameStream {
+
+    /**
+     * One change, as sent to sessions that get whole games and to sessions
+     * that get move updates
+     */
+    record Update(int sequence, EncodedMessage loadGame, EncodedMessage update) {
+    }
+
+    private final int capacity;
+    private final ArrayDeque<Update> recent = new ArrayDeque<>();
+
+    // Every update with a later sequence than this is still in recent
+    private int coveredFrom;
+
+    private int loadGameVersion;
+    private EncodedMessage loadGame;
+
+    GameStream(int version, int capacity) {
+        this.coveredFrom = version;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets the {@code LOAD_GAME} message for the game, reusing the serialized
+     * message if the game has not changed since it was last built
+     */
+    synchronized EncodedMessage loadGame(GameData game) {
+        if (loadGame != null && loadGameVersion == game.version()) {
+            return loadGame;
+        }
+        LoadGameMessage message = new LoadGameMessage(game.game());
+        message.setSequence(game.version());
+        EncodedMessage encoded = EncodedMessage.of(message);
+        // Never replaced by an older version
+        if (loadGame == null || game.version() > loadGameVersion) {
+            loadGame = encoded;
+            loadGameVersion = game.version();
+        }
+        return encoded;
+    }
+
+    synchronized void record(Update update) {
+        recent.add(update);
+        while (recent.size() > capacity) {
+            coveredFrom = recent.poll().sequence();
+        }
+    }
+
+    /**
+     * @return the updates after {@code sequence}, or null if some of them are
+     *         no longer kept
+     */
+    synchronized List<Update> since(int sequence) {
+        if (sequence < coveredFrom) {
+            return null;
+        }
+        List<Update> missed = new ArrayList<>();
+        for (Update update : recent) {
+            if (update.sequence() > sequence) {
+                missed.add(update);
+            }
+        }
+        return missed;
+    }
+}
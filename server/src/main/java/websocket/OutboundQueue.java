@@ -0,0 +1,126 @@
+package websocket;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import websocket.messages.ServerMessage.ServerMessageType;
+
+/**
+ * Messages waiting to be sent to one session. Only one message is written at
+ * a time, without blocking the caller, so a slow client only delays itself.
+ * A queued {@code LOAD_GAME} is replaced by a newer one, since only the latest
+ * board matters. A session that falls too far behind, or whose current write
+ * has been stuck too long, is disconnected. Messages go out as JSON text
+ * frames unless the session asked for binary frames.
+ */
+class OutboundQueue implements WriteCallback {
+
+    private final Session session;
+    private final int maxQueued;
+    private final long maxStallMillis;
+
+    private final ArrayDeque<EncodedMessage> queue = new ArrayDeque<>();
+    private boolean sending = false;
+    private long sendStartedAt;
+    private boolean closed = false;
+    private volatile boolean binary = false;
+
+    OutboundQueue(Session session, int maxQueued, long maxStallMillis) {
+        this.session = session;
+        this.maxQueued = maxQueued;
+        this.maxStallMillis = maxStallMillis;
+    }
+
+    void send(EncodedMessage message) {
+        boolean disconnect = false;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (message.type() == ServerMessageType.LOAD_GAME) {
+                removeQueued(ServerMessageType.LOAD_GAME);
+            }
+            if (queue.size() >= maxQueued || (sending && System.currentTimeMillis() - sendStartedAt > maxStallMillis)) {
+                closed = true;
+                queue.clear();
+                disconnect = true;
+            } else {
+                queue.add(message);
+                if (sending) {
+                    return;
+                }
+                sending = true;
+            }
+        }
+
+        if (disconnect) {
+            System.err.println("Disconnecting websocket that is not keeping up");
+            session.close(StatusCode.TRY_AGAIN_LATER, "Too slow to receive game updates");
+            return;
+        }
+        sendNext();
+    }
+
+    /**
+     * Drops everything still queued
+     */
+    synchronized void close() {
+        closed = true;
+        queue.clear();
+    }
+
+    /**
+     * Switches between binary and JSON text frames, starting with the next
+     * message written
+     */
+    void useBinary(boolean binary) {
+        this.binary = binary;
+    }
+
+    synchronized int size() {
+        return queue.size();
+    }
+
+    @Override
+    public void writeSuccess() {
+        sendNext();
+    }
+
+    @Override
+    public void writeFailed(Throwable cause) {
+        System.err.println("Unable to send to websocket: " + cause.getMessage());
+        sendNext();
+    }
+
+    private void sendNext() {
+        EncodedMessage next;
+        synchronized (this) {
+            next = closed ? null : queue.poll();
+            if (next == null) {
+                sending = false;
+                return;
+            }
+            sendStartedAt = System.currentTimeMillis();
+        }
+        if (binary && next.binary() != null) {
+            // Each send gets its own buffer over the shared bytes
+            session.getRemote().sendBytes(ByteBuffer.wrap(next.binary()), this);
+        } else {
+            session.getRemote().sendString(next.json(), this);
+        }
+    }
+
+    private void removeQueued(ServerMessageType type) {
+        Iterator<EncodedMessage> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().type() == type) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package websocket;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.eclipse.jetty.websocket.api.Session;
+
+/**
+ * A slice of the sessions watching games without playing in them, with its
+ * own writer thread. A broadcast hands each shard the already encoded message
+ * and returns; the shards then queue it for their spectators in parallel, so
+ * a game with many spectators doesn't hold up the command that changed it or
+ * the game's players.
+ * <p>
+ * Everything a shard does runs on its writer thread in the order it was asked
+ * for, so a spectator's messages are never reordered.
+ */
+class SpectatorShard {
+
+    private final ExecutorService writer;
+
+    // Only touched on the writer thread
+    private final Map<Integer, Set<Session>> gameSessions = new HashMap<>();
+
+    SpectatorShard(int index) {
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "spectator-shard-" + index);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void add(Session session, int gameID) {
+        execute(() -> gameSessions.computeIfAbsent(gameID, id -> new HashSet<>()).add(session));
+    }
+
+    void remove(Session session, int gameID) {
+        execute(() -> {
+            Set<Session> sessions = gameSessions.get(gameID);
+            if (sessions != null && sessions.remove(session) && sessions.isEmpty()) {
+                gameSessions.remove(gameID);
+            }
+        });
+    }
+
+    /**
+     * Runs an action for each of the shard's spectators of a game. Sessions
+     * removed by the action are only dropped once it has finished.
+     */
+    void forEach(int gameID, Consumer<Session> action) {
+        execute(() -> {
+            Set<Session> sessions = gameSessions.get(gameID);
+            if (sessions != null) {
+                sessions.forEach(action);
+            }
+        });
+    }
+
+    void execute(Runnable task) {
+        try {
+            writer.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Shutting down, so nothing more will be sent
+        }
+    }
+
+    /**
+     * Stops accepting work and waits for queued work to finish
+     */
+    void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
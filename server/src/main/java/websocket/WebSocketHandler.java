@@ -1,36 +1,48 @@
 package websocket;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.eclipse.jetty.websocket.api.Session;
 
-import com.google.gson.Gson;
-
 import chess.ChessGame;
 import chess.ChessMove;
 import chess.ChessPiece;
 import chess.InvalidMoveException;
 import dataaccess.DataAccessException;
+import io.javalin.websocket.WsBinaryMessageContext;
+import io.javalin.websocket.WsBinaryMessageHandler;
 import io.javalin.websocket.WsCloseContext;
 import io.javalin.websocket.WsCloseHandler;
 import io.javalin.websocket.WsConnectContext;
 import io.javalin.websocket.WsConnectHandler;
 import io.javalin.websocket.WsMessageContext;
 import io.javalin.websocket.WsMessageHandler;
+import metrics.CommandLatency;
+import metrics.CommandLatency.Stage;
 import model.GameData;
+import model.GameSummary;
+import model.JsonCodec;
+import model.LobbyEvent;
 import model.exceptions.BadRequestException;
 import model.exceptions.UnauthorizedException;
 import service.GameService;
+import service.Lobby;
+import service.LobbyListener;
 import service.UserService;
+import websocket.commands.ConnectCommand;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
 import websocket.messages.ErrorMessage;
-import websocket.messages.LoadGameMessage;
+import websocket.messages.LobbyMessage;
+import websocket.messages.LobbyUpdateMessage;
+import websocket.messages.MoveMessage;
 import websocket.messages.NotificationMessage;
 
-public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsCloseHandler {
+public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsBinaryMessageHandler, WsCloseHandler, LobbyListener {
 
     private final ConnectionManager connections = new ConnectionManager();
+    private final GameCommandDispatcher dispatcher = new GameCommandDispatcher();
+    private final CommandLatency latency = new CommandLatency();
 
     private final UserService userService;
     private final GameService gameService;
@@ -39,50 +51,132 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
         super();
         this.userService = userService;
         this.gameService = gameService;
+        gameService.addLobbyListener(this);
     }
 
     @Override
     public void handleConnect(WsConnectContext ctx) {
         System.out.println("Websocket connected");
         ctx.enableAutomaticPings();
+        connections.connect(ctx.session);
     }
 
+    /**
+     * Queues the command behind any others for the same game, so a game's
+     * commands are handled one at a time and in order
+     */
     @Override
     public void handleMessage(WsMessageContext ctx) {
+        // Read in one pass as the subclass for its type
+        UserGameCommand userGameCommand = JsonCodec.GSON.fromJson(ctx.message(), UserGameCommand.class);
+        dispatch(ctx.session, userGameCommand);
+    }
+
+    /**
+     * Handles a command sent in a binary frame, see {@link BinaryProtocol}
+     */
+    @Override
+    public void handleBinaryMessage(WsBinaryMessageContext ctx) {
+        UserGameCommand userGameCommand;
         try {
-            UserGameCommand userGameCommand = new Gson().fromJson(ctx.message(), UserGameCommand.class);
+            userGameCommand = BinaryProtocol.decodeCommand(ByteBuffer.wrap(ctx.data(), ctx.offset(), ctx.length()));
+        } catch (IllegalArgumentException ex) {
+            connections.dm(ctx.session, new ErrorMessage(ex.getMessage()));
+            return;
+        }
+        dispatch(ctx.session, userGameCommand);
+    }
+
+    /**
+     * @return how long each stage of handling commands has taken
+     */
+    public CommandLatency latency() {
+        return latency;
+    }
+
+    /**
+     * @return the sessions being served, for reporting their metrics
+     */
+    public ConnectionManager connections() {
+        return connections;
+    }
+
+    /**
+     * Waits for queued commands to finish
+     */
+    public void close() {
+        dispatcher.close();
+        connections.shutdown();
+    }
+
+    private void dispatch(Session session, UserGameCommand userGameCommand) {
+        int gameID = userGameCommand.getGameID() == null ? 0 : userGameCommand.getGameID();
+        dispatcher.dispatch(gameID, () -> handleCommand(session, userGameCommand));
+    }
+
+    private void handleCommand(Session session, UserGameCommand userGameCommand) {
+        try (CommandLatency.Trace trace = latency.trace(userGameCommand.getCommandType())) {
+            long start = System.nanoTime();
             String username = userService.getUserFromAuth(userGameCommand.getAuthToken());
+            CommandLatency.record(Stage.AUTH, start);
             switch (userGameCommand.getCommandType()) {
-                case CONNECT -> connect(userGameCommand.getGameID(), username, ctx.session);
+                case CONNECT -> {
+                    ConnectCommand connectCommand = (ConnectCommand) userGameCommand;
+                    connections.useBinary(session, connectCommand.wantsBinaryFrames());
+                    connect(userGameCommand.getGameID(), username, connectCommand.wantsMoveUpdates(), connectCommand.getLastSequence(),
+                            session);
+                }
                 case MAKE_MOVE -> {
-                    MakeMoveCommand makeMoveCommand = new Gson().fromJson(ctx.message(), MakeMoveCommand.class);
-                    makeMove(userGameCommand.getGameID(), username, makeMoveCommand.getMove(), ctx.session);
+                    MakeMoveCommand makeMoveCommand = (MakeMoveCommand) userGameCommand;
+                    makeMove(userGameCommand.getGameID(), username, makeMoveCommand.getMove(), session);
                 }
-                case LEAVE -> leave(userGameCommand.getGameID(), username, ctx.session);
-                case RESIGN -> resign(userGameCommand.getGameID(), username, ctx.session);
+                case LEAVE -> leave(userGameCommand.getGameID(), username, session);
+                case RESIGN -> resign(userGameCommand.getGameID(), username, session);
+                case SUBSCRIBE_LOBBY -> subscribeLobby(session);
+                case UNSUBSCRIBE_LOBBY -> connections.removeLobbyWatcher(session);
             }
-        } catch (UnauthorizedException | IOException | DataAccessException ex) {
+        } catch (UnauthorizedException | DataAccessException ex) {
             ErrorMessage errorMessage = new ErrorMessage(ex.getMessage());
-            try {
-                connections.dm(ctx.session, errorMessage);
-            } catch (IOException ex2) {
-                ex2.printStackTrace();
-            }
+            connections.dm(session, errorMessage);
         }
     }
 
+    @Override
+    public void gameChanged(LobbyEvent event, GameSummary game, long version) {
+        LobbyUpdateMessage update = new LobbyUpdateMessage(event, game);
+        update.setSequence((int) version);
+        connections.broadcastLobby(update);
+    }
+
+    @Override
+    public void lobbyReset(Lobby.Snapshot snapshot) {
+        connections.broadcastLobby(lobbyMessage(snapshot));
+    }
+
     @Override
     public void handleClose(WsCloseContext ctx) {
         System.out.println("Websocket closed");
+        connections.close(ctx.session);
     }
 
-    private void connect(int gameID, String playerName, Session session) throws IOException {
-        connections.add(session, gameID);
-
-        LoadGameMessage gameUpdate;
+    /**
+     * @param lastSequence for a reconnect, the last message sequence the client
+     *                     saw; null for a new connection
+     */
+    private void connect(int gameID, String playerName, boolean moveUpdates, Integer lastSequence, Session session) {
         try {
-            gameUpdate = new LoadGameMessage(gameService.getGame(gameID).game());
-            connections.dm(session, gameUpdate);
+            GameData game = getGame(gameID);
+            boolean spectator = !playerName.equals(game.whiteUsername()) && !playerName.equals(game.blackUsername());
+            connections.add(session, gameID, moveUpdates, spectator);
+
+            if (lastSequence != null) {
+                // Reconnecting, so catch up quietly, with the whole game only if needed
+                if (!connections.resume(session, game, lastSequence)) {
+                    connections.dm(session, connections.loadGameMessage(game));
+                }
+                return;
+            }
+            connections.dm(session, connections.loadGameMessage(game));
             String message = String.format("%s has joined the game", playerName);
             NotificationMessage serverMessage = new NotificationMessage(message);
             connections.broadcast(session, gameID, serverMessage);
@@ -92,7 +186,25 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
         }
     }
 
-    private void leave(int gameID, String playerName, Session session) throws IOException {
+    /**
+     * Sends the session the whole lobby, then each change to it. The session
+     * is added while the lobby is held still, so no change falls between the
+     * two.
+     */
+    private void subscribeLobby(Session session) throws DataAccessException {
+        gameService.watchLobby(snapshot -> {
+            connections.addLobbyWatcher(session);
+            connections.dm(session, lobbyMessage(snapshot));
+        });
+    }
+
+    private static LobbyMessage lobbyMessage(Lobby.Snapshot snapshot) {
+        LobbyMessage message = new LobbyMessage(snapshot.games());
+        message.setSequence((int) snapshot.version());
+        return message;
+    }
+
+    private void leave(int gameID, String playerName, Session session) {
         String message = String.format("%s has left the game", playerName);
         NotificationMessage serverMessage = new NotificationMessage(message);
         connections.broadcast(session, gameID, serverMessage);
@@ -105,31 +217,33 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
         }
     }
 
-    private void resign(int gameID, String playerName, Session session) throws IOException {
+    private void resign(int gameID, String playerName, Session session) {
         try {
-            GameData game = gameService.getGame(gameID);
+            GameData game = getGame(gameID);
 
             if (game.game().getTeamTurn() == ChessGame.TeamColor.GAMEOVER
                     || ((game.blackUsername() != null && !game.blackUsername().equals(playerName)) && (game.whiteUsername() != null && !game.whiteUsername().equals(playerName)))) {
                 throw new BadRequestException();
             }
 
+            // Someone may have ended the game since it was read
+            GameData endedGame = gameService.endGame(gameID);
+            if (endedGame == null) {
+                throw new BadRequestException();
+            }
+
             String message = String.format("%s has resigned from the game.", playerName);
             NotificationMessage serverMessage = new NotificationMessage(message);
-            connections.broadcast(null, gameID, serverMessage);
-
-            ChessGame endedGame = gameService.getGame(gameID).game();
-            endedGame.endGame();
-            gameService.updateGame(gameID, endedGame);
+            connections.broadcastUpdate(null, endedGame, serverMessage);
         } catch (BadRequestException | DataAccessException ex) {
             ErrorMessage errorMessage = new ErrorMessage(ex.getMessage());
             connections.dm(session, errorMessage);
         }
     }
 
-    public void makeMove(int gameID, String playerName, ChessMove move, Session session) throws IOException {
+    public void makeMove(int gameID, String playerName, ChessMove move, Session session) {
         try {
-            GameData game = gameService.getGame(gameID);
+            GameData game = getGame(gameID);
 
             if (game.game().getTeamTurn() == ChessGame.TeamColor.GAMEOVER) {
                 throw new InvalidMoveException("The game is over! You cannot move any pieces!");
@@ -143,16 +257,19 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
                 throw new InvalidMoveException("You do not own that piece!");
             }
 
-            gameService.makeMove(gameID, move);
+            GameData updatedGame = gameService.makeMove(gameID, move);
 
             String message = String.format("%s moved %s", playerName, move);
             NotificationMessage serverMessage = new NotificationMessage(message);
             connections.broadcast(session, gameID, serverMessage);
 
-            LoadGameMessage gameUpdate = new LoadGameMessage(gameService.getGame(gameID).game());
-            connections.broadcast(null, gameID, gameUpdate);
+            ChessGame chessGame = updatedGame.game();
+            boolean gameOver = chessGame.getTeamTurn() == ChessGame.TeamColor.GAMEOVER;
+            MoveMessage moveUpdate = new MoveMessage(move, chessGame.getPlyCount(), !gameOver && chessGame.isInCheck(chessGame.getTeamTurn()),
+                    gameOver);
+            connections.broadcastMove(updatedGame, moveUpdate);
 
-            if (gameService.getGame(gameID).game().getTeamTurn() == ChessGame.TeamColor.GAMEOVER) {
+            if (gameOver) {
                 serverMessage = new NotificationMessage("Game Over!");
                 connections.broadcast(null, gameID, serverMessage);
             }
@@ -161,4 +278,13 @@ public class WebSocketHandler implements WsConnectHandler, WsMessageHandler, WsC
             connections.dm(session, errorMessage);
         }
     }
+
+    private GameData getGame(int gameID) throws BadRequestException, DataAccessException {
+        long start = System.nanoTime();
+        try {
+            return gameService.getGame(gameID);
+        } finally {
+            CommandLatency.record(Stage.DAO_READ, start);
+        }
+    }
 }
@@ -0,0 +1,206 @@
+package dataaccess;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ConnectionPoolTest {
+
+    private final List<FakeConnection> opened = new ArrayList<>();
+    private ConnectionPool pool;
+
+    private static class FakeConnection {
+        final AtomicBoolean closed = new AtomicBoolean(false);
+        final AtomicBoolean valid = new AtomicBoolean(true);
+        final AtomicInteger prepared = new AtomicInteger();
+        // Statements fail as if the server had gone away
+        final AtomicBoolean dropped = new AtomicBoolean(false);
+
+        Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "close" -> {
+                            closed.set(true);
+                            yield null;
+                        }
+                        case "isClosed" -> closed.get();
+                        case "isValid" -> valid.get();
+                        case "prepareStatement" -> {
+                            prepared.incrementAndGet();
+                            yield fakeStatement(dropped);
+                        }
+                        case "getAutoCommit" -> true;
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        default -> null;
+                    });
+        }
+    }
+
+    private static PreparedStatement fakeStatement(AtomicBoolean dropped) {
+        AtomicBoolean closed = new AtomicBoolean(false);
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "close" -> {
+                        closed.set(true);
+                        yield null;
+                    }
+                    case "isClosed" -> closed.get();
+                    case "executeUpdate" -> {
+                        if (dropped.get()) {
+                            throw new SQLException("Communications link failure", "08S01");
+                        }
+                        yield 1;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+
+    @BeforeEach
+    void setUp() {
+        pool = newPool(new ConnectionPool.Settings(0, 2, 50, 0, 1, 0, 0, 4, false));
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    private ConnectionPool newPool(ConnectionPool.Settings settings) {
+        return new ConnectionPool(() -> {
+            FakeConnection connection = new FakeConnection();
+            opened.add(connection);
+            return connection.proxy();
+        }, settings);
+    }
+
+    @Test
+    void testConnectionsAreReused() throws SQLException {
+        try (Connection conn = pool.borrow()) {
+            assertTrue(!conn.isClosed());
+        }
+        try (Connection conn = pool.borrow()) {
+            assertTrue(!conn.isClosed());
+        }
+
+        assertEquals(1, opened.size());
+        assertEquals(2, pool.getStats().borrows());
+        assertTrue(!opened.get(0).closed.get());
+    }
+
+    @Test
+    void testBorrowTimesOutWhenExhausted() throws SQLException {
+        Connection first = pool.borrow();
+        Connection second = pool.borrow();
+
+        assertThrows(SQLException.class, () -> pool.borrow());
+        assertEquals(1, pool.getStats().timeouts());
+
+        first.close();
+        second.close();
+        pool.borrow().close();
+    }
+
+    @Test
+    void testInvalidConnectionDiscardedOnBorrow() throws SQLException {
+        pool.borrow().close();
+        opened.get(0).valid.set(false);
+
+        pool.borrow().close();
+
+        assertEquals(2, opened.size());
+        assertTrue(opened.get(0).closed.get());
+        assertEquals(1, pool.getStats().validationFailures());
+    }
+
+    @Test
+    void testClosedHandleCannotBeUsed() throws SQLException {
+        Connection conn = pool.borrow();
+        conn.close();
+
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, () -> conn.prepareStatement("SELECT 1"));
+    }
+
+    @Test
+    void testIdleConnectionsEvicted() throws SQLException {
+        Connection first = pool.borrow();
+        Connection second = pool.borrow();
+        first.close();
+        second.close();
+
+        pool.evictIdleConnections();
+
+        assertEquals(0, pool.getStats().total());
+        assertEquals(2, pool.getStats().evicted());
+        assertTrue(opened.stream().allMatch(connection -> connection.closed.get()));
+    }
+
+    @Test
+    void testLeakDetected() throws SQLException, InterruptedException {
+        pool.close();
+        pool = newPool(new ConnectionPool.Settings(0, 2, 50, 0, 1, 60_000, 1, 4, true));
+
+        Connection leaked = pool.borrow();
+        Thread.sleep(5);
+        pool.detectLeaks();
+        pool.detectLeaks();
+
+        assertEquals(1, pool.getStats().leaks());
+        leaked.close();
+    }
+
+    @Test
+    void testPreparedStatementsCachedPerConnection() throws SQLException {
+        for (int i = 0; i < 3; i++) {
+            try (Connection conn = pool.borrow(); PreparedStatement ps = conn.prepareStatement("SELECT 1")) {
+                assertEquals(1, ps.executeUpdate());
+            }
+        }
+        try (Connection conn = pool.borrow(); PreparedStatement ps = conn.prepareStatement("SELECT 1", Statement.RETURN_GENERATED_KEYS)) {
+            assertTrue(!ps.isClosed());
+        }
+
+        assertEquals(1, opened.size());
+        assertEquals(2, opened.get(0).prepared.get());
+    }
+
+    @Test
+    void testConnectionFailureInStatementDiscardsConnection() throws SQLException {
+        try (Connection conn = pool.borrow(); PreparedStatement ps = conn.prepareStatement("SELECT 1")) {
+            opened.get(0).dropped.set(true);
+            assertThrows(SQLException.class, () -> ps.executeUpdate());
+        }
+
+        pool.borrow().close();
+
+        assertEquals(2, opened.size());
+        assertTrue(opened.get(0).closed.get());
+    }
+
+    @Test
+    void testClosedStatementCannotBeUsed() throws SQLException {
+        try (Connection conn = pool.borrow()) {
+            PreparedStatement ps = conn.prepareStatement("SELECT 1");
+            ps.close();
+
+            assertTrue(ps.isClosed());
+            assertThrows(SQLException.class, () -> ps.executeUpdate());
+        }
+    }
+}
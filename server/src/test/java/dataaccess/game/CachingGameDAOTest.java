@@ -0,0 +1,314 @@
+package dataaccess.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import dataaccess.DataAccessException;
+import model.GameData;
+
+class CachingGameDAOTest extends GameDAOTest {
+
+    private static class CountingGameDAO extends MemoryGameDAO {
+        int reads = 0;
+        int writes = 0;
+        final List<List<ChessMove>> appended = new ArrayList<>();
+
+        @Override
+        public GameData getGame(int gameID) {
+            reads++;
+            return super.getGame(gameID);
+        }
+
+        @Override
+        public void setGame(GameData newGame) {
+            writes++;
+            super.setGame(newGame);
+        }
+
+        @Override
+        public boolean setGameIfNewer(GameData game) {
+            writes++;
+            return super.setGameIfNewer(game);
+        }
+
+        @Override
+        public boolean addMovesIfNewer(GameData game, List<ChessMove> moves) throws DataAccessException {
+            appended.add(List.copyOf(moves));
+            return super.addMovesIfNewer(game, moves);
+        }
+    }
+
+    // Holds the first write back until released
+    private static class BlockingGameDAO extends MemoryGameDAO {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger reads = new AtomicInteger();
+
+        @Override
+        public GameData getGame(int gameID) {
+            reads.incrementAndGet();
+            return super.getGame(gameID);
+        }
+
+        @Override
+        public boolean setGameIfNewer(GameData game) {
+            if (writing.getCount() > 0) {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.setGameIfNewer(game);
+        }
+    }
+
+    private CountingGameDAO backing;
+    private CachingGameDAO cache;
+
+    @BeforeEach
+    public void setUp() {
+        backing = new CountingGameDAO();
+        // Flush interval is long enough that tests flush explicitly
+        cache = new CachingGameDAO(backing, 2, 60_000, 60_000);
+        gameDAO = cache;
+    }
+
+    @AfterEach
+    public void tearDown() throws DataAccessException {
+        cache.close();
+    }
+
+    @Test
+    void testReadsServedFromCache() throws DataAccessException {
+        backing.setGame(new GameData(1, null, null, "gameName", null));
+
+        cache.getGame(1);
+        cache.getGame(1);
+        cache.getGameInfo(1);
+
+        assertEquals(1, backing.reads);
+    }
+
+    @Test
+    void testWritesCoalescedUntilFlush() throws DataAccessException {
+        cache.setGame(new GameData(1, null, null, "gameName", null));
+        cache.setGame(new GameData(1, "white", null, "gameName", null));
+        cache.setGameInfo(new GameData(1, "white", "black", "gameName", null));
+
+        assertEquals(1, backing.writes);
+        assertEquals(null, backing.getGame(1).whiteUsername());
+        assertEquals("black", cache.getAllGames().get(0).blackUsername());
+
+        cache.flush();
+
+        assertEquals(2, backing.writes);
+        assertEquals("black", backing.getGame(1).blackUsername());
+    }
+
+    @Test
+    void testEvictionWritesPendingChanges() throws DataAccessException {
+        cache.setGame(new GameData(1, null, null, "first", null));
+        cache.setGame(new GameData(1, "white", null, "first", null));
+        cache.setGame(new GameData(2, null, null, "second", null));
+        cache.setGame(new GameData(3, null, null, "third", null));
+
+        assertEquals(2, cache.size());
+        assertEquals("white", backing.getGame(1).whiteUsername());
+    }
+
+    @Test
+    void testCloseFlushes() throws DataAccessException {
+        cache.setGame(new GameData(1, null, null, "gameName", null));
+        cache.setGame(new GameData(1, "white", null, "gameName", null));
+
+        cache.close();
+
+        assertEquals("white", backing.getGame(1).whiteUsername());
+    }
+
+    @Test
+    void testCompareAndSetUncachedGame() throws DataAccessException {
+        backing.setGame(new GameData(1, null, null, "gameName", null));
+        GameData original = backing.getGame(1);
+
+        assertTrue(cache.compareAndSetGame(original, new GameData(1, "white", null, "gameName", null)));
+        assertFalse(cache.compareAndSetGame(original, new GameData(1, null, "black", "gameName", null)));
+        cache.flush();
+
+        assertEquals("white", backing.getGame(1).whiteUsername());
+        assertEquals(original.version() + 1, backing.getGame(1).version());
+    }
+
+    @Test
+    void testImportedGamesNotCached() throws DataAccessException {
+        cache.setGame(new GameData(1, null, null, "playing", null));
+
+        GameData clash = new GameData(1, null, null, "imported", null);
+
+        List<GameData> taken = cache.importGames(
+                List.of(new GameData(2, null, null, "imported", null), new GameData(3, null, null, "imported", null), clash));
+
+        assertEquals(List.of(clash), taken);
+        assertEquals("playing", backing.getGame(1).gameName());
+        assertEquals(1, cache.size());
+        assertEquals("imported", backing.getGame(3).gameName());
+        assertEquals(0, cache.misses());
+        cache.getGame(1);
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    void testMovesWrittenBackAsMoves() throws DataAccessException, InvalidMoveException {
+        backing.setGame(new GameData(1, "white", "black", "gameName", new ChessGame()));
+        ChessMove first = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        ChessMove second = new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null);
+        makeMove(first);
+        makeMove(second);
+
+        cache.flush();
+
+        assertEquals(List.of(List.of(first, second)), backing.appended);
+        assertEquals(cache.getGame(1), backing.getGame(1));
+
+        // Anything but a move is written back in full
+        cache.setGameInfo(new GameData(1, "white", null, "gameName", null));
+        makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+        cache.flush();
+
+        assertEquals(1, backing.appended.size());
+        assertEquals(cache.getGame(1), backing.getGame(1));
+    }
+
+    @Test
+    void testOlderWriteNeverLandsLast() throws Exception {
+        BlockingGameDAO blocking = new BlockingGameDAO();
+        blocking.setGame(new GameData(1, null, null, "gameName", null));
+        CachingGameDAO blockingCache = new CachingGameDAO(blocking, 2, 60_000, 60_000);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            GameData original = blockingCache.getGame(1);
+            assertTrue(blockingCache.compareAndSetGame(original, new GameData(1, "white", null, "gameName", null)));
+            Future<?> first = executor.submit(() -> {
+                blockingCache.flush();
+                return null;
+            });
+            blocking.writing.await();
+
+            // Changed again while the first write is still under way
+            assertTrue(blockingCache.compareAndSetGame(blockingCache.getGame(1), new GameData(1, "white", "black", "gameName", null)));
+            Future<?> second = executor.submit(() -> {
+                blockingCache.flush();
+                return null;
+            });
+            blocking.release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+
+            assertEquals("black", blocking.getGame(1).blackUsername());
+            assertEquals(original.version() + 2, blocking.getGame(1).version());
+        } finally {
+            blocking.release.countDown();
+            executor.shutdownNow();
+            blockingCache.close();
+        }
+    }
+
+    @Test
+    void testConflictingWriteReloadsGame() throws DataAccessException {
+        backing.setGame(new GameData(1, null, null, "gameName", null));
+        GameData original = cache.getGame(1);
+        assertTrue(cache.compareAndSetGame(original, new GameData(1, "white", null, "gameName", null)));
+        GameData cached = cache.getGame(1);
+        backing.setGame(new GameData(1, null, null, "external", null, 5));
+
+        cache.flush();
+
+        assertEquals(1, cache.conflicts());
+        assertFalse(cache.compareAndSetGame(cached, new GameData(1, "white", "black", "gameName", null)));
+        assertEquals("external", cache.getGame(1).gameName());
+        assertEquals("external", backing.getGame(1).gameName());
+    }
+
+    @Test
+    void testChangesDuringRefusedWriteKept() throws Exception {
+        BlockingGameDAO blocking = new BlockingGameDAO();
+        blocking.setGame(new GameData(1, null, null, "gameName", null));
+        CachingGameDAO blockingCache = new CachingGameDAO(blocking, 2, 60_000, 60_000);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertTrue(blockingCache.compareAndSetGame(blockingCache.getGame(1), new GameData(1, "white", null, "gameName", null)));
+            Future<?> refused = executor.submit(() -> {
+                blockingCache.flush();
+                return null;
+            });
+            blocking.writing.await();
+            blocking.setGame(new GameData(1, null, null, "external", null, 2));
+            assertTrue(blockingCache.compareAndSetGame(blockingCache.getGame(1), new GameData(1, "white", "black", "gameName", null)));
+            blocking.release.countDown();
+            refused.get(5, TimeUnit.SECONDS);
+
+            assertEquals(1, blockingCache.conflicts());
+            assertEquals("black", blockingCache.getGame(1).blackUsername());
+            blockingCache.flush();
+            assertEquals("black", blocking.getGame(1).blackUsername());
+        } finally {
+            blocking.release.countDown();
+            executor.shutdownNow();
+            blockingCache.close();
+        }
+    }
+
+    @Test
+    void testEvictedGameReadableUntilWritten() throws Exception {
+        BlockingGameDAO blocking = new BlockingGameDAO();
+        CachingGameDAO blockingCache = new CachingGameDAO(blocking, 1, 60_000, 60_000);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            blockingCache.setGame(new GameData(1, null, null, "gameName", null));
+            blockingCache.setGame(new GameData(1, "white", null, "gameName", null, 1));
+            // Evicts the first game, whose write then blocks
+            Future<?> evicting = executor.submit(() -> {
+                blockingCache.setGame(new GameData(2, null, null, "other", null));
+                return null;
+            });
+            blocking.writing.await();
+
+            assertEquals("white", blockingCache.getGame(1).whiteUsername());
+            assertEquals(0, blocking.reads.get());
+
+            blocking.release.countDown();
+            evicting.get(5, TimeUnit.SECONDS);
+            assertEquals("white", blocking.getGame(1).whiteUsername());
+        } finally {
+            blocking.release.countDown();
+            executor.shutdownNow();
+            blockingCache.close();
+        }
+    }
+
+    private void makeMove(ChessMove move) throws DataAccessException, InvalidMoveException {
+        GameData game = cache.getGame(1);
+        ChessGame moved = game.game().copy();
+        moved.makeMove(move);
+        assertTrue(cache.compareAndSetMove(game, new GameData(1, game.whiteUsername(), game.blackUsername(), game.gameName(), moved), move));
+    }
+}
@@ -1,10 +1,17 @@
 package dataaccess.game;
 
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
 
 import dataaccess.DataAccessException;
 import model.GameData;
+import model.GameQuery;
+import model.GameStatus;
+import model.GameSummary;
 
 public abstract class GameDAOTest {
     protected GameDAO gameDAO;
@@ -37,4 +44,86 @@ public abstract class GameDAOTest {
     void testGetGameUserNotFound() throws DataAccessException {
         assertTrue(gameDAO.getGame(-1) == null);
     }
+
+    @Test
+    void testCompareAndSetGame() throws DataAccessException {
+        gameDAO.setGame(new GameData(42, null, null, "gameName", null));
+        GameData original = gameDAO.getGame(42);
+
+        GameData first = new GameData(42, "white", null, "gameName", null);
+        GameData second = new GameData(42, null, "black", "gameName", null);
+
+        assertTrue(gameDAO.compareAndSetGame(original, first));
+        assertFalse(gameDAO.compareAndSetGame(original, second));
+
+        GameData stored = gameDAO.getGame(42);
+        assertEquals("white", stored.whiteUsername());
+        assertEquals(null, stored.blackUsername());
+        assertEquals(original.version() + 1, stored.version());
+    }
+
+    @Test
+    void testCompareAndSetGameInfo() throws DataAccessException {
+        gameDAO.setGame(new GameData(42, null, null, "gameName", null));
+        GameData original = gameDAO.getGameInfo(42);
+
+        assertTrue(gameDAO.compareAndSetGameInfo(original, new GameData(42, "white", null, "gameName", null)));
+        assertFalse(gameDAO.compareAndSetGameInfo(original, new GameData(42, null, "black", "gameName", null)));
+        assertFalse(gameDAO.compareAndSetGameInfo(new GameData(-1, null, null, "gameName", null), original));
+
+        assertEquals("white", gameDAO.getGameInfo(42).whiteUsername());
+    }
+
+    @Test
+    void testSetGameInfoBumpsVersion() throws DataAccessException {
+        gameDAO.setGame(new GameData(42, null, null, "gameName", null));
+        GameData original = gameDAO.getGame(42);
+
+        gameDAO.setGameInfo(new GameData(42, "white", null, "gameName", null));
+
+        assertFalse(gameDAO.compareAndSetGame(original, new GameData(42, null, "black", "gameName", null)));
+    }
+
+    @Test
+    void testSetGameIfNewer() throws DataAccessException {
+        gameDAO.setGame(new GameData(42, null, null, "current", null, 3));
+
+        assertFalse(gameDAO.setGameIfNewer(new GameData(42, null, null, "stale", null, 2)));
+        assertEquals("current", gameDAO.getGame(42).gameName());
+
+        assertTrue(gameDAO.setGameIfNewer(new GameData(42, null, null, "newer", null, 4)));
+        assertTrue(gameDAO.setGameIfNewer(new GameData(43, null, null, "new", null, 0)));
+        assertEquals("newer", gameDAO.getGame(42).gameName());
+        assertEquals("new", gameDAO.getGame(43).gameName());
+    }
+
+    @Test
+    void testImportGamesKeepsTakenIDs() throws DataAccessException {
+        gameDAO.setGame(new GameData(42, "white", "black", "live", null));
+        GameData clash = new GameData(42, null, null, "imported", null);
+
+        List<GameData> taken = gameDAO.importGames(List.of(new GameData(43, null, null, "imported", null), clash));
+
+        assertEquals(List.of(clash), taken);
+        assertEquals("live", gameDAO.getGame(42).gameName());
+        assertEquals("imported", gameDAO.getGame(43).gameName());
+    }
+
+    @Test
+    void testListGames() throws DataAccessException {
+        gameDAO.setGame(new GameData(4, "white", "black", "50% off", null));
+        gameDAO.setGame(new GameData(1, null, null, "50% off", null));
+        gameDAO.setGame(new GameData(2, null, "black", "500 club", null));
+        gameDAO.setGame(new GameData(3, null, null, "other", null));
+
+        assertEquals(List.of(1, 2, 3), ids(gameDAO.listGames(new GameQuery(null, false, null, 0, 3))));
+        assertEquals(List.of(3, 4), ids(gameDAO.listGames(new GameQuery(null, false, null, 2, 0))));
+        assertEquals(List.of(1, 4), ids(gameDAO.listGames(new GameQuery(null, false, "50%", 0, 0))));
+        assertEquals(List.of(1, 2), ids(gameDAO.listGames(new GameQuery(null, true, "50", 0, 0))));
+        assertEquals(List.of(4), ids(gameDAO.listGames(new GameQuery(GameStatus.ACTIVE, false, null, 0, 0))));
+    }
+
+    private static List<Integer> ids(List<GameSummary> games) {
+        return games.stream().map(GameSummary::gameID).toList();
+    }
 }
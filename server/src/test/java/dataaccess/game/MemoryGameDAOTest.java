@@ -1,8 +1,15 @@
 package dataaccess.game;
 
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import chess.ChessGame;
 import dataaccess.DataAccessException;
+import model.GameData;
 
 class MemoryGameDAOTest extends GameDAOTest {
 
@@ -10,4 +17,16 @@ class MemoryGameDAOTest extends GameDAOTest {
     public void setUp() throws DataAccessException {
         gameDAO = new MemoryGameDAO();
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSnapshotRoundTrip(@TempDir Path directory) throws DataAccessException {
+        Path snapshot = directory.resolve("games.json");
+        MemoryGameDAO saved = new MemoryGameDAO(snapshot);
+        GameData game = new GameData(42, "white", "black", "gameName", new ChessGame());
+        saved.setGame(game);
+        saved.close();
+
+        MemoryGameDAO loaded = new MemoryGameDAO(snapshot);
+        assertEquals(game, loaded.getGame(42));
+    }
+}
@@ -0,0 +1,90 @@
+package dataaccess.game;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import dataaccess.DataAccessException;
+import model.GameData;
+
+class MySQLEventSourcedGameDAOTest extends GameDAOTest {
+
+    @BeforeEach
+    public void setUp() throws DataAccessException {
+        gameDAO = new MySQLEventSourcedGameDAO(2);
+        gameDAO.clear();
+    }
+
+    @Test
+    void testMovesReplayedAfterSnapshot() throws DataAccessException, InvalidMoveException {
+        ChessGame game = new ChessGame();
+        gameDAO.setGame(new GameData(42, "white", "black", "gameName", game));
+
+        ChessMove[] moves = {
+                new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null),
+                new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null),
+                new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null)
+        };
+        for (ChessMove move : moves) {
+            GameData expected = gameDAO.getGame(42);
+            game.makeMove(move);
+            assertTrue(gameDAO.compareAndSetMove(expected, new GameData(42, "white", "black", "gameName", game.copy()), move));
+        }
+
+        GameData stored = gameDAO.getGame(42);
+        assertEquals(game, stored.game());
+        assertEquals(3, stored.game().getPlyCount());
+    }
+
+    @Test
+    void testCompareAndSetMovesAcrossSnapshots() throws DataAccessException, InvalidMoveException {
+        ChessGame game = new ChessGame();
+        gameDAO.setGame(new GameData(42, "white", "black", "gameName", game));
+
+        ChessMove[] moves = {
+                new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null),
+                new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null),
+                new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null),
+                new ChessMove(new ChessPosition(8, 2), new ChessPosition(6, 3), null),
+                new ChessMove(new ChessPosition(1, 6), new ChessPosition(4, 3), null)
+        };
+        for (ChessMove move : moves) {
+            GameData expected = gameDAO.getGame(42);
+            ChessGame next = expected.game().copy();
+            next.makeMove(move);
+            assertTrue(gameDAO.compareAndSetMove(expected, new GameData(42, "white", "black", "gameName", next), move));
+            game.makeMove(move);
+        }
+
+        GameData stored = gameDAO.getGame(42);
+        assertEquals(game, stored.game());
+        assertEquals(moves.length, stored.version());
+    }
+
+    @Test
+    void testMovesAddedTogether() throws DataAccessException, InvalidMoveException {
+        gameDAO.setGame(new GameData(42, "white", "black", "gameName", new ChessGame()));
+
+        ChessGame game = new ChessGame();
+        List<ChessMove> moves = List.of(
+                new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null),
+                new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null),
+                new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+        for (ChessMove move : moves) {
+            game.makeMove(move);
+        }
+
+        assertTrue(gameDAO.addMovesIfNewer(new GameData(42, "white", "black", "gameName", game, moves.size()), moves));
+
+        GameData stored = gameDAO.getGame(42);
+        assertEquals(game, stored.game());
+        assertEquals(moves.size(), stored.version());
+    }
+}
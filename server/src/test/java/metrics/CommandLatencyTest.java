@@ -0,0 +1,59 @@
+package metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import metrics.CommandLatency.Stage;
+import websocket.commands.UserGameCommand.CommandType;
+
+public class CommandLatencyTest {
+
+    @Test
+    void testQuantilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        assertEquals(1000, histogram.count());
+        assertEquals(500_000, histogram.valueAtQuantile(0.5), 500_000 * 0.02);
+        assertEquals(990_000, histogram.valueAtQuantile(0.99), 990_000 * 0.02);
+        assertEquals(1_000_000, histogram.valueAtQuantile(1.0));
+    }
+
+    @Test
+    void testSmallAndHugeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(7);
+        histogram.record(LatencyHistogram.MAX_TRACKED_NANOS * 4);
+
+        assertEquals(7, histogram.valueAtQuantile(0.5));
+        assertEquals(LatencyHistogram.MAX_TRACKED_NANOS * 4, histogram.maxNanos());
+        assertEquals(0, new LatencyHistogram().valueAtQuantile(0.99));
+    }
+
+    @Test
+    void testStagesRecordedPerCommand() {
+        CommandLatency latency = new CommandLatency();
+
+        try (CommandLatency.Trace trace = latency.trace(CommandType.MAKE_MOVE)) {
+            CommandLatency.record(Stage.DAO_READ, System.nanoTime());
+            CommandLatency.record(Stage.DAO_READ, System.nanoTime());
+            CommandLatency.record(Stage.LEGALITY, System.nanoTime());
+        }
+        // Nothing is traced outside a command
+        CommandLatency.record(Stage.AUTH, System.nanoTime());
+
+        assertEquals(1, latency.histogram(CommandType.MAKE_MOVE, Stage.DAO_READ).count());
+        assertEquals(1, latency.histogram(CommandType.MAKE_MOVE, Stage.TOTAL).count());
+        assertEquals(0, latency.histogram(CommandType.MAKE_MOVE, Stage.AUTH).count());
+        assertEquals(0, latency.histogram(CommandType.CONNECT, Stage.DAO_READ).count());
+
+        MetricsWriter out = new MetricsWriter();
+        latency.write(out);
+        assertTrue(out.toString().contains("chess_command_stage_seconds_count{command=\"make_move\",stage=\"legality\"} 1"));
+        assertFalse(out.toString().contains("stage=\"auth\""));
+    }
+}
@@ -0,0 +1,44 @@
+package metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class MetricsWriterTest {
+
+    @Test
+    void testLabelsEscaped() {
+        MetricsWriter out = new MetricsWriter();
+        out.family("test_total", "counter", "A test counter");
+        out.sample("test_total", 3, "name", "say \"hi\"\\\n");
+        out.sample("test_total", 4);
+
+        assertEquals("""
+                # HELP test_total A test counter
+                # TYPE test_total counter
+                test_total{name="say \\"hi\\"\\\\\\n"} 3
+                test_total 4
+                """, out.toString());
+    }
+
+    @Test
+    void testQueriesReportedByCommandAndTable() {
+        QueryLatency.record("""
+                SELECT json FROM metrics_test
+                WHERE gameID=?""", System.nanoTime());
+        QueryLatency.record("SELECT json FROM metrics_test WHERE gameName LIKE ? ORDER BY gameID LIMIT ?", System.nanoTime());
+
+        MetricsWriter out = new MetricsWriter();
+        QueryLatency.write(out);
+        assertTrue(out.toString().contains("chess_query_seconds_count{statement=\"select metrics_test\"} 2"));
+    }
+
+    @Test
+    void testQueryLabels() {
+        assertEquals("insert game_moves", QueryLatency.label("INSERT IGNORE INTO game_moves (gameID, ply, move) VALUES (?, ?, ?)"));
+        assertEquals("update games", QueryLatency.label("UPDATE games SET version=version+1 WHERE gameID=?"));
+        assertEquals("create games", QueryLatency.label("CREATE TABLE IF NOT EXISTS `games` (gameID INT NOT NULL)"));
+        assertEquals("alter games", QueryLatency.label("ALTER TABLE games ADD COLUMN version BIGINT"));
+        assertEquals("select", QueryLatency.label("SELECT 1"));
+    }
+}
@@ -0,0 +1,99 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dataaccess.DataAccessException;
+import dataaccess.auth.MemoryAuthDAO;
+import dataaccess.game.MemoryGameDAO;
+import dataaccess.user.MemoryUserDAO;
+import model.AuthData;
+import model.exceptions.UnauthorizedException;
+
+public class AuthCacheTest {
+
+    private static class CountingAuthDAO extends MemoryAuthDAO {
+        int lookups = 0;
+
+        @Override
+        public AuthData getSession(String authToken) {
+            lookups++;
+            return super.getSession(authToken);
+        }
+    }
+
+    private CountingAuthDAO authDAO;
+    private AuthCache authCache;
+
+    @BeforeEach
+    void setUp() {
+        authDAO = new CountingAuthDAO();
+        authCache = new AuthCache(authDAO, 2, 60_000, 60_000);
+    }
+
+    @Test
+    void testLookupsCached() throws DataAccessException {
+        authDAO.createSession(new AuthData("authToken", "username"));
+
+        assertEquals("username", authCache.getSession("authToken").username());
+        assertEquals("username", authCache.getSession("authToken").username());
+        assertNull(authCache.getSession("NotAToken"));
+        assertNull(authCache.getSession("NotAToken"));
+
+        assertEquals(2, authDAO.lookups);
+    }
+
+    @Test
+    void testCreatedSessionNeedsNoLookup() throws DataAccessException {
+        authCache.createSession(new AuthData("authToken", "username"));
+
+        assertEquals("username", authCache.getSession("authToken").username());
+        assertEquals(0, authDAO.lookups);
+    }
+
+    @Test
+    void testTerminateAndClearInvalidate() throws DataAccessException {
+        authCache.createSession(new AuthData("first", "username"));
+        authCache.createSession(new AuthData("second", "username"));
+
+        authCache.terminateSession("first");
+        assertNull(authCache.getSession("first"));
+
+        authCache.clear();
+        assertNull(authCache.getSession("second"));
+    }
+
+    @Test
+    void testExpiredEntriesReloaded() throws DataAccessException {
+        authCache = new AuthCache(authDAO, 2, 0, 0);
+        authDAO.createSession(new AuthData("authToken", "username"));
+
+        authCache.getSession("authToken");
+        authCache.getSession("authToken");
+
+        assertEquals(2, authDAO.lookups);
+    }
+
+    @Test
+    void testBounded() throws DataAccessException {
+        for (int i = 0; i < 5; i++) {
+            authCache.createSession(new AuthData("token" + i, "username"));
+        }
+        assertEquals(2, authCache.size());
+    }
+
+    @Test
+    void testLogoutSeenByOtherServices() throws Exception {
+        UserService userService = new UserService(new MemoryUserDAO(), authDAO, authCache);
+        GameService gameService = new GameService(new MemoryGameDAO(), authDAO, authCache);
+        authCache.createSession(new AuthData("authToken", "username"));
+        gameService.listGames("authToken");
+
+        userService.logout("authToken");
+
+        assertThrows(UnauthorizedException.class, () -> gameService.listGames("authToken"));
+    }
+}
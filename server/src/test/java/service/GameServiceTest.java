@@ -1,5 +1,18 @@
 package service;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -7,6 +20,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
 import dataaccess.DataAccessException;
 import dataaccess.auth.AuthDAO;
 import dataaccess.auth.MemoryAuthDAO;
@@ -14,11 +30,17 @@ import dataaccess.game.GameDAO;
 import dataaccess.game.MemoryGameDAO;
 import model.AuthData;
 import model.GameData;
+import model.GameQuery;
+import model.GameStatus;
+import model.GameSummary;
+import model.LobbyEvent;
 import model.exceptions.AlreadyTakenException;
 import model.exceptions.BadRequestException;
 import model.exceptions.UnauthorizedException;
 import model.requests.CreateGameRequest;
 import model.requests.JoinGameRequest;
+import model.results.ImportGamesResult;
+import model.results.ListGamesResult;
 
 public class GameServiceTest {
 
@@ -49,13 +71,123 @@ public class GameServiceTest {
         gameDAO.setGame(game);
 
         try {
-            assertTrue(gameService.listGames("authToken").games().get(0) == game);
+            assertEquals(GameSummary.of(game), gameService.listGames("authToken").games().get(0));
         } catch (UnauthorizedException e) {
             fail();
         }
 
     }
 
+    @Test
+    void testListGamesPaged() throws DataAccessException, UnauthorizedException {
+        authDAO.createSession(new AuthData("authToken", "username"));
+        for (int gameID = 1; gameID <= 5; gameID++) {
+            gameDAO.setGame(new GameData(gameID, gameID % 2 == 0 ? "white" : null, "black", "game " + gameID, new ChessGame()));
+        }
+
+        ListGamesResult first = gameService.listGames("authToken", new GameQuery(null, true, "game", 0, 2));
+        assertEquals(List.of(1, 3), first.games().stream().map(GameSummary::gameID).toList());
+        assertEquals(3, first.nextPage());
+
+        ListGamesResult last = gameService.listGames("authToken", new GameQuery(null, true, "game", first.nextPage(), 2));
+        assertEquals(List.of(5), last.games().stream().map(GameSummary::gameID).toList());
+        assertNull(last.nextPage());
+
+        ListGamesResult active = gameService.listGames("authToken", new GameQuery(GameStatus.ACTIVE, false, null, 0, 0));
+        assertEquals(List.of(2, 4), active.games().stream().map(GameSummary::gameID).toList());
+    }
+
+    @Test
+    void testLobbyVersionedByChanges() throws Exception {
+        authDAO.createSession(new AuthData("authToken", "username"));
+        int gameID = gameService.createGame(new CreateGameRequest("authToken", "gameName")).gameID();
+
+        Lobby.Snapshot created = gameService.getLobby("authToken");
+        assertSame(created, gameService.getLobby("authToken"));
+
+        gameService.joinGame(new JoinGameRequest("authToken", "WHITE", gameID));
+        Lobby.Snapshot joined = gameService.getLobby("authToken");
+        assertNotEquals(created.etag(), joined.etag());
+        assertEquals("username", joined.games().get(0).whiteUsername());
+
+        // Nothing shown in the lobby changes
+        gameService.leaveGame(gameID, "someone else");
+        assertEquals(joined.etag(), gameService.getLobby("authToken").etag());
+
+        gameService.endGame(gameID);
+        gameService.leaveGame(gameID, "username");
+        GameSummary ended = gameService.getLobby("authToken").games().get(0);
+        assertNull(ended.whiteUsername());
+        assertEquals(GameStatus.FINISHED, ended.status());
+    }
+
+    @Test
+    void testLobbyShowsCheckmate() throws Exception {
+        authDAO.createSession(new AuthData("authToken", "username"));
+        gameDAO.setGame(new GameData(123, "white", "black", "gameName", new ChessGame()));
+        Lobby.Snapshot playing = gameService.getLobby("authToken");
+        assertEquals(GameStatus.ACTIVE, playing.games().get(0).status());
+
+        playFoolsMate(123);
+
+        Lobby.Snapshot mated = gameService.getLobby("authToken");
+        assertNotEquals(playing.etag(), mated.etag());
+        assertEquals(GameStatus.FINISHED, mated.games().get(0).status());
+    }
+
+    @Test
+    void testLobbyListenersToldEachChange() throws Exception {
+        authDAO.createSession(new AuthData("authToken", "username"));
+        List<String> changes = new ArrayList<>();
+        gameService.addLobbyListener(new LobbyListener() {
+            @Override
+            public void gameChanged(LobbyEvent event, GameSummary game, long version) {
+                changes.add(event + " " + version);
+            }
+
+            @Override
+            public void lobbyReset(Lobby.Snapshot snapshot) {
+                changes.add("RESET " + snapshot.version());
+            }
+        });
+        List<Long> watched = new ArrayList<>();
+        gameService.watchLobby(snapshot -> watched.add(snapshot.version()));
+
+        int gameID = gameService.createGame(new CreateGameRequest("authToken", "gameName")).gameID();
+        gameService.joinGame(new JoinGameRequest("authToken", "BLACK", gameID));
+        gameService.leaveGame(gameID, "username");
+        gameService.endGame(gameID);
+        gameService.clear();
+
+        long start = watched.get(0);
+        assertEquals(List.of("CREATED " + (start + 1), "SEAT_TAKEN " + (start + 2), "SEAT_FREED " + (start + 3), "GAME_OVER " + (start + 4),
+                "RESET " + (start + 5)), changes);
+    }
+
+    @Test
+    void testLobbyListenersToldOfCheckmate() throws Exception {
+        gameDAO.setGame(new GameData(123, "white", "black", "gameName", new ChessGame()));
+        gameService.watchLobby(snapshot -> {
+        });
+        List<LobbyEvent> events = new ArrayList<>();
+        gameService.addLobbyListener(new LobbyListener() {
+            @Override
+            public void gameChanged(LobbyEvent event, GameSummary game, long version) {
+                events.add(event);
+                assertEquals(GameStatus.FINISHED, game.status());
+            }
+
+            @Override
+            public void lobbyReset(Lobby.Snapshot snapshot) {
+                fail();
+            }
+        });
+
+        playFoolsMate(123);
+
+        assertEquals(List.of(LobbyEvent.GAME_OVER), events);
+    }
+
     @Test
     void testCreateGameUnauthorized() {
         assertThrows(UnauthorizedException.class, () -> gameService.createGame(new CreateGameRequest("NotAToken", "gameName")));
@@ -113,6 +245,99 @@ public class GameServiceTest {
         }
     }
 
+    @Test
+    void testSimultaneousJoinsOneWins() throws Exception {
+        int players = 8;
+        for (int i = 0; i < players; i++) {
+            authDAO.createSession(new AuthData("authToken" + i, "username" + i));
+        }
+        int gameID = gameService.createGame(new CreateGameRequest("authToken0", "gameName")).gameID();
+
+        ExecutorService executor = Executors.newFixedThreadPool(players);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> joins = new ArrayList<>();
+        for (int i = 0; i < players; i++) {
+            String authToken = "authToken" + i;
+            joins.add(executor.submit(() -> {
+                start.await();
+                try {
+                    return gameService.joinGame(new JoinGameRequest(authToken, "WHITE", gameID));
+                } catch (AlreadyTakenException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+
+        int winners = 0;
+        for (Future<Boolean> join : joins) {
+            winners += join.get() ? 1 : 0;
+        }
+        executor.shutdown();
+
+        assertEquals(1, winners);
+    }
+
+    @Test
+    void testMoveAfterConflictingMoveRechecked() throws Exception {
+        gameDAO.setGame(new GameData(123, "white", "black", "gameName", new ChessGame()));
+        GameData original = gameDAO.getGame(123);
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+
+        gameService.makeMove(123, move);
+
+        // The same move again is now black's turn, so it must not be applied twice
+        assertThrows(InvalidMoveException.class, () -> gameService.makeMove(123, move));
+        assertEquals(original.version() + 1, gameDAO.getGame(123).version());
+    }
+
+    @Test
+    void testImportGames() throws DataAccessException, IOException {
+        String pgn = """
+                [White "Anderssen"]
+                [Black "Kieseritzky"]
+
+                1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7# 1-0
+
+                [White "Broken"]
+                [Black "Game"]
+
+                1. e4 e4 *
+                """;
+
+        ImportGamesResult result = gameService.importGames(new StringReader(pgn));
+
+        assertEquals(1, result.gameIDs().size());
+        assertEquals(1, result.skipped().size());
+        assertTrue(result.skipped().get(0).startsWith("Game 2: "));
+        GameData game = gameDAO.getGame(result.gameIDs().get(0));
+        assertEquals("Anderssen vs Kieseritzky", game.gameName());
+        assertEquals(ChessGame.TeamColor.GAMEOVER, game.game().getTeamTurn());
+    }
+
+    @Test
+    void testImportedGamesGetFreeIDs() throws DataAccessException, IOException {
+        gameDAO = new MemoryGameDAO() {
+            boolean clashed = false;
+
+            @Override
+            public List<GameData> importGames(List<GameData> games) {
+                if (!clashed) {
+                    // As if every ID were already taken
+                    clashed = true;
+                    return games;
+                }
+                return super.importGames(games);
+            }
+        };
+        gameService = new GameService(gameDAO, authDAO);
+
+        ImportGamesResult result = gameService.importGames(new StringReader("1. e4 e5 *\n\n1. d4 d5 *\n"));
+
+        assertEquals(2, result.gameIDs().size());
+        assertEquals(2, gameDAO.getAllGames().size());
+    }
+
     @Test
     void testClear() throws DataAccessException {
         authDAO.createSession(new AuthData("authToken", "username"));
@@ -130,4 +355,11 @@ public class GameServiceTest {
 
     }
 
+    private void playFoolsMate(int gameID) throws InvalidMoveException, DataAccessException {
+        gameService.makeMove(gameID, new ChessMove(new ChessPosition(2, 6), new ChessPosition(3, 6), null));
+        gameService.makeMove(gameID, new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+        gameService.makeMove(gameID, new ChessMove(new ChessPosition(2, 7), new ChessPosition(4, 7), null));
+        gameService.makeMove(gameID, new ChessMove(new ChessPosition(8, 4), new ChessPosition(4, 8), null));
+    }
+
 }
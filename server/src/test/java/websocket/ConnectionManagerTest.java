@@ -0,0 +1,315 @@
+package websocket;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static websocket.ConnectionManager.DEFAULT_MAX_QUEUED;
+import static websocket.ConnectionManager.DEFAULT_MAX_STALL_MILLIS;
+import static websocket.ConnectionManager.DEFAULT_REPLAY_CAPACITY;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import metrics.MetricsWriter;
+import model.GameData;
+import websocket.commands.ConnectCommand;
+import websocket.messages.MoveMessage;
+import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage;
+
+public class ConnectionManagerTest {
+
+    // A session that records what it is sent. A stalled session never
+    // finishes writing, like a client that stopped reading.
+    private static class FakeSession {
+        final List<String> received = new ArrayList<>();
+        final List<ByteBuffer> receivedBinary = new ArrayList<>();
+        boolean open = true;
+        boolean stalled = false;
+
+        final Session session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[] { Session.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "isOpen" -> open;
+                    case "close" -> {
+                        open = false;
+                        yield null;
+                    }
+                    case "getRemote" -> remote();
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> null;
+                });
+
+        private RemoteEndpoint remote() {
+            return (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(), new Class<?>[] { RemoteEndpoint.class },
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("sendString") || method.getName().equals("sendBytes")) {
+                            if (args[0] instanceof ByteBuffer bytes) {
+                                receivedBinary.add(bytes);
+                            } else {
+                                received.add((String) args[0]);
+                            }
+                            if (!stalled) {
+                                ((WriteCallback) args[1]).writeSuccess();
+                            }
+                        }
+                        return null;
+                    });
+        }
+    }
+
+    private ConnectionManager connections;
+
+    @BeforeEach
+    void setUp() {
+        connections = new ConnectionManager();
+    }
+
+    @AfterEach
+    void tearDown() {
+        connections.shutdown();
+    }
+
+    @Test
+    void testBroadcastOnlyReachesGame() {
+        FakeSession first = new FakeSession();
+        FakeSession second = new FakeSession();
+        FakeSession other = new FakeSession();
+        // Outside the Integer cache, so boxed IDs are distinct objects
+        connections.add(first.session, 1000);
+        connections.add(second.session, 1000);
+        connections.add(other.session, 2000);
+
+        connections.broadcast(first.session, 1000, new NotificationMessage("hello"));
+
+        assertEquals(0, first.received.size());
+        assertEquals(1, second.received.size());
+        assertEquals(0, other.received.size());
+    }
+
+    @Test
+    void testRemoveAndMove() {
+        FakeSession session = new FakeSession();
+        connections.add(session.session, 1);
+        connections.add(session.session, 2);
+
+        assertEquals(0, connections.subscribers(1));
+        assertEquals(1, connections.subscribers(2));
+
+        connections.remove(session.session);
+        assertEquals(0, connections.subscribers(2));
+    }
+
+    @Test
+    void testClosedSessionsDropped() {
+        FakeSession session = new FakeSession();
+        connections.add(session.session, 1);
+        session.open = false;
+
+        connections.broadcast(null, 1, new NotificationMessage("hello"));
+
+        assertEquals(0, session.received.size());
+        assertEquals(0, connections.subscribers(1));
+    }
+
+    @Test
+    void testLoadGameEncodedOncePerVersion() {
+        FakeSession session = new FakeSession();
+        connections.add(session.session, 1);
+        GameData game = new GameData(1, null, null, "gameName", new ChessGame());
+
+        EncodedMessage first = connections.loadGameMessage(game);
+
+        assertSame(first, connections.loadGameMessage(game));
+        assertNotSame(first, connections.loadGameMessage(game.withVersion(1)));
+    }
+
+    @Test
+    void testSlowSessionDoesNotDelayOthers() {
+        FakeSession slow = new FakeSession();
+        FakeSession fast = new FakeSession();
+        slow.stalled = true;
+        connections.add(slow.session, 1);
+        connections.add(fast.session, 1);
+
+        for (int i = 0; i < 3; i++) {
+            connections.broadcast(null, 1, new NotificationMessage("hello"));
+        }
+
+        assertEquals(3, fast.received.size());
+        assertEquals(1, slow.received.size());
+        assertEquals(2, connections.queued(slow.session));
+    }
+
+    @Test
+    void testQueuedBoardsCoalesced() {
+        FakeSession slow = new FakeSession();
+        slow.stalled = true;
+        connections.add(slow.session, 1);
+        GameData game = new GameData(1, null, null, "gameName", new ChessGame());
+
+        connections.broadcast(null, 1, new NotificationMessage("in flight"));
+        for (int version = 0; version < 5; version++) {
+            connections.broadcast(null, 1, connections.loadGameMessage(game.withVersion(version)));
+        }
+
+        assertEquals(1, connections.queued(slow.session));
+    }
+
+    @Test
+    void testSaturatedSessionDisconnected() {
+        connections = new ConnectionManager(2, 60_000);
+        FakeSession slow = new FakeSession();
+        slow.stalled = true;
+        connections.add(slow.session, 1);
+
+        for (int i = 0; i < 4; i++) {
+            connections.broadcast(null, 1, new NotificationMessage("hello"));
+        }
+
+        assertFalse(slow.open);
+    }
+
+    @Test
+    void testMoveUpdatesOnlyForSubscribers() {
+        FakeSession full = new FakeSession();
+        FakeSession moves = new FakeSession();
+        connections.add(full.session, 1);
+        connections.add(moves.session, 1, true);
+
+        connections.broadcastMove(new GameData(1, null, null, "gameName", new ChessGame(), 1), move());
+
+        assertTrue(full.received.get(0).contains("LOAD_GAME"));
+        assertTrue(moves.received.get(0).contains("MOVE"));
+    }
+
+    @Test
+    void testResumeReplaysMissedUpdates() {
+        FakeSession watcher = new FakeSession();
+        FakeSession returning = new FakeSession();
+        connections.add(watcher.session, 1);
+        GameData game = new GameData(1, null, null, "gameName", new ChessGame());
+        connections.loadGameMessage(game);
+        for (int version = 1; version <= 3; version++) {
+            connections.broadcastMove(game.withVersion(version), move());
+        }
+
+        connections.add(returning.session, 1, true);
+
+        assertTrue(connections.resume(returning.session, game.withVersion(3), 1));
+        assertEquals(2, returning.received.size());
+        assertTrue(returning.received.get(0).contains("\"sequence\":2"));
+    }
+
+    @Test
+    void testResumeTooFarBackNeedsWholeGame() {
+        connections = new ConnectionManager(DEFAULT_MAX_QUEUED, DEFAULT_MAX_STALL_MILLIS, 2);
+        FakeSession session = new FakeSession();
+        connections.add(session.session, 1, true);
+        GameData game = new GameData(1, null, null, "gameName", new ChessGame());
+        connections.loadGameMessage(game);
+        for (int version = 1; version <= 3; version++) {
+            connections.broadcastMove(game.withVersion(version), move());
+        }
+
+        assertFalse(connections.resume(session.session, game.withVersion(3), 0));
+        assertTrue(connections.resume(session.session, game.withVersion(3), 1));
+        assertFalse(connections.resume(session.session, game.withVersion(3), 4));
+        assertFalse(connections.resume(session.session, game.withVersion(3), ConnectCommand.RELOAD));
+    }
+
+    @Test
+    void testBinarySessionsGetBinaryFrames() {
+        FakeSession json = new FakeSession();
+        FakeSession binary = new FakeSession();
+        connections.add(json.session, 1);
+        connections.add(binary.session, 1, true);
+        connections.useBinary(binary.session, true);
+
+        connections.broadcastMove(new GameData(1, null, null, "gameName", new ChessGame(), 1), move());
+
+        assertEquals(1, json.received.size());
+        assertEquals(0, binary.received.size());
+        ServerMessage decoded = BinaryProtocol.decodeMessage(binary.receivedBinary.get(0));
+        assertEquals(ServerMessage.ServerMessageType.MOVE, decoded.getServerMessageType());
+        assertEquals(1, decoded.getSequence());
+    }
+
+    @Test
+    void testSpectatorsServedFromShards() {
+        connections = new ConnectionManager(DEFAULT_MAX_QUEUED, DEFAULT_MAX_STALL_MILLIS, DEFAULT_REPLAY_CAPACITY, 2);
+        FakeSession player = new FakeSession();
+        List<FakeSession> spectators = new ArrayList<>();
+        connections.add(player.session, 1);
+        for (int i = 0; i < 10; i++) {
+            FakeSession spectator = new FakeSession();
+            spectators.add(spectator);
+            connections.add(spectator.session, 1, false, true);
+        }
+
+        connections.broadcast(null, 1, new NotificationMessage("hello"));
+        // Players are sent to before broadcast returns
+        assertEquals(1, player.received.size());
+        connections.shutdown();
+
+        assertEquals(11, connections.subscribers(1));
+        for (FakeSession spectator : spectators) {
+            assertEquals(1, spectator.received.size());
+        }
+    }
+
+    @Test
+    void testSpectatorBecomingPlayer() {
+        FakeSession session = new FakeSession();
+        FakeSession other = new FakeSession();
+        connections.add(session.session, 1, false, true);
+        connections.add(session.session, 1, false, false);
+        connections.add(other.session, 1, false, true);
+        connections.remove(other.session);
+
+        connections.broadcast(null, 1, new NotificationMessage("hello"));
+        connections.shutdown();
+
+        assertEquals(1, connections.subscribers(1));
+        assertEquals(1, session.received.size());
+        assertEquals(0, other.received.size());
+    }
+
+    @Test
+    void testClosedSessionNotServedAgain() {
+        FakeSession session = new FakeSession();
+        connections.connect(session.session);
+        session.open = false;
+        connections.close(session.session);
+
+        // Commands still queued for the session's game when it closed
+        connections.useBinary(session.session, true);
+        connections.add(session.session, 1);
+        connections.dm(session.session, new NotificationMessage("hello"));
+
+        assertEquals(0, connections.subscribers(1));
+        assertEquals(0, session.received.size());
+        MetricsWriter out = new MetricsWriter();
+        connections.writeMetrics(out);
+        assertTrue(out.toString().contains("chess_ws_sessions 0"));
+    }
+
+    private static MoveMessage move() {
+        return new MoveMessage(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null), 1, false, false);
+    }
+}
@@ -0,0 +1,78 @@
+package websocket;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class GameCommandDispatcherTest {
+
+    private GameCommandDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new GameCommandDispatcher();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.close();
+    }
+
+    @Test
+    void testCommandsForOneGameRunInOrder() throws InterruptedException {
+        int commands = 1000;
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(commands);
+
+        for (int i = 0; i < commands; i++) {
+            int command = i;
+            dispatcher.dispatch(1, () -> {
+                order.add(command);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < commands; i++) {
+            assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    void testGamesRunInParallel() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch otherGameRan = new CountDownLatch(1);
+
+        dispatcher.dispatch(1, () -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        dispatcher.dispatch(2, otherGameRan::countDown);
+
+        assertTrue(otherGameRan.await(5, TimeUnit.SECONDS));
+        blocked.countDown();
+    }
+
+    @Test
+    void testFailedCommandDoesNotStopGame() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+
+        dispatcher.dispatch(1, () -> {
+            throw new IllegalStateException("test");
+        });
+        dispatcher.dispatch(1, ran::countDown);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+}
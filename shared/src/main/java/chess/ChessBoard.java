@@ -12,47 +12,9 @@ import java.util.Iterator;
 public class ChessBoard implements Iterable<ChessPiece>, Cloneable {
 
     private ChessPiece[][] board = new ChessPiece[8][8];
-    private final ChessPiece[][] defaultBoard = {
-            {
-                    new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK),
-                    new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT),
-                    new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP),
-                    new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN),
-                    new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
-                    new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP),
-                    new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT),
-                    new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK) },
-            {
-                    new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN),
-                    new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN),
-                    new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN),
-                    new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN),
-                    new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN),
-                    new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN),
-                    new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN),
-                    new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN) },
-            new ChessPiece[8],
-            new ChessPiece[8],
-            new ChessPiece[8],
-            new ChessPiece[8],
-            {
-                    new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN),
-                    new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN),
-                    new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN),
-                    new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN),
-                    new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN),
-                    new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN),
-                    new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN),
-                    new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN) },
-            {
-                    new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK),
-                    new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT),
-                    new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP),
-                    new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN),
-                    new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING),
-                    new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP),
-                    new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT),
-                    new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK) }
+    private static final ChessPiece.PieceType[] BACK_RANK = {
+            ChessPiece.PieceType.ROOK, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.KING, ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.ROOK
     };
 
     public ChessBoard() {
@@ -91,7 +53,21 @@ public class ChessBoard implements Iterable<ChessPiece>, Cloneable {
      * normally starts)
      */
     public void resetBoard() {
-        board = defaultBoard;
+        board = new ChessPiece[8][8];
+        for (int col = 0; col < 8; col++) {
+            board[0][col] = new ChessPiece(ChessGame.TeamColor.WHITE, BACK_RANK[col]);
+            board[1][col] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
+            board[6][col] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
+            board[7][col] = new ChessPiece(ChessGame.TeamColor.BLACK, BACK_RANK[col]);
+        }
+    }
+
+    /**
+     * Gives direct access to the squares, indexed [row - 1][column - 1], so
+     * {@link ChessGameCodec} can walk the board without creating positions
+     */
+    ChessPiece[][] squares() {
+        return board;
     }
 
     @Override
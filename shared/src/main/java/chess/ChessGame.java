@@ -30,6 +30,8 @@ public class ChessGame implements Cloneable {
 
     private List<ChessMove> enPassantMoves = new ArrayList<>();
 
+    private int plyCount = 0;
+
     public ChessGame() {
         teamTurn = TeamColor.WHITE;
         for (int i = 0; i < 4; i++) {
@@ -40,6 +42,16 @@ public class ChessGame implements Cloneable {
         board.resetBoard();
     }
 
+    /**
+     * Creates a game around an existing board without resetting it
+     *
+     * @param board the board to play on
+     */
+    ChessGame(ChessBoard board) {
+        teamTurn = TeamColor.WHITE;
+        this.board = board;
+    }
+
     /**
      * @return Which team's turn it is
      */
@@ -56,6 +68,84 @@ public class ChessGame implements Cloneable {
         teamTurn = team;
     }
 
+    /**
+     * @return How many half-moves have been made in this game
+     */
+    public int getPlyCount() {
+        return plyCount;
+    }
+
+    /**
+     * Sets how many half-moves have been made in this game
+     *
+     * @param plyCount the number of half-moves
+     */
+    public void setPlyCount(int plyCount) {
+        this.plyCount = plyCount;
+    }
+
+    /**
+     * Gets which castling moves are still allowed, one bit per move: white
+     * kingside, white queenside, black kingside, black queenside
+     *
+     * @return the castling rights as a 4-bit mask
+     */
+    public int getCastlingRights() {
+        int rights = 0;
+        for (int i = 0; i < 4; i++) {
+            if (canCastleList.get(i)) {
+                rights |= 1 << i;
+            }
+        }
+        return rights;
+    }
+
+    /**
+     * Sets which castling moves are still allowed
+     *
+     * @param rights a 4-bit mask in the order used by {@link #getCastlingRights()}
+     */
+    public void setCastlingRights(int rights) {
+        for (int i = 0; i < 4; i++) {
+            canCastleList.set(i, (rights & (1 << i)) != 0);
+        }
+    }
+
+    /**
+     * Gets the column of a pawn that can be captured en passant this turn
+     *
+     * @return the column (1-8), or 0 if no en passant capture is possible
+     */
+    public int getEnPassantColumn() {
+        return enPassantMoves.isEmpty() ? 0 : enPassantMoves.get(0).getEndPosition().getColumn();
+    }
+
+    /**
+     * Marks the pawn in the given column as having just moved two squares, so
+     * the team whose turn it is can capture it en passant
+     *
+     * @param column the column (1-8) of the pawn, or 0 for none
+     */
+    public void setEnPassantColumn(int column) {
+        enPassantMoves.clear();
+        if (column < 1 || column > 8 || teamTurn == TeamColor.GAMEOVER) {
+            return;
+        }
+
+        int row = (teamTurn == TeamColor.WHITE) ? 5 : 4;
+        int targetRow = (teamTurn == TeamColor.WHITE) ? 6 : 3;
+        for (int i = -1; i < 2; i += 2) {
+            if (column + i < 1 || column + i > 8) {
+                continue;
+            }
+            ChessPosition neighborPosition = new ChessPosition(row, column + i);
+            ChessPiece neighborPiece = board.getPiece(neighborPosition);
+            if (neighborPiece != null && neighborPiece.getTeamColor() == teamTurn && neighborPiece.getPieceType() == PieceType.PAWN) {
+                enPassantMoves.add(new ChessMove(neighborPosition, new ChessPosition(targetRow, column), null));
+            }
+        }
+    }
+
     /**
      * Enum identifying the 2 possible teams in a chess game
      */
@@ -149,7 +239,11 @@ public class ChessGame implements Cloneable {
                 TeamColor attacker = (target == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
 
                 for (int i = -1; i < 2; i += 2) {
-                    ChessPosition neighborPosition = new ChessPosition(row, move.getEndPosition().getColumn() + i);
+                    int neighborColumn = move.getEndPosition().getColumn() + i;
+                    if (neighborColumn < 1 || neighborColumn > 8) {
+                        continue;
+                    }
+                    ChessPosition neighborPosition = new ChessPosition(row, neighborColumn);
                     ChessPiece neighborPiece = board.getPiece(neighborPosition);
                     if (neighborPiece != null && neighborPiece.getTeamColor() == attacker && neighborPiece.getPieceType() == PieceType.PAWN) {
                         enPassantMoves.add(
@@ -159,12 +253,14 @@ public class ChessGame implements Cloneable {
             }
         }
 
-        // Promotion
+        // Promotion replaces the pawn rather than mutating it, since decoded
+        // boards share piece instances
         if (move.getPromotionPiece() != null) {
-            piece.promotePiece(move.getPromotionPiece());
+            board.addPiece(move.getEndPosition(), new ChessPiece(piece.getTeamColor(), move.getPromotionPiece()));
         }
 
         teamTurn = (teamTurn == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+        plyCount++;
 
         // Ends game if in check-mate or stale-mate
         if (isInCheckmate(teamTurn) || isInStalemate(teamTurn)) {
@@ -357,6 +453,29 @@ public class ChessGame implements Cloneable {
         return board;
     }
 
+    /**
+     * Gives direct access to the en passant captures available this turn, so
+     * {@link ChessTypeAdapters} can write them in the same form as before
+     */
+    List<ChessMove> enPassantMoves() {
+        return enPassantMoves;
+    }
+
+    /**
+     * Makes an independent copy of this game, including its castling and en
+     * passant state, that moves can be made on without affecting this one
+     *
+     * @return the copy
+     */
+    public ChessGame copy() {
+        ChessGame copy = new ChessGame(board.clone());
+        copy.teamTurn = teamTurn;
+        copy.plyCount = plyCount;
+        copy.setCastlingRights(getCastlingRights());
+        copy.enPassantMoves = new ArrayList<>(enPassantMoves);
+        return copy;
+    }
+
     @Override
     @SuppressWarnings("CloneDeclaresCloneNotSupported")
     protected ChessGame clone() {
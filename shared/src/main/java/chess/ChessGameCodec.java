@@ -0,0 +1,180 @@
+package chess;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+/**
+ * Packs a {@link ChessGame} into a compact binary form, which is much smaller
+ * than its Gson JSON and is used to store boards.
+ * <p>
+ * Layout (big-endian), at most 31 bytes:
+ * <ul>
+ * <li>1 byte format version</li>
+ * <li>8 bytes occupancy, bit {@code (row - 1) * 8 + (column - 1)} set for
+ * every occupied square</li>
+ * <li>one nibble per occupied square in the same order: the high bit is set
+ * for black and the low 3 bits hold the {@link PieceType} ordinal, padded to
+ * a whole byte</li>
+ * <li>1 byte state: bits 0-1 turn (white, black, game over), bits 2-5
+ * castling rights as in {@link ChessGame#getCastlingRights()}</li>
+ * <li>1 byte en passant column, 0 for none</li>
+ * <li>4 bytes ply count</li>
+ * </ul>
+ * Decoded boards share piece instances, so pieces must be replaced rather
+ * than changed in place.
+ */
+public final class ChessGameCodec {
+
+    public static final byte VERSION = 1;
+
+    /** Upper bound on the size of an encoded game */
+    public static final int MAX_SIZE = 1 + 8 + 16 + 1 + 1 + 4;
+
+    private static final TeamColor[] TURNS = { TeamColor.WHITE, TeamColor.BLACK, TeamColor.GAMEOVER };
+    private static final PieceType[] TYPES = PieceType.values();
+
+    // Flyweight pieces indexed by nibble value
+    private static final ChessPiece[] PIECES = new ChessPiece[16];
+
+    static {
+        for (PieceType type : TYPES) {
+            PIECES[type.ordinal()] = new ChessPiece(TeamColor.WHITE, type);
+            PIECES[0x8 | type.ordinal()] = new ChessPiece(TeamColor.BLACK, type);
+        }
+    }
+
+    private ChessGameCodec() {
+    }
+
+    public static byte[] encode(ChessGame game) {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_SIZE);
+        encode(game, buffer);
+        byte[] output = new byte[buffer.position()];
+        buffer.flip().get(output);
+        return output;
+    }
+
+    /**
+     * Writes a game into the buffer at its current position, advancing it
+     *
+     * @param game   the game to encode
+     * @param buffer a buffer with at least {@link #MAX_SIZE} bytes remaining
+     */
+    public static void encode(ChessGame game, ByteBuffer buffer) {
+        ChessPiece[][] squares = game.getBoard().squares();
+
+        long occupancy = 0;
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                if (squares[row][col] != null) {
+                    occupancy |= 1L << (row * 8 + col);
+                }
+            }
+        }
+        buffer.put(VERSION);
+        buffer.putLong(occupancy);
+
+        int pending = -1;
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                ChessPiece piece = squares[row][col];
+                if (piece == null) {
+                    continue;
+                }
+                int nibble = (piece.getTeamColor() == TeamColor.BLACK ? 0x8 : 0) | piece.getPieceType().ordinal();
+                if (pending < 0) {
+                    pending = nibble << 4;
+                } else {
+                    buffer.put((byte) (pending | nibble));
+                    pending = -1;
+                }
+            }
+        }
+        if (pending >= 0) {
+            buffer.put((byte) pending);
+        }
+
+        buffer.put((byte) (game.getTeamTurn().ordinal() | game.getCastlingRights() << 2));
+        buffer.put((byte) game.getEnPassantColumn());
+        buffer.putInt(game.getPlyCount());
+    }
+
+    public static ChessGame decode(byte[] encoded) {
+        return decode(ByteBuffer.wrap(encoded));
+    }
+
+    /**
+     * Reads a game from the buffer at its current position, advancing it
+     *
+     * @throws IllegalArgumentException if the data is not an encoded game
+     */
+    public static ChessGame decode(ByteBuffer buffer) {
+        try {
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unknown board encoding version " + version);
+            }
+            long occupancy = buffer.getLong();
+
+            ChessBoard board = new ChessBoard();
+            ChessPiece[][] squares = board.squares();
+            int current = 0;
+            boolean high = true;
+            for (long remaining = occupancy; remaining != 0; remaining &= remaining - 1) {
+                int square = Long.numberOfTrailingZeros(remaining);
+                int nibble;
+                if (high) {
+                    current = buffer.get();
+                    nibble = (current >> 4) & 0xF;
+                } else {
+                    nibble = current & 0xF;
+                }
+                high = !high;
+
+                ChessPiece piece = PIECES[nibble];
+                if (piece == null) {
+                    throw new IllegalArgumentException("Invalid piece " + nibble);
+                }
+                squares[square / 8][square % 8] = piece;
+            }
+
+            int state = buffer.get();
+            if ((state & 0x3) >= TURNS.length) {
+                throw new IllegalArgumentException("Invalid turn " + (state & 0x3));
+            }
+            ChessGame game = new ChessGame(board);
+            game.setTeamTurn(TURNS[state & 0x3]);
+            game.setCastlingRights((state >> 2) & 0xF);
+            game.setEnPassantColumn(buffer.get());
+            game.setPlyCount(buffer.getInt());
+            return game;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Encoded board is truncated", e);
+        }
+    }
+
+    /**
+     * Packs a move into 15 bits: 6 for the start square, 6 for the end square
+     * and 3 for the promotion piece (0 meaning no promotion).
+     */
+    public static short encodeMove(ChessMove move) {
+        int start = (move.getStartPosition().getRow() - 1) * 8 + move.getStartPosition().getColumn() - 1;
+        int end = (move.getEndPosition().getRow() - 1) * 8 + move.getEndPosition().getColumn() - 1;
+        int promotion = move.getPromotionPiece() == null ? 0 : move.getPromotionPiece().ordinal() + 1;
+        return (short) (start | end << 6 | promotion << 12);
+    }
+
+    public static ChessMove decodeMove(short encoded) {
+        int start = encoded & 0x3F;
+        int end = (encoded >> 6) & 0x3F;
+        int promotion = (encoded >> 12) & 0x7;
+        if (promotion > TYPES.length) {
+            throw new IllegalArgumentException("Invalid promotion piece " + promotion);
+        }
+        return new ChessMove(new ChessPosition(start / 8 + 1, start % 8 + 1), new ChessPosition(end / 8 + 1, end % 8 + 1),
+                promotion == 0 ? null : TYPES[promotion - 1]);
+    }
+}
@@ -17,7 +17,8 @@ import static chess.PieceMovesCalculator.calculateMoves;
 public class ChessPiece {
 
     private final ChessGame.TeamColor pieceColor;
-    private PieceType type;
+    // Final, since decoded boards share one instance of each piece
+    private final PieceType type;
 
     public ChessPiece(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
         this.pieceColor = pieceColor;
@@ -45,10 +46,6 @@ public class ChessPiece {
         return type;
     }
 
-    public void promotePiece(PieceType type) {
-        this.type = type;
-    }
-
     /**
      * Calculates all the positions a chess piece can move to Does not take into
      * account moves that are illegal due to leaving the king in danger
@@ -0,0 +1,285 @@
+package chess;
+
+import java.io.IOException;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+/**
+ * Streaming Gson adapters for games, boards and moves, so they are written and
+ * read without reflection. The JSON has the same shape Gson gives these
+ * classes by reflection, so either side of a connection may still use a
+ * plain {@code Gson}. A game leaves out its fixed castling moves, which a
+ * reflective reader fills in from the constructor.
+ */
+public final class ChessTypeAdapters {
+
+    private static final TeamColor[] COLORS = TeamColor.values();
+    private static final PieceType[] TYPES = PieceType.values();
+
+    private ChessTypeAdapters() {
+    }
+
+    public static GsonBuilder register(GsonBuilder builder) {
+        return builder.registerTypeAdapter(ChessGame.class, new GameAdapter().nullSafe())
+                .registerTypeAdapter(ChessBoard.class, new BoardAdapter().nullSafe())
+                .registerTypeAdapter(ChessMove.class, new MoveAdapter().nullSafe())
+                .registerTypeAdapter(ChessPosition.class, new PositionAdapter().nullSafe())
+                .registerTypeAdapter(ChessPiece.class, new PieceAdapter().nullSafe());
+    }
+
+    private static class GameAdapter extends TypeAdapter<ChessGame> {
+        private final BoardAdapter boards = new BoardAdapter();
+        private final MoveAdapter moves = new MoveAdapter();
+
+        @Override
+        public void write(JsonWriter out, ChessGame game) throws IOException {
+            out.beginObject();
+            out.name("teamTurn").value(game.getTeamTurn().name());
+            out.name("board");
+            boards.write(out, game.getBoard());
+
+            int rights = game.getCastlingRights();
+            out.name("canCastleList").beginArray();
+            for (int i = 0; i < 4; i++) {
+                out.value((rights & (1 << i)) != 0);
+            }
+            out.endArray();
+
+            out.name("enPassantMoves").beginArray();
+            for (ChessMove move : game.enPassantMoves()) {
+                moves.write(out, move);
+            }
+            out.endArray();
+            out.name("plyCount").value(game.getPlyCount());
+            out.endObject();
+        }
+
+        @Override
+        public ChessGame read(JsonReader in) throws IOException {
+            TeamColor teamTurn = TeamColor.WHITE;
+            ChessBoard board = null;
+            int rights = 0xF;
+            int enPassantColumn = 0;
+            int plyCount = 0;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "teamTurn" -> teamTurn = enumValue(in, COLORS);
+                    case "board" -> board = boards.read(in);
+                    case "canCastleList" -> {
+                        rights = 0;
+                        in.beginArray();
+                        for (int i = 0; in.hasNext(); i++) {
+                            if (in.nextBoolean() && i < 4) {
+                                rights |= 1 << i;
+                            }
+                        }
+                        in.endArray();
+                    }
+                    case "enPassantMoves" -> {
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            ChessMove move = moves.read(in);
+                            if (move != null) {
+                                enPassantColumn = move.getEndPosition().getColumn();
+                            }
+                        }
+                        in.endArray();
+                    }
+                    case "plyCount" -> plyCount = in.nextInt();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+
+            ChessGame game = board == null ? new ChessGame() : new ChessGame(board);
+            game.setTeamTurn(teamTurn == null ? TeamColor.WHITE : teamTurn);
+            game.setCastlingRights(rights);
+            // Worked out again from the board, which must be set first
+            game.setEnPassantColumn(enPassantColumn);
+            game.setPlyCount(plyCount);
+            return game;
+        }
+    }
+
+    private static class BoardAdapter extends TypeAdapter<ChessBoard> {
+        private final PieceAdapter pieces = new PieceAdapter();
+
+        @Override
+        public void write(JsonWriter out, ChessBoard board) throws IOException {
+            out.beginObject();
+            out.name("board").beginArray();
+            for (ChessPiece[] row : board.squares()) {
+                out.beginArray();
+                for (ChessPiece piece : row) {
+                    if (piece == null) {
+                        out.nullValue();
+                    } else {
+                        pieces.write(out, piece);
+                    }
+                }
+                out.endArray();
+            }
+            out.endArray();
+            out.endObject();
+        }
+
+        @Override
+        public ChessBoard read(JsonReader in) throws IOException {
+            ChessBoard board = new ChessBoard();
+            ChessPiece[][] squares = board.squares();
+
+            in.beginObject();
+            while (in.hasNext()) {
+                if (!in.nextName().equals("board")) {
+                    in.skipValue();
+                    continue;
+                }
+                in.beginArray();
+                for (int row = 0; in.hasNext(); row++) {
+                    in.beginArray();
+                    for (int col = 0; in.hasNext(); col++) {
+                        ChessPiece piece = pieces.read(in);
+                        if (row >= 8 || col >= 8) {
+                            throw new JsonParseException("Board is larger than 8x8");
+                        }
+                        squares[row][col] = piece;
+                    }
+                    in.endArray();
+                }
+                in.endArray();
+            }
+            in.endObject();
+            return board;
+        }
+    }
+
+    private static class PieceAdapter extends TypeAdapter<ChessPiece> {
+        @Override
+        public void write(JsonWriter out, ChessPiece piece) throws IOException {
+            out.beginObject();
+            out.name("pieceColor").value(piece.getTeamColor().name());
+            out.name("type").value(piece.getPieceType().name());
+            out.endObject();
+        }
+
+        @Override
+        public ChessPiece read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            TeamColor color = null;
+            PieceType type = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "pieceColor" -> color = enumValue(in, COLORS);
+                    case "type" -> type = enumValue(in, TYPES);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new ChessPiece(color, type);
+        }
+    }
+
+    private static class MoveAdapter extends TypeAdapter<ChessMove> {
+        private final PositionAdapter positions = new PositionAdapter();
+
+        @Override
+        public void write(JsonWriter out, ChessMove move) throws IOException {
+            out.beginObject();
+            out.name("startPosition");
+            positions.write(out, move.getStartPosition());
+            out.name("endPosition");
+            positions.write(out, move.getEndPosition());
+            if (move.getPromotionPiece() != null) {
+                out.name("promotionPiece").value(move.getPromotionPiece().name());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public ChessMove read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            ChessPosition start = null;
+            ChessPosition end = null;
+            PieceType promotion = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "startPosition" -> start = positions.read(in);
+                    case "endPosition" -> end = positions.read(in);
+                    case "promotionPiece" -> promotion = enumValue(in, TYPES);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new ChessMove(start, end, promotion);
+        }
+    }
+
+    private static class PositionAdapter extends TypeAdapter<ChessPosition> {
+        @Override
+        public void write(JsonWriter out, ChessPosition position) throws IOException {
+            out.beginObject();
+            out.name("row").value(position.getRow());
+            out.name("col").value(position.getColumn());
+            out.endObject();
+        }
+
+        @Override
+        public ChessPosition read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            int row = 0;
+            int col = 0;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "row" -> row = in.nextInt();
+                    case "col" -> col = in.nextInt();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new ChessPosition(row, col);
+        }
+    }
+
+    /**
+     * Reads an enum by name, or null for a JSON null or an unknown name, as
+     * Gson does by reflection
+     */
+    private static <E extends Enum<E>> E enumValue(JsonReader in, E[] values) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String name = in.nextString();
+        for (E value : values) {
+            if (value.name().equals(name)) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
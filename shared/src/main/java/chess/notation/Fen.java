@@ -0,0 +1,203 @@
+package chess.notation;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece;
+import chess.ChessPiece.PieceType;
+import chess.ChessPosition;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation.
+ * <p>
+ * {@link ChessGame} does not track the halfmove clock, so it is written as 0
+ * and ignored when read. A finished game is written with the side that would
+ * have moved next.
+ */
+public final class Fen {
+
+    public static final String STARTING_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String CASTLING = "KQkq";
+
+    private Fen() {
+    }
+
+    public static String write(ChessGame game) {
+        StringBuilder output = new StringBuilder(90);
+        write(game, output);
+        return output.toString();
+    }
+
+    public static void write(ChessGame game, StringBuilder output) {
+        ChessBoard board = game.getBoard();
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(new ChessPosition(row, col));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    output.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                output.append(pieceLetter(piece));
+            }
+            if (empty > 0) {
+                output.append((char) ('0' + empty));
+            }
+            if (row > 1) {
+                output.append('/');
+            }
+        }
+
+        boolean whiteToMove = sideToMove(game) == TeamColor.WHITE;
+        output.append(whiteToMove ? " w " : " b ");
+
+        int rights = game.getCastlingRights();
+        if (rights == 0) {
+            output.append('-');
+        }
+        for (int i = 0; i < 4; i++) {
+            if ((rights & (1 << i)) != 0) {
+                output.append(CASTLING.charAt(i));
+            }
+        }
+
+        int enPassant = game.getEnPassantColumn();
+        if (enPassant == 0) {
+            output.append(" -");
+        } else {
+            output.append(' ').append((char) ('a' + enPassant - 1)).append(whiteToMove ? '6' : '3');
+        }
+
+        output.append(" 0 ").append(game.getPlyCount() / 2 + 1);
+    }
+
+    public static ChessGame read(CharSequence fen) throws NotationException {
+        ChessBoard board = new ChessBoard();
+        int i = 0;
+        int length = fen.length();
+
+        int row = 8;
+        int col = 1;
+        for (; i < length && fen.charAt(i) != ' '; i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                if (col != 9) {
+                    throw new NotationException(String.format("Rank %d of FEN does not have 8 squares", row));
+                }
+                row--;
+                col = 1;
+            } else if (c >= '1' && c <= '8') {
+                col += c - '0';
+            } else {
+                PieceType type = pieceType(Character.toUpperCase(c));
+                if (type == null) {
+                    throw new NotationException(String.format("Unexpected '%c' in FEN placement", c));
+                }
+                if (row < 1 || col > 8) {
+                    throw new NotationException("FEN placement has too many squares");
+                }
+                board.addPiece(new ChessPosition(row, col++),
+                        new ChessPiece(Character.isUpperCase(c) ? TeamColor.WHITE : TeamColor.BLACK, type));
+            }
+            if (col > 9) {
+                throw new NotationException(String.format("Rank %d of FEN has more than 8 squares", row));
+            }
+        }
+        if (row != 1 || col != 9) {
+            throw new NotationException("FEN placement does not describe 8 ranks");
+        }
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+
+        i = skipSpaces(fen, i);
+        if (i >= length || (fen.charAt(i) != 'w' && fen.charAt(i) != 'b')) {
+            throw new NotationException("FEN is missing the side to move");
+        }
+        boolean whiteToMove = fen.charAt(i++) == 'w';
+        game.setTeamTurn(whiteToMove ? TeamColor.WHITE : TeamColor.BLACK);
+
+        int rights = 0;
+        i = skipSpaces(fen, i);
+        for (; i < length && fen.charAt(i) != ' '; i++) {
+            char c = fen.charAt(i);
+            int index = CASTLING.indexOf(c);
+            if (index >= 0) {
+                rights |= 1 << index;
+            } else if (c != '-') {
+                throw new NotationException(String.format("Unexpected '%c' in FEN castling rights", c));
+            }
+        }
+        game.setCastlingRights(rights);
+
+        i = skipSpaces(fen, i);
+        if (i < length && fen.charAt(i) != '-') {
+            char file = fen.charAt(i);
+            if (file < 'a' || file > 'h' || i + 1 >= length || fen.charAt(i + 1) != (whiteToMove ? '6' : '3')) {
+                throw new NotationException("Invalid FEN en passant square");
+            }
+            game.setEnPassantColumn(file - 'a' + 1);
+            i += 2;
+        } else {
+            i++;
+        }
+
+        // Halfmove clock, which is not tracked
+        i = skipSpaces(fen, i);
+        while (i < length && fen.charAt(i) != ' ') {
+            i++;
+        }
+
+        i = skipSpaces(fen, i);
+        int fullmove = 0;
+        for (; i < length && fen.charAt(i) >= '0' && fen.charAt(i) <= '9'; i++) {
+            fullmove = fullmove * 10 + fen.charAt(i) - '0';
+        }
+        game.setPlyCount(Math.max(fullmove - 1, 0) * 2 + (whiteToMove ? 0 : 1));
+
+        return game;
+    }
+
+    static char pieceLetter(ChessPiece piece) {
+        char letter = switch (piece.getPieceType()) {
+            case KING -> 'K';
+            case QUEEN -> 'Q';
+            case BISHOP -> 'B';
+            case KNIGHT -> 'N';
+            case ROOK -> 'R';
+            case PAWN -> 'P';
+        };
+        return piece.getTeamColor() == TeamColor.WHITE ? letter : Character.toLowerCase(letter);
+    }
+
+    static PieceType pieceType(char letter) {
+        return switch (letter) {
+            case 'K' -> PieceType.KING;
+            case 'Q' -> PieceType.QUEEN;
+            case 'B' -> PieceType.BISHOP;
+            case 'N' -> PieceType.KNIGHT;
+            case 'R' -> PieceType.ROOK;
+            case 'P' -> PieceType.PAWN;
+            default -> null;
+        };
+    }
+
+    static TeamColor sideToMove(ChessGame game) {
+        if (game.getTeamTurn() != TeamColor.GAMEOVER) {
+            return game.getTeamTurn();
+        }
+        return game.getPlyCount() % 2 == 0 ? TeamColor.WHITE : TeamColor.BLACK;
+    }
+
+    private static int skipSpaces(CharSequence text, int i) {
+        while (i < text.length() && text.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,15 @@
+package chess.notation;
+
+/**
+ * Indicates text could not be read as chess notation
+ */
+public class NotationException extends Exception {
+
+    public NotationException(String message) {
+        super(message);
+    }
+
+    public NotationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,23 @@
+package chess.notation;
+
+import java.util.List;
+import java.util.Map;
+
+import chess.ChessGame;
+import chess.ChessMove;
+
+/**
+ * A game read from or written as PGN
+ *
+ * @param tags   the tag pairs, in order
+ * @param moves  the moves of the main line
+ * @param game   the position after the last move
+ * @param result the game termination marker: {@code 1-0}, {@code 0-1},
+ *               {@code 1/2-1/2} or {@code *}
+ */
+public record PgnGame(Map<String, String> tags, List<ChessMove> moves, ChessGame game, String result) {
+
+    public String tag(String name) {
+        return tags.get(name);
+    }
+}
@@ -0,0 +1,296 @@
+package chess.notation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+
+/**
+ * Reads games one at a time from PGN text, so archives of any size can be
+ * imported without holding more than one game in memory. Comments, NAGs and
+ * variations are skipped; only the main line is kept.
+ * <p>
+ * If a game contains a malformed tag or an illegal or malformed move,
+ * {@link #next()} skips the rest of that game before throwing, so the caller can log it and carry on
+ * with the next one.
+ */
+public class PgnReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private int line = 1;
+    private boolean lineStart = true;
+
+    // Reused for every move so reading a move allocates no text
+    private final StringBuilder token = new StringBuilder(32);
+
+    public PgnReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the next game
+     *
+     * @return the game, or null at the end of the input
+     * @throws NotationException if the game is malformed or has an illegal
+     *                           move; the reader is left at the following game
+     */
+    public PgnGame next() throws IOException, NotationException {
+        int c = skipWhitespace();
+        if (c < 0) {
+            return null;
+        }
+
+        Map<String, String> tags = new LinkedHashMap<>();
+        List<ChessMove> moves = new ArrayList<>();
+        boolean inHeader = true;
+        try {
+            while (c == '[') {
+                readTag(tags);
+                c = skipWhitespace();
+            }
+            inHeader = false;
+
+            String fen = tags.get("FEN");
+            ChessGame game = fen == null ? new ChessGame() : Fen.read(fen);
+
+            while (true) {
+                c = skipWhitespace();
+                switch (c) {
+                    case -1, '[' -> {
+                        // Missing termination marker
+                        return new PgnGame(tags, moves, game, tags.getOrDefault("Result", "*"));
+                    }
+                    case '{' -> skipUntil('}');
+                    case ';' -> skipUntil('\n');
+                    case '(' -> skipVariation();
+                    case '$' -> {
+                        read();
+                        readToken();
+                    }
+                    case '*' -> {
+                        read();
+                        return new PgnGame(tags, moves, game, "*");
+                    }
+                    default -> {
+                        readToken();
+                        String result = result(token);
+                        if (result != null) {
+                            return new PgnGame(tags, moves, game, result);
+                        }
+                        int start = skipMoveNumber(token);
+                        if (start < token.length()) {
+                            ChessMove move = San.read(game, token, start, token.length());
+                            game.makeMove(move);
+                            moves.add(move);
+                        }
+                    }
+                }
+            }
+        } catch (NotationException | InvalidMoveException e) {
+            int errorLine = line;
+            if (inHeader) {
+                // The rest of the header too, or it would be read as the next game
+                while (skipWhitespace() == '[') {
+                    skipUntil(']');
+                }
+            }
+            skipRestOfGame();
+            if (inHeader) {
+                throw new NotationException(String.format("Line %d: %s", errorLine, e.getMessage()), e);
+            }
+            throw new NotationException(String.format("Line %d, move %d: %s", errorLine, moves.size() + 1, e.getMessage()), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void readTag(Map<String, String> tags) throws IOException, NotationException {
+        read();
+        int c = skipWhitespace();
+        StringBuilder name = new StringBuilder();
+        while (c >= 0 && !Character.isWhitespace(c) && c != '"' && c != ']') {
+            name.append((char) read());
+            c = peek();
+        }
+
+        c = skipWhitespace();
+        if (c != '"') {
+            skipUntil(']');
+            throw new NotationException(String.format("tag %s has no value", name));
+        }
+        read();
+
+        StringBuilder value = new StringBuilder();
+        while ((c = read()) >= 0 && c != '"') {
+            if (c == '\\') {
+                c = read();
+            }
+            if (c >= 0) {
+                value.append((char) c);
+            }
+        }
+        skipUntil(']');
+        tags.put(name.toString(), value.toString());
+    }
+
+    private void readToken() throws IOException {
+        token.setLength(0);
+        int c;
+        while ((c = peek()) >= 0 && !Character.isWhitespace(c) && "{}();[]$*".indexOf(c) < 0) {
+            token.append((char) read());
+        }
+        if (token.isEmpty()) {
+            // Stray delimiter such as ')', skip it so reading makes progress
+            read();
+        }
+    }
+
+    private void skipRestOfGame() throws IOException {
+        while (true) {
+            int c = skipWhitespace();
+            switch (c) {
+                case -1, '[' -> {
+                    return;
+                }
+                case '{' -> skipUntil('}');
+                case ';' -> skipUntil('\n');
+                case '(' -> skipVariation();
+                case '*' -> {
+                    read();
+                    return;
+                }
+                default -> {
+                    readToken();
+                    if (result(token) != null) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private void skipVariation() throws IOException {
+        int depth = 0;
+        int c;
+        while ((c = read()) >= 0) {
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return;
+            } else if (c == '{') {
+                skipUntil('}');
+            } else if (c == ';') {
+                skipUntil('\n');
+            }
+        }
+    }
+
+    private void skipUntil(char end) throws IOException {
+        int c;
+        while ((c = read()) >= 0 && c != end) {
+            // Skip
+        }
+    }
+
+    /**
+     * Skips whitespace and escaped lines, which start with {@code %} in the
+     * first column; a {@code %} anywhere else is not an escape
+     */
+    private int skipWhitespace() throws IOException {
+        int c;
+        while ((c = peek()) >= 0) {
+            if (c == '%' && lineStart) {
+                skipUntil('\n');
+            } else if (Character.isWhitespace(c) || c == '\uFEFF') {
+                read();
+            } else {
+                break;
+            }
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position];
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        if (c >= 0) {
+            position++;
+            if (c == '\n') {
+                line++;
+            }
+            // A byte order mark doesn't take up a column
+            lineStart = c == '\n' || (c == '\uFEFF' && lineStart);
+        }
+        return c;
+    }
+
+    private static String result(CharSequence token) {
+        if (equals(token, "1-0")) {
+            return "1-0";
+        } else if (equals(token, "0-1")) {
+            return "0-1";
+        } else if (equals(token, "1/2-1/2")) {
+            return "1/2-1/2";
+        }
+        return null;
+    }
+
+    /**
+     * @return the index after a leading move number such as {@code 12.} or
+     *         {@code 12...}, or 0 if the token does not start with one
+     */
+    private static int skipMoveNumber(CharSequence token) {
+        int i = 0;
+        while (i < token.length() && Character.isDigit(token.charAt(i))) {
+            i++;
+        }
+        if (i == token.length()) {
+            return i;
+        }
+        if (token.charAt(i) != '.') {
+            return 0;
+        }
+        while (i < token.length() && token.charAt(i) == '.') {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean equals(CharSequence token, String text) {
+        if (token.length() != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (token.charAt(i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,122 @@
+package chess.notation;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+import chess.ChessGame;
+import chess.ChessGame.TeamColor;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+
+/**
+ * Writes games as PGN in export format: the seven tag roster first, then any
+ * other tags, then the movetext wrapped at 79 characters.
+ */
+public class PgnWriter implements Closeable, Flushable {
+
+    private static final int LINE_LENGTH = 79;
+    private static final String[] SEVEN_TAG_ROSTER = { "Event", "Site", "Date", "Round", "White", "Black", "Result" };
+
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder(LINE_LENGTH + 16);
+    private final StringBuilder move = new StringBuilder(16);
+
+    public PgnWriter(Writer out) {
+        this.out = out;
+    }
+
+    public void write(PgnGame game) throws IOException, InvalidMoveException, NotationException {
+        write(game.tags(), game.moves(), game.result());
+    }
+
+    /**
+     * Writes one game, replaying the moves from the position in the
+     * {@code FEN} tag, or the starting position if there is none
+     *
+     * @throws InvalidMoveException if a move is not legal when it is played
+     * @throws NotationException    if the {@code FEN} tag is malformed
+     */
+    public void write(Map<String, String> tags, List<ChessMove> moves, String result) throws IOException, InvalidMoveException, NotationException {
+        for (String name : SEVEN_TAG_ROSTER) {
+            String value = "Result".equals(name) ? result : tags.get(name);
+            writeTag(name, value != null ? value : ("Date".equals(name) ? "????.??.??" : "?"));
+        }
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            if (!isRosterTag(tag.getKey())) {
+                writeTag(tag.getKey(), tag.getValue());
+            }
+        }
+        out.write('\n');
+
+        String fen = tags.get("FEN");
+        ChessGame game = fen == null ? new ChessGame() : Fen.read(fen);
+        line.setLength(0);
+
+        boolean first = true;
+        for (ChessMove next : moves) {
+            TeamColor mover = game.getTeamTurn();
+            move.setLength(0);
+            if (mover == TeamColor.WHITE) {
+                move.append(game.getPlyCount() / 2 + 1).append(". ");
+            } else if (first) {
+                move.append(game.getPlyCount() / 2 + 1).append("... ");
+            }
+            San.appendMove(game, next, move);
+            game.makeMove(next);
+            San.appendSuffix(game, mover, move);
+
+            appendToken(move);
+            first = false;
+        }
+        appendToken(result);
+        out.append(line).append("\n\n");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void appendToken(CharSequence token) throws IOException {
+        if (!line.isEmpty() && line.length() + 1 + token.length() > LINE_LENGTH) {
+            out.append(line).append('\n');
+            line.setLength(0);
+        }
+        if (!line.isEmpty()) {
+            line.append(' ');
+        }
+        line.append(token);
+    }
+
+    private void writeTag(String name, String value) throws IOException {
+        out.write('[');
+        out.write(name);
+        out.write(" \"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.write('\\');
+            }
+            out.write(c);
+        }
+        out.write("\"]\n");
+    }
+
+    private static boolean isRosterTag(String name) {
+        for (String roster : SEVEN_TAG_ROSTER) {
+            if (roster.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,244 @@
+package chess.notation;
+
+import java.util.Collection;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessGame.TeamColor;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPiece.PieceType;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+
+/**
+ * Reads and writes moves in Standard Algebraic Notation, e.g. {@code Nbd7},
+ * {@code exd6}, {@code O-O} or {@code e8=Q+}.
+ */
+public final class San {
+
+    private San() {
+    }
+
+    /**
+     * Formats a move that has not been made yet, including its check or mate
+     * suffix. The game is left unchanged.
+     *
+     * @throws InvalidMoveException if the move is not legal in this position
+     */
+    public static String write(ChessGame game, ChessMove move) throws InvalidMoveException {
+        StringBuilder output = new StringBuilder(8);
+        TeamColor mover = game.getTeamTurn();
+        appendMove(game, move, output);
+
+        ChessGame after = game.copy();
+        after.makeMove(move);
+        appendSuffix(after, mover, output);
+        return output.toString();
+    }
+
+    /**
+     * Appends a move without its check or mate suffix
+     */
+    static void appendMove(ChessGame game, ChessMove move, StringBuilder output) throws InvalidMoveException {
+        ChessBoard board = game.getBoard();
+        ChessPosition start = move.getStartPosition();
+        ChessPosition end = move.getEndPosition();
+        ChessPiece piece = board.getPiece(start);
+        if (piece == null) {
+            throw new InvalidMoveException(String.format("There is no piece at %s", start));
+        }
+
+        if (piece.getPieceType() == PieceType.KING && Math.abs(end.getColumn() - start.getColumn()) == 2) {
+            output.append(end.getColumn() > start.getColumn() ? "O-O" : "O-O-O");
+            return;
+        }
+
+        boolean capture = board.getPiece(end) != null || (piece.getPieceType() == PieceType.PAWN && end.getColumn() != start.getColumn());
+        if (piece.getPieceType() == PieceType.PAWN) {
+            if (capture) {
+                output.append(file(start.getColumn())).append('x');
+            }
+        } else {
+            output.append(Character.toUpperCase(Fen.pieceLetter(piece)));
+            appendDisambiguation(game, piece, move, output);
+            if (capture) {
+                output.append('x');
+            }
+        }
+        output.append(file(end.getColumn())).append((char) ('0' + end.getRow()));
+
+        if (move.getPromotionPiece() != null) {
+            output.append('=').append(Character.toUpperCase(Fen.pieceLetter(new ChessPiece(TeamColor.WHITE, move.getPromotionPiece()))));
+        }
+    }
+
+    /**
+     * Appends {@code +} or {@code #} if the move that produced this position
+     * left the opponent in check or checkmate
+     */
+    static void appendSuffix(ChessGame after, TeamColor mover, StringBuilder output) {
+        TeamColor opponent = mover == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+        if (after.isInCheck(opponent)) {
+            output.append(after.getTeamTurn() == TeamColor.GAMEOVER ? '#' : '+');
+        }
+    }
+
+    private static void appendDisambiguation(ChessGame game, ChessPiece piece, ChessMove move, StringBuilder output) {
+        ChessPosition start = move.getStartPosition();
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                if (row == start.getRow() && col == start.getColumn()) {
+                    continue;
+                }
+                ChessPosition position = new ChessPosition(row, col);
+                if (!piece.equals(game.getBoard().getPiece(position))) {
+                    continue;
+                }
+                if (!game.validMoves(position).contains(new ChessMove(position, move.getEndPosition(), move.getPromotionPiece()))) {
+                    continue;
+                }
+                ambiguous = true;
+                sameFile |= col == start.getColumn();
+                sameRank |= row == start.getRow();
+            }
+        }
+
+        if (!ambiguous) {
+            return;
+        }
+        if (!sameFile) {
+            output.append(file(start.getColumn()));
+        } else if (!sameRank) {
+            output.append((char) ('0' + start.getRow()));
+        } else {
+            output.append(file(start.getColumn())).append((char) ('0' + start.getRow()));
+        }
+    }
+
+    public static ChessMove read(ChessGame game, CharSequence san) throws NotationException {
+        return read(game, san, 0, san.length());
+    }
+
+    /**
+     * Resolves a move in SAN against the legal moves of the side to move
+     *
+     * @param game  the position the move is made from
+     * @param san   text containing the move
+     * @param start index of the first character of the move
+     * @param end   index after the last character of the move
+     * @throws NotationException if the move is malformed, illegal or ambiguous
+     */
+    public static ChessMove read(ChessGame game, CharSequence san, int start, int end) throws NotationException {
+        TeamColor color = game.getTeamTurn();
+        if (color == TeamColor.GAMEOVER) {
+            throw new NotationException("The game is already over");
+        }
+
+        // Drop check, mate and annotation suffixes
+        while (end > start && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        if (end - start < 2) {
+            throw new NotationException(String.format("Invalid move '%s'", san.subSequence(start, end)));
+        }
+
+        if (san.charAt(start) == 'O' || san.charAt(start) == '0') {
+            int length = end - start;
+            if (length != 3 && length != 5) {
+                throw new NotationException(String.format("Invalid castling move '%s'", san.subSequence(start, end)));
+            }
+            int row = color == TeamColor.WHITE ? 1 : 8;
+            return resolve(game, color, PieceType.KING, 5, row, row, length == 3 ? 7 : 3, null, san, start, end);
+        }
+
+        PieceType type = PieceType.PAWN;
+        if (Character.isUpperCase(san.charAt(start))) {
+            type = Fen.pieceType(san.charAt(start));
+            if (type == null || type == PieceType.PAWN) {
+                throw new NotationException(String.format("Invalid piece in move '%s'", san.subSequence(start, end)));
+            }
+            start++;
+        }
+
+        PieceType promotion = null;
+        if (end - start > 2 && Character.isUpperCase(san.charAt(end - 1))) {
+            promotion = Fen.pieceType(san.charAt(end - 1));
+            if (promotion == null || promotion == PieceType.PAWN || promotion == PieceType.KING) {
+                throw new NotationException(String.format("Invalid promotion in move '%s'", san.subSequence(start, end)));
+            }
+            end--;
+            if (san.charAt(end - 1) == '=') {
+                end--;
+            }
+        }
+
+        if (end - start < 2) {
+            throw new NotationException(String.format("Invalid move '%s'", san.subSequence(start, end)));
+        }
+        int toColumn = san.charAt(end - 2) - 'a' + 1;
+        int toRow = san.charAt(end - 1) - '0';
+        if (toColumn < 1 || toColumn > 8 || toRow < 1 || toRow > 8) {
+            throw new NotationException(String.format("Invalid destination in move '%s'", san.subSequence(start, end)));
+        }
+
+        int fromColumn = 0;
+        int fromRow = 0;
+        for (int i = start; i < end - 2; i++) {
+            char c = san.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromColumn = c - 'a' + 1;
+            } else if (c >= '1' && c <= '8') {
+                fromRow = c - '0';
+            } else if (c != 'x' && c != '-') {
+                throw new NotationException(String.format("Unexpected '%c' in move '%s'", c, san.subSequence(start, end)));
+            }
+        }
+
+        return resolve(game, color, type, fromColumn, fromRow, toRow, toColumn, promotion, san, start, end);
+    }
+
+    private static ChessMove resolve(ChessGame game, TeamColor color, PieceType type, int fromColumn, int fromRow, int toRow, int toColumn,
+            PieceType promotion, CharSequence san, int start, int end) throws NotationException {
+        ChessPiece wanted = new ChessPiece(color, type);
+        ChessPosition destination = new ChessPosition(toRow, toColumn);
+        ChessMove found = null;
+
+        for (int row = 1; row <= 8; row++) {
+            if (fromRow != 0 && row != fromRow) {
+                continue;
+            }
+            for (int col = 1; col <= 8; col++) {
+                if (fromColumn != 0 && col != fromColumn) {
+                    continue;
+                }
+                ChessPosition position = new ChessPosition(row, col);
+                if (!wanted.equals(game.getBoard().getPiece(position))) {
+                    continue;
+                }
+                ChessMove candidate = new ChessMove(position, destination, promotion);
+                Collection<ChessMove> validMoves = game.validMoves(position);
+                if (!validMoves.contains(candidate)) {
+                    continue;
+                }
+                if (found != null) {
+                    throw new NotationException(String.format("Ambiguous move '%s'", san.subSequence(start, end)));
+                }
+                found = candidate;
+            }
+        }
+
+        if (found == null) {
+            throw new NotationException(String.format("Illegal move '%s'", san.subSequence(start, end)));
+        }
+        return found;
+    }
+
+    private static char file(int column) {
+        return (char) ('a' + column - 1);
+    }
+}
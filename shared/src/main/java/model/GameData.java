@@ -2,6 +2,17 @@ package model;
 
 import chess.ChessGame;
 
-public record GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game) {
+/**
+ * @param version incremented by the server every time the game is changed, so
+ *                concurrent updates can detect that they read a stale copy
+ */
+public record GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game, int version) {
 
+    public GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game) {
+        this(gameID, whiteUsername, blackUsername, gameName, game, 0);
+    }
+
+    public GameData withVersion(int version) {
+        return new GameData(gameID, whiteUsername, blackUsername, gameName, game, version);
+    }
 }
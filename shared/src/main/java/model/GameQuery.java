@@ -0,0 +1,38 @@
+package model;
+
+/**
+ * Which games to list, and which page of them. Games are listed in order of
+ * ID, so a page starts after the last game of the page before it; pages stay
+ * consistent while games are created.
+ *
+ * @param status     only games with this status, or null for any
+ * @param openSeats  only games with a seat still open
+ * @param namePrefix only games whose name starts with this, or null for any
+ * @param after      only games with a higher ID, or 0 to start at the
+ *                   beginning
+ * @param limit      the most games to list, or 0 for all of them
+ */
+public record GameQuery(GameStatus status, boolean openSeats, String namePrefix, int after, int limit) {
+
+    public static final GameQuery ALL = new GameQuery(null, false, null, 0, 0);
+
+    public GameQuery {
+        if (namePrefix != null && namePrefix.isEmpty()) {
+            namePrefix = null;
+        }
+        after = Math.max(0, after);
+        limit = Math.max(0, limit);
+    }
+
+    public GameQuery page(int after, int limit) {
+        return new GameQuery(status, openSeats, namePrefix, after, limit);
+    }
+
+    /**
+     * @return whether a game passes the filters; the page is not checked
+     */
+    public boolean matches(GameSummary game) {
+        return (status == null || status == game.status()) && (!openSeats || game.hasOpenSeat())
+                && (namePrefix == null || game.gameName().startsWith(namePrefix));
+    }
+}
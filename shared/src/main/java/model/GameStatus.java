@@ -0,0 +1,26 @@
+package model;
+
+import chess.ChessGame;
+
+/**
+ * Where a game is in its life, as shown in the lobby
+ */
+public enum GameStatus {
+    /** A seat is still open */
+    WAITING,
+    /** Both seats are taken and the game is being played */
+    ACTIVE,
+    /** Someone won, resigned or the game was drawn */
+    FINISHED;
+
+    /**
+     * Works out a game's status. Games read without their board are taken
+     * not to be finished.
+     */
+    public static GameStatus of(GameData game) {
+        if (game.game() != null && game.game().getTeamTurn() == ChessGame.TeamColor.GAMEOVER) {
+            return FINISHED;
+        }
+        return game.whiteUsername() == null || game.blackUsername() == null ? WAITING : ACTIVE;
+    }
+}
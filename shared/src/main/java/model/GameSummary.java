@@ -0,0 +1,15 @@
+package model;
+
+/**
+ * A game as listed in the lobby: everything but the board
+ */
+public record GameSummary(int gameID, String whiteUsername, String blackUsername, String gameName, GameStatus status) {
+
+    public static GameSummary of(GameData game) {
+        return new GameSummary(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), GameStatus.of(game));
+    }
+
+    public boolean hasOpenSeat() {
+        return whiteUsername == null || blackUsername == null;
+    }
+}
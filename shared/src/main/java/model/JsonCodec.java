@@ -0,0 +1,22 @@
+package model;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import chess.ChessTypeAdapters;
+import websocket.WebSocketTypeAdapters;
+
+/**
+ * The one {@link Gson} shared by the client and server. Gson is thread-safe
+ * and caches the adapter it builds for each type, so building it once saves
+ * that work on every call. Games, moves, websocket commands and server
+ * messages have hand-written streaming adapters, see
+ * {@link ChessTypeAdapters} and {@link WebSocketTypeAdapters}.
+ */
+public final class JsonCodec {
+
+    public static final Gson GSON = WebSocketTypeAdapters.register(ChessTypeAdapters.register(new GsonBuilder())).create();
+
+    private JsonCodec() {
+    }
+}
@@ -0,0 +1,11 @@
+package model;
+
+/**
+ * A change to a game that shows in the lobby
+ */
+public enum LobbyEvent {
+    CREATED,
+    SEAT_TAKEN,
+    SEAT_FREED,
+    GAME_OVER
+}
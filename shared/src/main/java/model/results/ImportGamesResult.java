@@ -0,0 +1,11 @@
+package model.results;
+
+import java.util.List;
+
+/**
+ * @param gameIDs the IDs of the games that were created
+ * @param skipped why each game that couldn't be imported was skipped
+ */
+public record ImportGamesResult(List<Integer> gameIDs, List<String> skipped) implements Result {
+
+}
@@ -2,8 +2,15 @@ package model.results;
 
 import java.util.List;
 
-import model.GameData;
+import model.GameSummary;
 
-public record ListGamesResult(List<GameData> games) implements Result {
+/**
+ * @param nextPage the ID to list the next page after, or null if this was the
+ *                 last page
+ */
+public record ListGamesResult(List<GameSummary> games, Integer nextPage) implements Result {
 
+    public ListGamesResult(List<GameSummary> games) {
+        this(games, null);
+    }
 }
@@ -1,5 +1,5 @@
 package model.results;
 
-public sealed interface Result permits RegisterResult, SessionCreationResult, ListGamesResult, GameCreationResult {
+public sealed interface Result permits RegisterResult, SessionCreationResult, ListGamesResult, GameCreationResult, ImportGamesResult {
 
 }
@@ -0,0 +1,233 @@
+package websocket;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import chess.ChessGameCodec;
+import websocket.commands.ConnectCommand;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+import websocket.commands.UserGameCommand.CommandType;
+import websocket.messages.ErrorMessage;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
+import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage;
+import websocket.messages.ServerMessage.ServerMessageType;
+
+/**
+ * A compact binary form of websocket commands and server messages, sent as
+ * binary frames in place of JSON text frames. A client asks for it when it
+ * connects, see {@link ConnectCommand#wantsBinaryFrames()}, and keeps sending
+ * JSON until the server answers in binary, so either side can fall back to
+ * JSON.
+ * <p>
+ * Command layout (big-endian):
+ * <ul>
+ * <li>1 byte {@link CommandType} ordinal</li>
+ * <li>4 bytes game ID</li>
+ * <li>16 bytes auth token, as a UUID</li>
+ * <li>{@code MAKE_MOVE}: 2 bytes move, as in
+ * {@link ChessGameCodec#encodeMove}</li>
+ * <li>{@code CONNECT}: 1 byte flags (bit 0 move updates, bit 1 binary frames,
+ * bit 2 resuming), then 4 bytes last sequence</li>
+ * </ul>
+ * Server message layout (big-endian):
+ * <ul>
+ * <li>1 byte {@link ServerMessageType} ordinal</li>
+ * <li>4 bytes sequence, {@link #NO_SEQUENCE} for none</li>
+ * <li>{@code LOAD_GAME}: the game, as in {@link ChessGameCodec}</li>
+ * <li>{@code MOVE}: 2 bytes move, 4 bytes ply, 1 byte flags (bit 0 check,
+ * bit 1 game over)</li>
+ * <li>{@code NOTIFICATION} and {@code ERROR}: the rest of the frame is the
+ * UTF-8 text</li>
+ * </ul>
+ * Lobby messages have no binary form and are always sent as JSON, see
+ * {@link #canEncode(ServerMessage)}.
+ */
+public final class BinaryProtocol {
+
+    /** Sequence written for messages that don't have one */
+    public static final int NO_SEQUENCE = -1;
+
+    private static final int COMMAND_HEADER_SIZE = 1 + 4 + 16;
+    private static final int MESSAGE_HEADER_SIZE = 1 + 4;
+
+    private static final CommandType[] COMMAND_TYPES = CommandType.values();
+    private static final ServerMessageType[] MESSAGE_TYPES = ServerMessageType.values();
+
+    private static final int MOVE_UPDATES = 0x1;
+    private static final int BINARY_FRAMES = 0x2;
+    private static final int RESUMING = 0x4;
+
+    private static final int CHECK = 0x1;
+    private static final int GAME_OVER = 0x2;
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * @return whether a command fits the binary form, which needs a UUID auth
+     *         token and a game ID
+     */
+    public static boolean canEncode(UserGameCommand command) {
+        if (command.getGameID() == null || command.getAuthToken() == null) {
+            return false;
+        }
+        try {
+            // Only the canonical form survives the round trip
+            return UUID.fromString(command.getAuthToken()).toString().equals(command.getAuthToken());
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return whether a message has a binary form; lobby messages don't
+     */
+    public static boolean canEncode(ServerMessage message) {
+        return switch (message.getServerMessageType()) {
+            case LOAD_GAME, MOVE, NOTIFICATION, ERROR -> true;
+            case LOBBY, LOBBY_UPDATE -> false;
+        };
+    }
+
+    /**
+     * @throws IllegalArgumentException if the command cannot be encoded, see
+     *                                  {@link #canEncode(UserGameCommand)}
+     */
+    public static byte[] encodeCommand(UserGameCommand command) {
+        if (!canEncode(command)) {
+            throw new IllegalArgumentException("Command cannot be sent in binary");
+        }
+        UUID token = UUID.fromString(command.getAuthToken());
+        ByteBuffer buffer = ByteBuffer.allocate(COMMAND_HEADER_SIZE + 5);
+        buffer.put((byte) command.getCommandType().ordinal());
+        buffer.putInt(command.getGameID());
+        buffer.putLong(token.getMostSignificantBits());
+        buffer.putLong(token.getLeastSignificantBits());
+
+        if (command instanceof MakeMoveCommand makeMove) {
+            buffer.putShort(ChessGameCodec.encodeMove(makeMove.getMove()));
+        } else if (command instanceof ConnectCommand connect) {
+            Integer lastSequence = connect.getLastSequence();
+            int flags = (connect.wantsMoveUpdates() ? MOVE_UPDATES : 0) | (connect.wantsBinaryFrames() ? BINARY_FRAMES : 0)
+                    | (lastSequence != null ? RESUMING : 0);
+            buffer.put((byte) flags);
+            buffer.putInt(lastSequence == null ? 0 : lastSequence);
+        }
+        return toArray(buffer);
+    }
+
+    /**
+     * Reads a command, as a {@link MakeMoveCommand} or {@link ConnectCommand}
+     * where the type calls for one
+     *
+     * @throws IllegalArgumentException if the data is not an encoded command
+     */
+    public static UserGameCommand decodeCommand(ByteBuffer buffer) {
+        try {
+            CommandType type = COMMAND_TYPES[index(buffer.get(), COMMAND_TYPES.length, "command type")];
+            int gameID = buffer.getInt();
+            String authToken = new UUID(buffer.getLong(), buffer.getLong()).toString();
+
+            return switch (type) {
+                case MAKE_MOVE -> new MakeMoveCommand(ChessGameCodec.decodeMove(buffer.getShort()), authToken, gameID);
+                case CONNECT -> {
+                    int flags = buffer.get();
+                    int lastSequence = buffer.getInt();
+                    yield new ConnectCommand(authToken, gameID, (flags & MOVE_UPDATES) != 0,
+                            (flags & RESUMING) != 0 ? lastSequence : null, (flags & BINARY_FRAMES) != 0);
+                }
+                default -> new UserGameCommand(type, authToken, gameID);
+            };
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Encoded command is truncated", e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the message cannot be encoded, see
+     *                                  {@link #canEncode(ServerMessage)}
+     */
+    public static byte[] encodeMessage(ServerMessage message) {
+        if (!canEncode(message)) {
+            throw new IllegalArgumentException(message.getServerMessageType() + " messages cannot be sent in binary");
+        }
+        byte[] text = switch (message) {
+            case NotificationMessage notification -> utf8(notification.getMessage());
+            case ErrorMessage error -> utf8(error.getErrorMessage());
+            default -> new byte[0];
+        };
+        ByteBuffer buffer = ByteBuffer.allocate(MESSAGE_HEADER_SIZE + Math.max(ChessGameCodec.MAX_SIZE, text.length));
+        buffer.put((byte) message.getServerMessageType().ordinal());
+        buffer.putInt(message.getSequence() == null ? NO_SEQUENCE : message.getSequence());
+
+        switch (message) {
+            case LoadGameMessage loadGame -> ChessGameCodec.encode(loadGame.getGame(), buffer);
+            case MoveMessage move -> {
+                buffer.putShort(ChessGameCodec.encodeMove(move.getMove()));
+                buffer.putInt(move.getPly());
+                buffer.put((byte) ((move.isCheck() ? CHECK : 0) | (move.isGameOver() ? GAME_OVER : 0)));
+            }
+            default -> buffer.put(text);
+        }
+        return toArray(buffer);
+    }
+
+    /**
+     * Reads a server message, as the subclass for its type
+     *
+     * @throws IllegalArgumentException if the data is not an encoded message
+     */
+    public static ServerMessage decodeMessage(ByteBuffer buffer) {
+        try {
+            ServerMessageType type = MESSAGE_TYPES[index(buffer.get(), MESSAGE_TYPES.length, "message type")];
+            int sequence = buffer.getInt();
+
+            ServerMessage message = switch (type) {
+                case LOAD_GAME -> new LoadGameMessage(ChessGameCodec.decode(buffer));
+                case MOVE -> {
+                    short move = buffer.getShort();
+                    int ply = buffer.getInt();
+                    int flags = buffer.get();
+                    yield new MoveMessage(ChessGameCodec.decodeMove(move), ply, (flags & CHECK) != 0, (flags & GAME_OVER) != 0);
+                }
+                case NOTIFICATION -> new NotificationMessage(remainingText(buffer));
+                case ERROR -> new ErrorMessage(remainingText(buffer));
+                case LOBBY, LOBBY_UPDATE -> throw new IllegalArgumentException(type + " messages are not sent in binary");
+            };
+            if (sequence != NO_SEQUENCE) {
+                message.setSequence(sequence);
+            }
+            return message;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Encoded message is truncated", e);
+        }
+    }
+
+    private static int index(byte value, int length, String what) {
+        if (value < 0 || value >= length) {
+            throw new IllegalArgumentException("Invalid " + what + " " + value);
+        }
+        return value;
+    }
+
+    private static byte[] utf8(String text) {
+        return text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String remainingText(ByteBuffer buffer) {
+        byte[] text = new byte[buffer.remaining()];
+        buffer.get(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] output = new byte[buffer.position()];
+        buffer.flip().get(output);
+        return output;
+    }
+}
@@ -0,0 +1,289 @@
+package websocket;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import model.GameSummary;
+import model.LobbyEvent;
+import websocket.commands.ConnectCommand;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+import websocket.commands.UserGameCommand.CommandType;
+import websocket.messages.ErrorMessage;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.LobbyMessage;
+import websocket.messages.LobbyUpdateMessage;
+import websocket.messages.MoveMessage;
+import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage;
+import websocket.messages.ServerMessage.ServerMessageType;
+
+/**
+ * Streaming Gson adapters for websocket commands and server messages. Each is
+ * read in one pass straight into the subclass its type calls for, so
+ * {@code fromJson(json, UserGameCommand.class)} gives a
+ * {@link MakeMoveCommand} for a move. The JSON has the same shape Gson gives
+ * these classes by reflection.
+ */
+public final class WebSocketTypeAdapters {
+
+    private WebSocketTypeAdapters() {
+    }
+
+    public static GsonBuilder register(GsonBuilder builder) {
+        return builder.registerTypeAdapterFactory(new Factory());
+    }
+
+    private static class Factory implements TypeAdapterFactory {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            Class<? super T> raw = type.getRawType();
+            if (UserGameCommand.class.isAssignableFrom(raw)) {
+                return (TypeAdapter<T>) new CommandAdapter(gson.getAdapter(ChessMove.class)).nullSafe();
+            }
+            if (ServerMessage.class.isAssignableFrom(raw)) {
+                return (TypeAdapter<T>) new MessageAdapter(gson.getAdapter(ChessGame.class), gson.getAdapter(ChessMove.class),
+                        gson.getAdapter(GameSummary.class), gson.getAdapter(new TypeToken<List<GameSummary>>() {
+                        })).nullSafe();
+            }
+            return null;
+        }
+    }
+
+    private static class CommandAdapter extends TypeAdapter<UserGameCommand> {
+        private final TypeAdapter<ChessMove> moves;
+
+        CommandAdapter(TypeAdapter<ChessMove> moves) {
+            this.moves = moves;
+        }
+
+        @Override
+        public void write(JsonWriter out, UserGameCommand command) throws IOException {
+            out.beginObject();
+            if (command.getCommandType() != null) {
+                out.name("commandType").value(command.getCommandType().name());
+            }
+            if (command.getAuthToken() != null) {
+                out.name("authToken").value(command.getAuthToken());
+            }
+            if (command.getGameID() != null) {
+                out.name("gameID").value(command.getGameID());
+            }
+            switch (command) {
+                case MakeMoveCommand makeMove when makeMove.getMove() != null -> {
+                    out.name("move");
+                    moves.write(out, makeMove.getMove());
+                }
+                case ConnectCommand connect -> {
+                    out.name("moveUpdates").value(connect.wantsMoveUpdates());
+                    if (connect.getLastSequence() != null) {
+                        out.name("lastSequence").value(connect.getLastSequence());
+                    }
+                    out.name("binaryFrames").value(connect.wantsBinaryFrames());
+                }
+                default -> {
+                }
+            }
+            out.endObject();
+        }
+
+        @Override
+        public UserGameCommand read(JsonReader in) throws IOException {
+            CommandType type = null;
+            String authToken = null;
+            Integer gameID = null;
+            ChessMove move = null;
+            boolean moveUpdates = false;
+            Integer lastSequence = null;
+            boolean binaryFrames = false;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "commandType" -> type = enumValue(in, CommandType.values());
+                    case "authToken" -> authToken = nextString(in);
+                    case "gameID" -> gameID = nextInteger(in);
+                    case "move" -> move = moves.read(in);
+                    case "moveUpdates" -> moveUpdates = in.nextBoolean();
+                    case "lastSequence" -> lastSequence = nextInteger(in);
+                    case "binaryFrames" -> binaryFrames = in.nextBoolean();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+
+            if (type == CommandType.CONNECT) {
+                return new ConnectCommand(authToken, gameID, moveUpdates, lastSequence, binaryFrames);
+            }
+            if (type == CommandType.MAKE_MOVE) {
+                return new MakeMoveCommand(move, authToken, gameID);
+            }
+            return new UserGameCommand(type, authToken, gameID);
+        }
+    }
+
+    private static class MessageAdapter extends TypeAdapter<ServerMessage> {
+        private final TypeAdapter<ChessGame> games;
+        private final TypeAdapter<ChessMove> moves;
+        private final TypeAdapter<GameSummary> summaries;
+        private final TypeAdapter<List<GameSummary>> lobbies;
+
+        MessageAdapter(TypeAdapter<ChessGame> games, TypeAdapter<ChessMove> moves, TypeAdapter<GameSummary> summaries,
+                TypeAdapter<List<GameSummary>> lobbies) {
+            this.games = games;
+            this.moves = moves;
+            this.summaries = summaries;
+            this.lobbies = lobbies;
+        }
+
+        @Override
+        public void write(JsonWriter out, ServerMessage message) throws IOException {
+            out.beginObject();
+            if (message.getServerMessageType() != null) {
+                out.name("serverMessageType").value(message.getServerMessageType().name());
+            }
+            if (message.getSequence() != null) {
+                out.name("sequence").value(message.getSequence());
+            }
+            switch (message) {
+                case LoadGameMessage loadGame when loadGame.getGame() != null -> {
+                    out.name("game");
+                    games.write(out, loadGame.getGame());
+                }
+                case MoveMessage move -> {
+                    if (move.getMove() != null) {
+                        out.name("move");
+                        moves.write(out, move.getMove());
+                    }
+                    out.name("ply").value(move.getPly());
+                    out.name("check").value(move.isCheck());
+                    out.name("gameOver").value(move.isGameOver());
+                }
+                case NotificationMessage notification when notification.getMessage() != null ->
+                    out.name("message").value(notification.getMessage());
+                case ErrorMessage error when error.getErrorMessage() != null ->
+                    out.name("errorMessage").value(error.getErrorMessage());
+                case LobbyMessage lobby when lobby.getGames() != null -> {
+                    out.name("games");
+                    lobbies.write(out, lobby.getGames());
+                }
+                case LobbyUpdateMessage update -> {
+                    if (update.getEvent() != null) {
+                        out.name("event").value(update.getEvent().name());
+                    }
+                    if (update.getGame() != null) {
+                        out.name("game");
+                        summaries.write(out, update.getGame());
+                    }
+                }
+                default -> {
+                }
+            }
+            out.endObject();
+        }
+
+        @Override
+        public ServerMessage read(JsonReader in) throws IOException {
+            ServerMessageType type = null;
+            Integer sequence = null;
+            ChessGame game = null;
+            GameSummary summary = null;
+            ChessMove move = null;
+            int ply = 0;
+            boolean check = false;
+            boolean gameOver = false;
+            String text = null;
+            // Only kept as a tree if it comes before the type says what it is
+            JsonElement gameJson = null;
+            List<GameSummary> lobby = null;
+            LobbyEvent event = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "serverMessageType" -> type = enumValue(in, ServerMessageType.values());
+                    case "sequence" -> sequence = nextInteger(in);
+                    case "game" -> {
+                        if (type == ServerMessageType.LOBBY_UPDATE) {
+                            summary = summaries.read(in);
+                        } else if (type != null) {
+                            game = games.read(in);
+                        } else {
+                            gameJson = JsonParser.parseReader(in);
+                        }
+                    }
+                    case "games" -> lobby = lobbies.read(in);
+                    case "event" -> event = enumValue(in, LobbyEvent.values());
+                    case "move" -> move = moves.read(in);
+                    case "ply" -> ply = in.nextInt();
+                    case "check" -> check = in.nextBoolean();
+                    case "gameOver" -> gameOver = in.nextBoolean();
+                    case "message", "errorMessage" -> text = nextString(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            if (gameJson != null && type == ServerMessageType.LOBBY_UPDATE) {
+                summary = summaries.fromJsonTree(gameJson);
+            } else if (gameJson != null) {
+                game = games.fromJsonTree(gameJson);
+            }
+
+            ServerMessage message;
+            if (type == null) {
+                message = new ServerMessage(null);
+            } else {
+                message = switch (type) {
+                    case LOAD_GAME -> new LoadGameMessage(game);
+                    case MOVE -> new MoveMessage(move, ply, check, gameOver);
+                    case NOTIFICATION -> new NotificationMessage(text);
+                    case ERROR -> new ErrorMessage(text);
+                    case LOBBY -> new LobbyMessage(lobby);
+                    case LOBBY_UPDATE -> new LobbyUpdateMessage(event, summary);
+                };
+            }
+            message.setSequence(sequence);
+            return message;
+        }
+    }
+
+    private static String nextString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    private static Integer nextInteger(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextInt();
+    }
+
+    private static <E extends Enum<E>> E enumValue(JsonReader in, E[] values) throws IOException {
+        String name = nextString(in);
+        for (E value : values) {
+            if (value.name().equals(name)) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
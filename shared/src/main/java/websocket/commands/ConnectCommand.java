@@ -0,0 +1,56 @@
+package websocket.commands;
+
+public class ConnectCommand extends UserGameCommand {
+
+    /**
+     * A last sequence that asks for the whole game again, e.g. after the client
+     * finds its copy out of date, without announcing a new connection
+     */
+    public static final int RELOAD = -1;
+
+    boolean moveUpdates;
+    Integer lastSequence;
+    boolean binaryFrames;
+
+    /**
+     * @param moveUpdates whether to receive each move as a {@code MOVE}
+     *                    message instead of the whole game as {@code LOAD_GAME}
+     */
+    public ConnectCommand(String authToken, Integer gameID, boolean moveUpdates) {
+        this(authToken, gameID, moveUpdates, null);
+    }
+
+    /**
+     * Reconnects to a game, asking for only the messages after
+     * {@code lastSequence}. The server sends the whole game instead if it no
+     * longer has all of them.
+     */
+    public ConnectCommand(String authToken, Integer gameID, boolean moveUpdates, Integer lastSequence) {
+        this(authToken, gameID, moveUpdates, lastSequence, false);
+    }
+
+    /**
+     * @param binaryFrames whether to receive messages in binary frames, see
+     *                     {@link websocket.BinaryProtocol}. Servers that don't
+     *                     support them keep sending JSON.
+     */
+    public ConnectCommand(String authToken, Integer gameID, boolean moveUpdates, Integer lastSequence, boolean binaryFrames) {
+        super(CommandType.CONNECT, authToken, gameID);
+        this.moveUpdates = moveUpdates;
+        this.lastSequence = lastSequence;
+        this.binaryFrames = binaryFrames;
+    }
+
+    public boolean wantsMoveUpdates() {
+        return moveUpdates;
+    }
+
+    public Integer getLastSequence() {
+        return lastSequence;
+    }
+
+    public boolean wantsBinaryFrames() {
+        return binaryFrames;
+    }
+
+}
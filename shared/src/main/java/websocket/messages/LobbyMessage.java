@@ -0,0 +1,27 @@
+package websocket.messages;
+
+import java.util.List;
+
+import model.GameSummary;
+
+/**
+ * Every game in the lobby, sent when a session subscribes to the lobby. Its
+ * sequence is the lobby's version; the {@link LobbyUpdateMessage}s that
+ * follow count up from it.
+ */
+public class LobbyMessage extends ServerMessage {
+
+    List<GameSummary> games;
+
+    public LobbyMessage(List<GameSummary> games) {
+        super(ServerMessageType.LOBBY);
+        this.games = games;
+    }
+
+    /**
+     * @return every game, in order of ID
+     */
+    public List<GameSummary> getGames() {
+        return games;
+    }
+}
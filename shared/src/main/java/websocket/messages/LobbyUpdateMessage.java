@@ -0,0 +1,32 @@
+package websocket.messages;
+
+import model.GameSummary;
+import model.LobbyEvent;
+
+/**
+ * One change to the lobby, numbered with the lobby's version after it. A
+ * client that sees a number other than one past the last it saw missed a
+ * change and should subscribe again for the whole lobby.
+ */
+public class LobbyUpdateMessage extends ServerMessage {
+
+    LobbyEvent event;
+    GameSummary game;
+
+    public LobbyUpdateMessage(LobbyEvent event, GameSummary game) {
+        super(ServerMessageType.LOBBY_UPDATE);
+        this.event = event;
+        this.game = game;
+    }
+
+    public LobbyEvent getEvent() {
+        return event;
+    }
+
+    /**
+     * @return the game as it is after the change
+     */
+    public GameSummary getGame() {
+        return game;
+    }
+}
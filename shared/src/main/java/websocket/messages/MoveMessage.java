@@ -0,0 +1,47 @@
+package websocket.messages;
+
+import chess.ChessMove;
+
+/**
+ * A single move, sent instead of the whole game to clients that asked for
+ * move updates. Clients apply it to their copy of the game; if {@code ply} is
+ * not one past the ply they have, they missed something and should reload the
+ * game by connecting again.
+ */
+public class MoveMessage extends ServerMessage {
+
+    ChessMove move;
+    int ply;
+    boolean check;
+    boolean gameOver;
+
+    public MoveMessage(ChessMove move, int ply, boolean check, boolean gameOver) {
+        super(ServerMessageType.MOVE);
+        this.move = move;
+        this.ply = ply;
+        this.check = check;
+        this.gameOver = gameOver;
+    }
+
+    public ChessMove getMove() {
+        return move;
+    }
+
+    /**
+     * @return the game's ply count after the move
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * @return whether the side to move is now in check
+     */
+    public boolean isCheck() {
+        return check;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+}
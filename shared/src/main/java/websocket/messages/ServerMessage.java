@@ -11,10 +11,16 @@ import java.util.Objects;
 public class ServerMessage {
     ServerMessageType serverMessageType;
 
+    // The game or lobby version this message brought clients up to, if it changed one
+    Integer sequence;
+
     public enum ServerMessageType {
         LOAD_GAME,
         ERROR,
-        NOTIFICATION
+        NOTIFICATION,
+        MOVE,
+        LOBBY,
+        LOBBY_UPDATE
     }
 
     public ServerMessage(ServerMessageType type) {
@@ -25,6 +31,20 @@ public class ServerMessage {
         return this.serverMessageType;
     }
 
+    /**
+     * @return the position of this message in its game's stream, or null for
+     *         messages that don't change the game. A client that reconnects
+     *         can pass the last one it saw to catch up from there. Lobby
+     *         messages are numbered separately, by the lobby's version.
+     */
+    public Integer getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Integer sequence) {
+        this.sequence = sequence;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
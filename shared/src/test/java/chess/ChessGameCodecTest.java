@@ -0,0 +1,86 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class ChessGameCodecTest {
+
+    private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+
+    private static void assertRoundTrip(ChessGame game) {
+        ChessGame decoded = ChessGameCodec.decode(ChessGameCodec.encode(game));
+
+        assertEquals(game, decoded);
+        assertEquals(game.getPlyCount(), decoded.getPlyCount());
+        assertEquals(game.getCastlingRights(), decoded.getCastlingRights());
+        assertEquals(game.getEnPassantColumn(), decoded.getEnPassantColumn());
+    }
+
+    @Test
+    void testStartingPosition() {
+        ChessGame game = new ChessGame();
+        byte[] encoded = ChessGameCodec.encode(game);
+
+        assertEquals(ChessGameCodec.MAX_SIZE, encoded.length);
+        assertRoundTrip(game);
+    }
+
+    @Test
+    void testEnPassantAndCastlingSurvive() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 1, 6, 1));
+        game.makeMove(move(4, 5, 5, 5));
+        game.makeMove(move(7, 4, 5, 4));
+        game.updateCastling();
+
+        assertEquals(4, game.getEnPassantColumn());
+        assertRoundTrip(game);
+
+        ChessGame decoded = ChessGameCodec.decode(ChessGameCodec.encode(game));
+        assertTrue(decoded.validMoves(new ChessPosition(5, 5)).contains(move(5, 5, 6, 4)));
+        decoded.makeMove(move(5, 5, 6, 4));
+        assertEquals(null, decoded.getBoard().getPiece(new ChessPosition(5, 4)));
+    }
+
+    @Test
+    void testPromotionDoesNotChangeSharedPieces() throws InvalidMoveException {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(7, 2), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        board.addPiece(new ChessPosition(2, 7), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setCastlingRights(0);
+
+        ChessGame decoded = ChessGameCodec.decode(ChessGameCodec.encode(game));
+        decoded.makeMove(new ChessMove(new ChessPosition(7, 2), new ChessPosition(8, 2), ChessPiece.PieceType.QUEEN));
+
+        assertEquals(ChessPiece.PieceType.QUEEN, decoded.getBoard().getPiece(new ChessPosition(8, 2)).getPieceType());
+        assertEquals(ChessPiece.PieceType.PAWN, decoded.getBoard().getPiece(new ChessPosition(2, 7)).getPieceType());
+        assertRoundTrip(decoded);
+    }
+
+    @Test
+    void testRejectsUnknownVersion() {
+        byte[] encoded = ChessGameCodec.encode(new ChessGame());
+        encoded[0] = 0x7F;
+
+        assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decode(encoded));
+        assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decode(new byte[] { ChessGameCodec.VERSION, 0, 0 }));
+    }
+
+    @Test
+    void testMoveEncoding() {
+        ChessMove promotion = new ChessMove(new ChessPosition(7, 8), new ChessPosition(8, 8), ChessPiece.PieceType.KNIGHT);
+        ChessMove corner = move(8, 8, 1, 1);
+
+        assertEquals(promotion, ChessGameCodec.decodeMove(ChessGameCodec.encodeMove(promotion)));
+        assertEquals(corner, ChessGameCodec.decodeMove(ChessGameCodec.encodeMove(corner)));
+    }
+}
@@ -0,0 +1,44 @@
+package chess.notation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+
+class FenTest {
+
+    @Test
+    void testStartingPosition() throws NotationException {
+        assertEquals(Fen.STARTING_POSITION, Fen.write(new ChessGame()));
+        assertEquals(new ChessGame(), Fen.read(Fen.STARTING_POSITION));
+    }
+
+    @Test
+    void testRoundTripWithEnPassant() throws InvalidMoveException, NotationException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 1), new ChessPosition(6, 1), null));
+        game.makeMove(new ChessMove(new ChessPosition(4, 5), new ChessPosition(5, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 6), new ChessPosition(5, 6), null));
+
+        String fen = Fen.write(game);
+        assertEquals("rnbqkbnr/1pppp1pp/p7/4Pp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3", fen);
+
+        ChessGame read = Fen.read(fen);
+        assertEquals(game, read);
+        assertEquals(6, read.getEnPassantColumn());
+        assertEquals(4, read.getPlyCount());
+        assertEquals(fen, Fen.write(read));
+    }
+
+    @Test
+    void testMalformed() {
+        assertThrows(NotationException.class, () -> Fen.read("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1"));
+        assertThrows(NotationException.class, () -> Fen.read("rnbqkbnr/ppppxppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"));
+        assertThrows(NotationException.class, () -> Fen.read("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR"));
+    }
+}
@@ -0,0 +1,130 @@
+package chess.notation;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+
+class PgnTest {
+
+    private static final String ARCHIVE = """
+            [Event "Casual"]
+            [White "Anderssen"]
+            [Black "Kieseritzky"]
+            [Result "1-0"]
+
+            1. e4 e5 {a comment} 2. Qh5 (2. Nf3 Nc6 (2... d6)) 2... Nc6 $1
+            3.Bc4 Nf6?? ; mistake
+            4. Qxf7# 1-0
+
+            [Event "Illegal"]
+
+            1. e4 e4 2. d4 *
+
+            [Event "Castling"]
+
+            1. e4 e5 2. Nf3 Nc6 3. Bc4 Bc5 4. O-O Nf6 1/2-1/2
+            """;
+
+    @Test
+    void testReadArchive() throws IOException, NotationException {
+        PgnReader reader = new PgnReader(new StringReader(ARCHIVE));
+
+        PgnGame first = reader.next();
+        assertEquals("Anderssen", first.tag("White"));
+        assertEquals("1-0", first.result());
+        assertEquals(7, first.moves().size());
+        assertEquals(ChessGame.TeamColor.GAMEOVER, first.game().getTeamTurn());
+
+        assertThrows(NotationException.class, reader::next);
+
+        PgnGame third = reader.next();
+        assertEquals("Castling", third.tag("Event"));
+        assertEquals(new ChessMove(new ChessPosition(1, 5), new ChessPosition(1, 7), null), third.moves().get(6));
+        assertEquals(ChessPiece.PieceType.ROOK, third.game().getBoard().getPiece(new ChessPosition(1, 6)).getPieceType());
+
+        assertNull(reader.next());
+    }
+
+    @Test
+    void testBadTagSkipsWholeGame() throws IOException, NotationException {
+        PgnReader reader = new PgnReader(new StringReader("""
+                % [Event "Escaped"]
+                [Event "Bad"]
+                [White]
+                [Black "Someone"]
+
+                1. e4 e5 1-0
+
+                [Event "Good"]
+
+                1. d4 d5 % not an escape
+                *
+                """));
+
+        NotationException bad = assertThrows(NotationException.class, reader::next);
+        assertTrue(bad.getMessage().startsWith("Line 3: "), bad.getMessage());
+
+        // Read as a move, since % only escapes a line in the first column
+        NotationException escape = assertThrows(NotationException.class, reader::next);
+        assertTrue(escape.getMessage().contains("move 3"), escape.getMessage());
+
+        assertNull(reader.next());
+    }
+
+    @Test
+    void testEscapedLinesSkipped() throws IOException, NotationException {
+        PgnGame game = new PgnReader(new StringReader("""
+                % exported by some program
+                [Event "Escaped"]
+
+                1. e4
+                %e5 is not a move here
+                e5 *
+                """)).next();
+
+        assertEquals("Escaped", game.tag("Event"));
+        assertEquals(2, game.moves().size());
+    }
+
+    @Test
+    void testWriteThenRead() throws IOException, NotationException, InvalidMoveException {
+        PgnGame game = new PgnReader(new StringReader(ARCHIVE)).next();
+
+        StringWriter output = new StringWriter();
+        new PgnWriter(output).write(game);
+
+        String pgn = output.toString();
+        assertTrue(pgn.startsWith("[Event \"Casual\"]\n[Site \"?\"]\n"), pgn);
+        assertTrue(pgn.contains("1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7# 1-0"), pgn);
+
+        PgnGame reread = new PgnReader(new StringReader(pgn)).next();
+        assertEquals(game.moves(), reread.moves());
+        assertEquals(game.game(), reread.game());
+    }
+
+    @Test
+    void testSanDisambiguationAndPromotion() throws NotationException, InvalidMoveException {
+        ChessGame game = Fen.read("k7/4P3/8/8/8/8/4K3/R6R w - - 0 1");
+
+        ChessMove rook = San.read(game, "Rad1");
+        assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(1, 4), null), rook);
+        assertEquals("Rad1", San.write(game, rook));
+        assertThrows(NotationException.class, () -> San.read(game, "Rd1"));
+
+        ChessMove promotion = San.read(game, "e8=Q+");
+        assertEquals(ChessPiece.PieceType.QUEEN, promotion.getPromotionPiece());
+        assertEquals("e8=Q+", San.write(game, promotion));
+    }
+}
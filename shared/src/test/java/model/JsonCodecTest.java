@@ -0,0 +1,114 @@
+package model;
+
+import java.util.List;
+
+import com.google.gson.Gson;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import websocket.commands.ConnectCommand;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.LobbyMessage;
+import websocket.messages.LobbyUpdateMessage;
+import websocket.messages.MoveMessage;
+import websocket.messages.ServerMessage;
+
+class JsonCodecTest {
+
+    private static final Gson REFLECTIVE = new Gson();
+
+    private static ChessGame playedGame() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 1), new ChessPosition(6, 1), null));
+        game.makeMove(new ChessMove(new ChessPosition(4, 5), new ChessPosition(5, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 4), new ChessPosition(5, 4), null));
+        return game;
+    }
+
+    private static void assertSameGame(ChessGame expected, ChessGame actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.getPlyCount(), actual.getPlyCount());
+        assertEquals(expected.getCastlingRights(), actual.getCastlingRights());
+        assertEquals(expected.getEnPassantColumn(), actual.getEnPassantColumn());
+    }
+
+    @Test
+    void testGameRoundTrip() throws InvalidMoveException {
+        ChessGame game = playedGame();
+
+        assertSameGame(game, JsonCodec.GSON.fromJson(JsonCodec.GSON.toJson(game), ChessGame.class));
+    }
+
+    @Test
+    void testGameMatchesReflectiveJson() throws InvalidMoveException {
+        ChessGame game = playedGame();
+
+        assertSameGame(game, JsonCodec.GSON.fromJson(REFLECTIVE.toJson(game), ChessGame.class));
+        assertSameGame(game, REFLECTIVE.fromJson(JsonCodec.GSON.toJson(game), ChessGame.class));
+    }
+
+    @Test
+    void testCommandsReadAsTheirSubclass() {
+        ChessMove move = new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1), ChessPiece.PieceType.KNIGHT);
+        String makeMove = JsonCodec.GSON.toJson(new MakeMoveCommand(move, "token", 4));
+        String connect = REFLECTIVE.toJson(new UserGameCommand(UserGameCommand.CommandType.CONNECT, "token", 4));
+
+        MakeMoveCommand decodedMove = assertInstanceOf(MakeMoveCommand.class, JsonCodec.GSON.fromJson(makeMove, UserGameCommand.class));
+        ConnectCommand decodedConnect = assertInstanceOf(ConnectCommand.class, JsonCodec.GSON.fromJson(connect, UserGameCommand.class));
+
+        assertEquals(move, decodedMove.getMove());
+        assertEquals("token", decodedMove.getAuthToken());
+        assertEquals(4, decodedConnect.getGameID());
+        assertNull(decodedConnect.getLastSequence());
+        assertEquals(move, REFLECTIVE.fromJson(makeMove, MakeMoveCommand.class).getMove());
+    }
+
+    @Test
+    void testMessagesReadAsTheirSubclass() {
+        LoadGameMessage loadGame = new LoadGameMessage(new ChessGame());
+        loadGame.setSequence(3);
+        String json = JsonCodec.GSON.toJson(loadGame);
+
+        ServerMessage decoded = JsonCodec.GSON.fromJson(json, ServerMessage.class);
+        MoveMessage move = assertInstanceOf(MoveMessage.class, JsonCodec.GSON.fromJson(
+                JsonCodec.GSON.toJson(new MoveMessage(new ChessMove(new ChessPosition(2, 1), new ChessPosition(3, 1), null), 1, true, false)),
+                ServerMessage.class));
+
+        assertEquals(loadGame.getGame(), assertInstanceOf(LoadGameMessage.class, decoded).getGame());
+        assertEquals(3, decoded.getSequence());
+        assertTrue(move.isCheck());
+        assertEquals(ServerMessage.ServerMessageType.LOAD_GAME, REFLECTIVE.fromJson(json, ServerMessage.class).getServerMessageType());
+    }
+
+    @Test
+    void testLobbyMessages() {
+        GameSummary game = new GameSummary(7, "white", null, "gameName", GameStatus.WAITING);
+        LobbyUpdateMessage update = new LobbyUpdateMessage(LobbyEvent.SEAT_TAKEN, game);
+        update.setSequence(12);
+        // The type may come after the game it describes
+        String reordered = "{\"game\":" + JsonCodec.GSON.toJson(game) + ",\"event\":\"SEAT_TAKEN\",\"serverMessageType\":\"LOBBY_UPDATE\"}";
+
+        LobbyUpdateMessage decoded = assertInstanceOf(LobbyUpdateMessage.class,
+                JsonCodec.GSON.fromJson(JsonCodec.GSON.toJson(update), ServerMessage.class));
+        LobbyMessage lobby = assertInstanceOf(LobbyMessage.class,
+                JsonCodec.GSON.fromJson(JsonCodec.GSON.toJson(new LobbyMessage(List.of(game))), ServerMessage.class));
+
+        assertEquals(LobbyEvent.SEAT_TAKEN, decoded.getEvent());
+        assertEquals(game, decoded.getGame());
+        assertEquals(12, decoded.getSequence());
+        assertEquals(List.of(game), lobby.getGames());
+        assertEquals(game, assertInstanceOf(LobbyUpdateMessage.class, JsonCodec.GSON.fromJson(reordered, ServerMessage.class)).getGame());
+    }
+}
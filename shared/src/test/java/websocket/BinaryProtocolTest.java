@@ -0,0 +1,96 @@
+package websocket;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import websocket.commands.ConnectCommand;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
+import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage;
+
+class BinaryProtocolTest {
+
+    private static final String TOKEN = UUID.randomUUID().toString();
+
+    private static UserGameCommand roundTrip(UserGameCommand command) {
+        return BinaryProtocol.decodeCommand(ByteBuffer.wrap(BinaryProtocol.encodeCommand(command)));
+    }
+
+    private static ServerMessage roundTrip(ServerMessage message) {
+        return BinaryProtocol.decodeMessage(ByteBuffer.wrap(BinaryProtocol.encodeMessage(message)));
+    }
+
+    @Test
+    void testMakeMoveCommand() {
+        ChessMove move = new ChessMove(new ChessPosition(7, 2), new ChessPosition(8, 2), ChessPiece.PieceType.QUEEN);
+        byte[] encoded = BinaryProtocol.encodeCommand(new MakeMoveCommand(move, TOKEN, 12));
+
+        MakeMoveCommand decoded = assertInstanceOf(MakeMoveCommand.class, BinaryProtocol.decodeCommand(ByteBuffer.wrap(encoded)));
+
+        assertEquals(1 + 4 + 16 + 2, encoded.length);
+        assertEquals(TOKEN, decoded.getAuthToken());
+        assertEquals(12, decoded.getGameID());
+        assertEquals(move, decoded.getMove());
+    }
+
+    @Test
+    void testConnectCommand() {
+        ConnectCommand fresh = assertInstanceOf(ConnectCommand.class, roundTrip(new ConnectCommand(TOKEN, 3, true, null, true)));
+        ConnectCommand resumed = assertInstanceOf(ConnectCommand.class, roundTrip(new ConnectCommand(TOKEN, 3, false, 7, false)));
+
+        assertTrue(fresh.wantsMoveUpdates());
+        assertTrue(fresh.wantsBinaryFrames());
+        assertNull(fresh.getLastSequence());
+        assertFalse(resumed.wantsMoveUpdates());
+        assertEquals(7, resumed.getLastSequence());
+    }
+
+    @Test
+    void testOnlyUuidTokensEncode() {
+        assertFalse(BinaryProtocol.canEncode(new UserGameCommand(UserGameCommand.CommandType.LEAVE, "not a uuid", 1)));
+        assertFalse(BinaryProtocol.canEncode(new UserGameCommand(UserGameCommand.CommandType.LEAVE, TOKEN, null)));
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryProtocol.encodeCommand(new UserGameCommand(UserGameCommand.CommandType.LEAVE, TOKEN.toUpperCase(), 1)));
+    }
+
+    @Test
+    void testServerMessages() {
+        LoadGameMessage loadGame = new LoadGameMessage(new ChessGame());
+        loadGame.setSequence(4);
+        MoveMessage move = new MoveMessage(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null), 1, false, true);
+
+        ServerMessage decodedGame = roundTrip(loadGame);
+        MoveMessage decodedMove = assertInstanceOf(MoveMessage.class, roundTrip(move));
+        NotificationMessage decodedText = assertInstanceOf(NotificationMessage.class, roundTrip(new NotificationMessage("é moved")));
+
+        assertEquals(loadGame.getGame(), assertInstanceOf(LoadGameMessage.class, decodedGame).getGame());
+        assertEquals(4, decodedGame.getSequence());
+        assertEquals(move.getMove(), decodedMove.getMove());
+        assertTrue(decodedMove.isGameOver());
+        assertNull(decodedMove.getSequence());
+        assertEquals("é moved", decodedText.getMessage());
+    }
+
+    @Test
+    void testTruncatedFrameRejected() {
+        byte[] encoded = BinaryProtocol.encodeCommand(new UserGameCommand(UserGameCommand.CommandType.RESIGN, TOKEN, 1));
+
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.decodeCommand(ByteBuffer.wrap(encoded, 0, 10)));
+        assertThrows(IllegalArgumentException.class, () -> BinaryProtocol.decodeMessage(ByteBuffer.wrap(new byte[] { 9 })));
+    }
+}